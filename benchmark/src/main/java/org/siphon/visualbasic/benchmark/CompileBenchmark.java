@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Inshua<inshua@gmail.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.siphon.visualbasic.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.siphon.visualbasic.Library;
+import org.siphon.visualbasic.compile.Compiler;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用 Compiler.compile 编译 vba/ 下示例所需的时间，含词法、语法分析和语义编译
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompileBenchmark {
+
+	@Param({ "ClassTest/ClassTest.vbp", "CollectionTest/CollectionTest.vbp", "RuleTest/RuleTest.vbp",
+			"Calculator/Calc.vbp", "for-next.bas", "select-case.bas" })
+	public String sample;
+
+	private Sources.Sample source;
+
+	@Setup
+	public void setup() throws Exception {
+		source = new Sources.Sample(sample);
+	}
+
+	@Benchmark
+	public Library compile() {
+		Compiler compiler = Sources.newCompiler();
+		return compiler.compile(source.name, source.files, source.charset);
+	}
+}
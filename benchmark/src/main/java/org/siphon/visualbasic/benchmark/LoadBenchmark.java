@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Inshua<inshua@gmail.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.siphon.visualbasic.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.siphon.visualbasic.CompiledProgram;
+import org.siphon.visualbasic.Interpreter;
+import org.siphon.visualbasic.runtime.VbRuntimeException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 把编译好的程序加载进新解释器（建立运行时库、模块实例并初始化模块变量）所需的时间
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoadBenchmark {
+
+	@Param({ "ClassTest/ClassTest.vbp", "CollectionTest/CollectionTest.vbp", "for-next.bas", "select-case.bas" })
+	public String sample;
+
+	private CompiledProgram program;
+
+	@Setup
+	public void setup() throws Exception {
+		program = new Sources.Sample(sample).compile().generateProgram();
+	}
+
+	@Benchmark
+	public Interpreter load() throws VbRuntimeException {
+		return new Interpreter().load(program);
+	}
+}
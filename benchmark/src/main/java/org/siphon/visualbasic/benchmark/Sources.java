@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Inshua<inshua@gmail.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.siphon.visualbasic.benchmark;
+
+import org.siphon.visualbasic.CompiledProgram;
+import org.siphon.visualbasic.Project;
+import org.siphon.visualbasic.compile.Compiler;
+import org.siphon.visualbasic.compile.VbErrorsException;
+import org.siphon.visualbasic.runtime.VbValue;
+import org.siphon.visualbasic.runtime.framework.Debug;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基准测试用到的源码：仓库 vba/ 目录下的示例工程，以及本模块 resources/workloads 下的负载程序
+ */
+final class Sources {
+
+	static final String WORKLOAD_LIBRARY = "Bench";
+
+	private Sources() {
+	}
+
+	/**
+	 * vba/ 示例目录，可用 -Dvba.dir 指定，默认在当前目录或上级目录中查找
+	 */
+	static File vbaDir() {
+		String dir = System.getProperty("vba.dir");
+		if (dir != null) {
+			return new File(dir);
+		}
+		for (String candidate : new String[] { "vba", "../vba" }) {
+			File file = new File(candidate);
+			if (file.isDirectory()) {
+				return file;
+			}
+		}
+		throw new IllegalStateException("vba/ samples not found, run from the repository root or set -Dvba.dir");
+	}
+
+	/**
+	 * vba/ 下的一个示例：.vbp 工程或单个 .bas 文件
+	 */
+	static final class Sample {
+		final String name;
+		final String[] files;
+		final String charset;
+
+		Sample(String path) throws Exception {
+			File file = new File(vbaDir(), path);
+			if (path.endsWith(".vbp")) {
+				Project project = new Project(file.getPath(), "gbk");
+				List<String> ls = new ArrayList<>();
+				for (File module : project.getModuleFiles()) {
+					ls.add(module.getAbsolutePath());
+				}
+				this.name = project.getName();
+				this.files = ls.toArray(new String[0]);
+				this.charset = project.getCharset();
+			} else {
+				this.name = "Project1";
+				this.files = new String[] { file.getAbsolutePath() };
+				this.charset = "gbk";
+			}
+		}
+
+		Compiler compile() {
+			Compiler compiler = newCompiler();
+			compiler.compile(name, files, charset);
+			return compiler;
+		}
+	}
+
+	static Compiler newCompiler() {
+		Compiler compiler = new Compiler();
+		compiler.bindObject("DEBUG", VbValue.fromJava(new Debug()));
+		return compiler;
+	}
+
+	/**
+	 * 把负载程序 workloads/&lt;name&gt;.bas（及其用到的类模块）复制到临时目录后编译
+	 */
+	static CompiledProgram compileWorkload(String name, String... classModules) throws IOException, VbErrorsException {
+		Path dir = Files.createTempDirectory("vba-bench");
+		dir.toFile().deleteOnExit();
+		List<String> files = new ArrayList<>();
+		files.add(extract(dir, name + ".bas"));
+		for (String cls : classModules) {
+			files.add(extract(dir, cls));
+		}
+		Compiler compiler = newCompiler();
+		compiler.compile(WORKLOAD_LIBRARY, files.toArray(new String[0]), "UTF-8");
+		return compiler.generateProgram();
+	}
+
+	private static String extract(Path dir, String resource) throws IOException {
+		Path target = dir.resolve(resource);
+		try (InputStream in = Sources.class.getResourceAsStream("/workloads/" + resource)) {
+			if (in == null) {
+				throw new IOException("workload not found: " + resource);
+			}
+			Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+		target.toFile().deleteOnExit();
+		return target.toString();
+	}
+}
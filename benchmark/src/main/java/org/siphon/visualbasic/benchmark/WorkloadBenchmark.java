@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Inshua<inshua@gmail.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.siphon.visualbasic.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.siphon.visualbasic.Interpreter;
+import org.siphon.visualbasic.runtime.ExecutionEngine;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 典型负载的稳态吞吐量，每次调用负载模块的 Main 函数。负载源码在 resources/workloads 下：
+ * <ul>
+ * <li>Loops - 计数循环与算术</li>
+ * <li>Strings - 字符串拼接与比较</li>
+ * <li>Collections - Collection 添加、遍历、按键访问</li>
+ * <li>Classes - 类模块方法调用与属性读写</li>
+ * <li>Rules - Rule 递归</li>
+ * <li>Interop - 调用 Java 对象</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WorkloadBenchmark {
+
+	@Param({ "Loops", "Strings", "Collections", "Classes", "Rules", "Interop" })
+	public String workload;
+
+	@Param({ "TREE_WALKING", "LINEAR" })
+	public ExecutionEngine engine;
+
+	private Interpreter interpreter;
+
+	@Setup
+	public void setup() throws Exception {
+		String[] classModules = "Classes".equals(workload) ? new String[] { "Counter.cls" } : new String[0];
+		interpreter = Sources.compileWorkload(workload, classModules).newInterpreter();
+		interpreter.setExecutionEngine(engine);
+	}
+
+	@Benchmark
+	public Object run() throws Exception {
+		return interpreter.invoke(Sources.WORKLOAD_LIBRARY, workload, "Main");
+	}
+}
@@ -0,0 +1,11 @@
+Attribute VB_Name = "Classes"
+' 类模块的方法调用与属性读写
+Function Main()
+    Dim c As New Counter
+    Dim i As Long
+    For i = 1 To 20000
+        c.Add 1
+        c.Value = c.Value + 1
+    Next
+    Main = c.Value
+End Function
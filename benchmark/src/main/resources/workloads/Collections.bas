@@ -0,0 +1,16 @@
+Attribute VB_Name = "Collections"
+' Collection 的添加、遍历与按键存取
+Function Main()
+    Dim col As New Collection
+    Dim i As Integer, s As Long, v
+    For i = 1 To 500
+        col.Add i, "k" & i
+    Next
+    For Each v In col
+        s = s + v
+    Next
+    For i = 1 To 500
+        s = s + col("k" & i)
+    Next
+    Main = s + col.Count
+End Function
@@ -0,0 +1,16 @@
+Attribute VB_Name = "Interop"
+' 调用 Java 对象的方法
+Function Main()
+    Dim list, map, i, s
+    Set list = CreateObject("java.util.ArrayList")
+    Set map = CreateObject("java.util.HashMap")
+    For i = 1 To 5000
+        list.add i
+        map.put "k" & (i And 63), i
+    Next
+    s = 0
+    For i = 0 To 4999
+        s = s + list.get(i)
+    Next
+    Main = s + map.size()
+End Function
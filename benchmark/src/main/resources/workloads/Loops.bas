@@ -0,0 +1,14 @@
+Attribute VB_Name = "Loops"
+' 计数循环：For...Next、整数与浮点运算
+Function Main()
+    Dim i As Long, j As Integer
+    Dim s As Long, d As Double
+    For i = 1 To 100000
+        s = s + (i And 15) - 7
+        d = d + i / 2
+    Next
+    For j = 1 To 1000 Step 3
+        s = s - j
+    Next
+    Main = s + d
+End Function
@@ -0,0 +1,18 @@
+Attribute VB_Name = "Rules"
+' Rule 递归与模式匹配
+Rule Fact(n As Long) As Double
+    ' 编译器推断不出 n - 1 的类型，显式转换为 Long
+    Fact = n * Fact(CLng(n - 1))
+End Rule
+
+Rule Fact When n <= 1
+    Fact = 1
+End Rule
+
+Function Main()
+    Dim i As Long, s As Double
+    For i = 1 To 200
+        s = s + Fact(20)
+    Next
+    Main = s
+End Function
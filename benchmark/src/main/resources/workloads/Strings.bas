@@ -0,0 +1,11 @@
+Attribute VB_Name = "Strings"
+' 字符串拼接与比较
+Function Main()
+    Dim i As Long, s As String, n As Long
+    s = ""
+    For i = 1 To 2000
+        s = s & "item" & i & ","
+        If s > "item" Then n = n + 1
+    Next
+    Main = n
+End Function
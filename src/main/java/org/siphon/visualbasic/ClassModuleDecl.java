@@ -46,7 +46,7 @@ public class ClassModuleDecl extends ModuleDecl {
 	public List<ClassTypeDecl> implementClasses = new ArrayList<>();
 	
 	private Map<ClassModuleDecl, ClassTypeDecl> implementors = new HashMap<>();
-	protected Compiler compiler;
+	protected transient Compiler compiler;		// 仅编译时使用，不进入编译缓存
 	
 	public VarDecl getBaseObject() {
 		return baseObject;
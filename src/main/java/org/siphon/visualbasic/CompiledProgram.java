@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Inshua<inshua@gmail.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.siphon.visualbasic;
+
+import org.siphon.visualbasic.runtime.Statement;
+import org.siphon.visualbasic.runtime.VbRuntimeException;
+import org.siphon.visualbasic.runtime.VbValue;
+import org.siphon.visualbasic.runtime.statements.InitLibraryStatement;
+import org.siphon.visualbasic.runtime.statements.LoadLibraryStatement;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 编译完成的程序：Library、ModuleDecl 及语句树。
+ * <p>
+ * 编译完成后不再变化，可由多个 Interpreter 分别加载，每次加载都得到一份新的模块实例和模块级变量，不必重新编译。
+ */
+public class CompiledProgram {
+
+	private final List<Library> libraries;
+
+	private final Project project;
+
+	private final Map<String, VbValue> boundObjects;
+
+	public CompiledProgram(List<Library> libraries, Project project) {
+		this(libraries, project, Collections.emptyMap());
+	}
+
+	/**
+	 * @param boundObjects 编译时以 {@link org.siphon.visualbasic.compile.Compiler#bindObject} 绑定的对象
+	 */
+	public CompiledProgram(List<Library> libraries, Project project, Map<String, VbValue> boundObjects) {
+		this.libraries = Collections.unmodifiableList(new ArrayList<>(libraries));
+		this.project = project;
+		this.boundObjects = Collections.unmodifiableMap(new LinkedHashMap<>(boundObjects));
+	}
+
+	public List<Library> getLibraries() {
+		return libraries;
+	}
+
+	public Map<String, VbValue> getBoundObjects() {
+		return boundObjects;
+	}
+
+	public Library getLibrary(String name) {
+		for (Library lib : libraries) {
+			if (lib.name.equalsIgnoreCase(name)) {
+				return lib;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return 由 vbp 工程编译而来时返回该工程，否则为 null
+	 */
+	public Project getProject() {
+		return project;
+	}
+
+	/**
+	 * 生成加载语句，每次调用都生成新的语句，由 {@link Interpreter#load(List)} 执行后建立运行时状态
+	 */
+	public List<Statement> generateStatements() {
+		List<Statement> result = new ArrayList<>();
+		for (Library lib : libraries) {
+			result.add(new LoadLibraryStatement(lib));
+		}
+		for (Library lib : libraries) {
+			result.add(new InitLibraryStatement(lib));
+		}
+		return result;
+	}
+
+	/**
+	 * 创建一个加载了本程序的新解释器
+	 */
+	public Interpreter newInterpreter() throws VbRuntimeException {
+		return new Interpreter().load(this);
+	}
+}
@@ -0,0 +1,327 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Inshua<inshua@gmail.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.siphon.visualbasic;
+
+import org.siphon.visualbasic.compile.VbErrorsException;
+import org.siphon.visualbasic.runtime.VbValue;
+
+import java.io.*;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * 编译结果的磁盘缓存，命中时跳过词法、语法分析和全部编译过程。
+ * <p>
+ * 缓存以工程名、字符集、各模块文件的名称和内容，以及解释器自身的版本作为键（SHA-256），
+ * 值为整个 CompiledProgram（含 VBA、VB 等框架库）的 Java 序列化结果。序列化时：
+ * <ul>
+ * <li>Method、Field、Constructor 以声明类、名称和参数类型记录，读取时重新查找</li>
+ * <li>编译时绑定的对象（如 DEBUG）以名称记录，读取时换成新绑定的对象</li>
+ * <li>VbValue.Nothing、VbVarType.VbVariant 等静态单例以所在字段记录，读取时仍为同一对象，保证 == 比较有效</li>
+ * </ul>
+ * 任何源文件变化都使整个工程重新编译；模块之间的声明相互引用，不做单个模块的增量编译。
+ * 读取失败（文件损坏、类结构变化等）时视为未命中，重新编译并覆盖。
+ */
+public class CompiledProgramCache {
+
+	// 缓存格式变化时递增
+	private static final int FORMAT_VERSION = 1;
+
+	private final File directory;
+
+	private static final String interpreterVersion = computeInterpreterVersion();
+
+	public CompiledProgramCache(File directory) {
+		this.directory = directory;
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * 读取缓存的编译结果，未命中时编译并写入缓存
+	 */
+	public CompiledProgram compile(Project project) throws VbErrorsException, IOException {
+		String key = keyOf(project);
+		CompiledProgram program = read(key, project);
+		if (program == null) {
+			program = Interpreter.compileVbProject(project);
+			try {
+				write(key, program);
+			} catch (IOException e) {
+				// 写不进缓存不影响本次执行，下次仍重新编译
+				System.err.println("cannot write compiled program cache: " + e);
+			}
+		}
+		return program;
+	}
+
+	/**
+	 * 工程的缓存键
+	 */
+	public String keyOf(Project project) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		update(digest, FORMAT_VERSION + "|" + interpreterVersion);
+		update(digest, String.valueOf(project.getName()));
+		update(digest, project.getCharset());
+		for (File file : project.getModuleFiles()) {
+			update(digest, file.getName());
+			byte[] content = Files.readAllBytes(file.toPath());
+			update(digest, String.valueOf(content.length));
+			digest.update(content);
+		}
+		StringBuilder sb = new StringBuilder();
+		for (byte b : digest.digest()) {
+			sb.append(String.format("%02x", b));
+		}
+		return sb.toString();
+	}
+
+	private static void update(MessageDigest digest, String s) {
+		byte[] bytes = s.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+		digest.update(bytes);
+		digest.update((byte) 0);
+	}
+
+	private File fileOf(String key) {
+		return new File(directory, key + ".vbc");
+	}
+
+	/**
+	 * @return 未命中或读取失败时返回 null
+	 */
+	@SuppressWarnings("unchecked")
+	CompiledProgram read(String key, Project project) {
+		File file = fileOf(key);
+		if (file.isFile() == false) {
+			return null;
+		}
+		Map<String, VbValue> bindings = Interpreter.newProjectBindings();
+		try (ObjectInputStream in = new CacheInputStream(new InflaterInputStream(new BufferedInputStream(new FileInputStream(file))), bindings)) {
+			List<Library> libraries = (List<Library>) in.readObject();
+			return new CompiledProgram(libraries, project, bindings);
+		} catch (IOException | ClassNotFoundException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	void write(String key, CompiledProgram program) throws IOException {
+		Files.createDirectories(directory.toPath());
+		File file = fileOf(key);
+		Path temp = Files.createTempFile(directory.toPath(), key, ".tmp");
+		try {
+			try (ObjectOutputStream out = new CacheOutputStream(new DeflaterOutputStream(new BufferedOutputStream(new FileOutputStream(temp.toFile()))), program.getBoundObjects())) {
+				out.writeObject(new ArrayList<>(program.getLibraries()));
+			}
+			Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	// 解释器的版本：jar 的 Implementation-Version 与类文件所在位置的修改时间，开发时重新编译也会使缓存失效
+	private static String computeInterpreterVersion() {
+		String version = String.valueOf(Interpreter.class.getPackage().getImplementationVersion());
+		try {
+			CodeSource source = Interpreter.class.getProtectionDomain().getCodeSource();
+			URL url = source == null ? null : source.getLocation();
+			if (url != null) {
+				File location = new File(url.toURI());
+				if (location.isDirectory()) {
+					location = new File(location, Interpreter.class.getName().replace('.', '/') + ".class");
+				}
+				version += "@" + location.lastModified();
+			}
+		} catch (Exception e) {
+			// 取不到时仅用版本号
+		}
+		return version;
+	}
+
+	// ---------------- 序列化时替换的引用 ----------------
+
+	private static final class MemberRef implements Serializable {
+		private static final long serialVersionUID = 1L;
+		final Class<?> declaringClass;
+		final String name;		// 构造函数为 null
+		final Class<?>[] parameterTypes;
+		final boolean field;
+
+		MemberRef(Class<?> declaringClass, String name, Class<?>[] parameterTypes, boolean field) {
+			this.declaringClass = declaringClass;
+			this.name = name;
+			this.parameterTypes = parameterTypes;
+			this.field = field;
+		}
+
+		Object resolve() throws ReflectiveOperationException {
+			if (field) {
+				return declaringClass.getDeclaredField(name);
+			} else if (name == null) {
+				return declaringClass.getDeclaredConstructor(parameterTypes);
+			} else {
+				return declaringClass.getDeclaredMethod(name, parameterTypes);
+			}
+		}
+	}
+
+	private static final class BoundRef implements Serializable {
+		private static final long serialVersionUID = 1L;
+		final String name;
+
+		BoundRef(String name) {
+			this.name = name;
+		}
+	}
+
+	private static final class StaticRef implements Serializable {
+		private static final long serialVersionUID = 1L;
+		final Class<?> declaringClass;
+		final String name;
+
+		StaticRef(Class<?> declaringClass, String name) {
+			this.declaringClass = declaringClass;
+			this.name = name;
+		}
+
+		Object resolve() throws ReflectiveOperationException {
+			Field field = declaringClass.getDeclaredField(name);
+			field.setAccessible(true);
+			return field.get(null);
+		}
+	}
+
+	// 类 -> 该类及其父类的静态 final 字段中保存的本项目对象
+	private static final Map<Class<?>, Map<Object, StaticRef>> staticsByClass = new ConcurrentHashMap<>();
+
+	private static StaticRef findStatic(Object obj) {
+		Class<?> cls = obj.getClass();
+		if (cls.getName().startsWith("org.siphon.visualbasic.") == false || cls.isEnum()) {
+			return null;
+		}
+		return staticsByClass.computeIfAbsent(cls, CompiledProgramCache::collectStatics).get(obj);
+	}
+
+	private static Map<Object, StaticRef> collectStatics(Class<?> cls) {
+		Map<Object, StaticRef> result = new IdentityHashMap<>();
+		for (Class<?> c = cls; c != null && c.getName().startsWith("org.siphon.visualbasic."); c = c.getSuperclass()) {
+			for (Field field : c.getDeclaredFields()) {
+				int modifiers = field.getModifiers();
+				if (Modifier.isStatic(modifiers) && Modifier.isFinal(modifiers) && field.getType().isPrimitive() == false) {
+					try {
+						field.setAccessible(true);
+						Object value = field.get(null);
+						if (value != null && cls.isInstance(value) && result.containsKey(value) == false) {
+							result.put(value, new StaticRef(c, field.getName()));
+						}
+					} catch (ReflectiveOperationException | RuntimeException e) {
+						// 无法访问的字段忽略
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	private static class CacheOutputStream extends ObjectOutputStream {
+
+		private final Map<Object, String> boundNames = new IdentityHashMap<>();
+
+		CacheOutputStream(OutputStream out, Map<String, VbValue> boundObjects) throws IOException {
+			super(out);
+			enableReplaceObject(true);
+			for (Map.Entry<String, VbValue> entry : boundObjects.entrySet()) {
+				boundNames.put(entry.getValue(), entry.getKey());
+			}
+		}
+
+		@Override
+		protected Object replaceObject(Object obj) throws IOException {
+			if (obj instanceof Method) {
+				Method method = (Method) obj;
+				return new MemberRef(method.getDeclaringClass(), method.getName(), method.getParameterTypes(), false);
+			} else if (obj instanceof Constructor) {
+				Constructor<?> constructor = (Constructor<?>) obj;
+				return new MemberRef(constructor.getDeclaringClass(), null, constructor.getParameterTypes(), false);
+			} else if (obj instanceof Field) {
+				Field field = (Field) obj;
+				return new MemberRef(field.getDeclaringClass(), field.getName(), null, true);
+			}
+			String bound = boundNames.get(obj);
+			if (bound != null) {
+				return new BoundRef(bound);
+			}
+			StaticRef ref = findStatic(obj);
+			return ref != null ? ref : obj;
+		}
+	}
+
+	private static class CacheInputStream extends ObjectInputStream {
+
+		private final Map<String, VbValue> bindings;
+
+		CacheInputStream(InputStream in, Map<String, VbValue> bindings) throws IOException {
+			super(in);
+			this.bindings = bindings;
+			enableResolveObject(true);
+		}
+
+		@Override
+		protected Object resolveObject(Object obj) throws IOException {
+			try {
+				if (obj instanceof MemberRef) {
+					return ((MemberRef) obj).resolve();
+				} else if (obj instanceof StaticRef) {
+					return ((StaticRef) obj).resolve();
+				} else if (obj instanceof BoundRef) {
+					VbValue value = bindings.get(((BoundRef) obj).name);
+					if (value == null) {
+						throw new InvalidObjectException("unbound object " + ((BoundRef) obj).name);
+					}
+					return value;
+				}
+			} catch (ReflectiveOperationException e) {
+				throw new InvalidObjectException(e.toString());
+			}
+			return obj;
+		}
+	}
+}
@@ -24,12 +24,13 @@ package org.siphon.visualbasic;
 import org.siphon.visualbasic.runtime.VbValue;
 import org.siphon.visualbasic.runtime.VbVarType;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
-public class ControlDef {
+public class ControlDef implements Serializable {
 	private VbVarType type;
 
 	public VbVarType getType() {
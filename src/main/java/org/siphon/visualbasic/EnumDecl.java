@@ -65,7 +65,7 @@ public class EnumDecl extends VbTypeDecl {
 		enumDecl.visibility = Visibility.PUBLIC;
 		for(Field fld : clazz.getFields()){
 			int m = fld.getModifiers();
-			if(Modifier.isStatic(m) && Modifier.isFinal(m) && Modifier.isPublic(m) && Number.class.isAssignableFrom(fld.getType())){
+			if(Modifier.isStatic(m) && Modifier.isFinal(m) && Modifier.isPublic(m) && (Number.class.isAssignableFrom(fld.getType()) || fld.getType() == int.class || fld.getType() == long.class)){
 				ConstDecl constDecl;
 				try {
 					constDecl = new ConstDecl(lib, null, new VbValue(VbVarType.VbLong, fld.getLong(null)));
@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Inshua<inshua@gmail.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.siphon.visualbasic;
+
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.siphon.visualbasic.compile.Compiler;
+import org.siphon.visualbasic.compile.VbErrorsException;
+import org.siphon.visualbasic.runtime.VbRuntimeException;
+import org.siphon.visualbasic.runtime.VbValue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 在运行中的 Interpreter 里热替换 vbp 工程的代码。
+ * <p>
+ * 修改源文件后调用 {@link #reload}：只重新解析改动过的文件，其余文件沿用上次的语法树；
+ * 工程库的声明和全部过程体按新的 NameIndex 重新编译，依赖改动模块的过程随之重新解析引用，
+ * VBA、VB 等框架库沿用已加载的实例。编译通过后以 {@link Interpreter#reloadLibrary} 换入，
+ * 兼容的模块级变量保留原值；编译失败时抛出 VbErrorsException，解释器继续执行原来的代码。
+ */
+public class HotReloader {
+
+	private final Interpreter interpreter;
+
+	private final String vbpPath;
+
+	private final String charset;
+
+	private CompiledProgram program;
+
+	private Map<String, ParseTree> parseTrees = new HashMap<>();
+
+	/**
+	 * 编译 vbp 工程并加载到 interpreter
+	 */
+	public HotReloader(Interpreter interpreter, String vbpPath, String charset)
+			throws IOException, UnspportedActiveXReferenceException, VbErrorsException, VbRuntimeException {
+		this.interpreter = interpreter;
+		this.vbpPath = vbpPath;
+		this.charset = charset;
+
+		this.program = compile(new Project(vbpPath, charset), null);
+		interpreter.load(program);
+	}
+
+	public Interpreter getInterpreter() {
+		return interpreter;
+	}
+
+	/**
+	 * @return 当前运行的编译结果
+	 */
+	public synchronized CompiledProgram getProgram() {
+		return program;
+	}
+
+	/**
+	 * 重新编译工程并替换到解释器中。vbp 文件也会重新读取，可以增删模块
+	 * 
+	 * @param changedFiles 自上次编译以来改动过的源文件
+	 * @return 新的工程库
+	 */
+	public synchronized Library reload(Collection<File> changedFiles)
+			throws IOException, UnspportedActiveXReferenceException, VbErrorsException, VbRuntimeException {
+		for (File file : changedFiles) {
+			parseTrees.remove(file.getAbsolutePath());
+		}
+		Project project = new Project(vbpPath, charset);
+		CompiledProgram result = compile(project, program);
+		Library lib = result.getLibrary(project.getName());
+		interpreter.reloadLibrary(lib);
+		this.program = result;
+		return lib;
+	}
+
+	private CompiledProgram compile(Project project, CompiledProgram previous) throws VbErrorsException {
+		Compiler compiler;
+		if (previous == null) {
+			compiler = new Compiler();
+			for (Map.Entry<String, VbValue> entry : Interpreter.newProjectBindings().entrySet()) {
+				compiler.bindObject(entry.getKey(), entry.getValue());
+			}
+		} else {
+			compiler = new Compiler(previous, project.getName());
+		}
+		compiler.reuseParseTrees(parseTrees);
+
+		List<String> files = new ArrayList<>();
+		for (File file : project.getModuleFiles()) {
+			files.add(file.getAbsolutePath());
+		}
+		try {
+			compiler.compile(project.getName(), files.toArray(new String[files.size()]), project.getCharset());
+			return compiler.generateProgram(project);
+		} finally {
+			// 有语义错误的文件语法树仍可沿用，修正后的文件会在下次 reload 时作为改动文件重新解析
+			this.parseTrees = new HashMap<>(compiler.getParseTrees());
+		}
+	}
+
+}
@@ -29,6 +29,7 @@ import org.siphon.visualbasic.runtime.*;
 import org.siphon.visualbasic.runtime.framework.Debug;
 import org.siphon.visualbasic.runtime.framework.vb.Control;
 import org.siphon.visualbasic.runtime.framework.vb.Form;
+import org.siphon.visualbasic.runtime.statements.LoadLibraryStatement;
 import org.siphon.visualbasic.runtime.statements.NamedArgumentStatement;
 import org.siphon.visualbasic.runtime.statements.ShowFormStatement;
 
@@ -36,23 +37,101 @@ import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 //import com.sun.corba.se.impl.naming.pcosnaming.NameServer;
 
+/**
+ * VB 解释器。
+ * <p>
+ * 调用栈和调试动作放在每个线程各自的 {@link ExecutionContext} 中，因此 {@link #callMethod} 可以被多个线程同时调用。
+ * 模块须在并发调用之前加载完毕；加载后 RuntimeLibrary 中的模块实例、模块级变量和 Static 变量由所有线程共享，
+ * 解释器不为其加锁。对标量变量赋值只是替换一个不可变的 VbValue 引用，不会读到半写的值，
+ * 但数组元素、对象属性等共享的可变数据需要由调用方自行协调。
+ * <p>
+ * 已加载的库可以用 {@link #reloadLibrary} 整体替换，见 {@link HotReloader}。
+ */
 public class Interpreter {
 
-	private Map<String, RuntimeLibrary> runtimeLibs = new HashMap<>();
+	// 由所有调用帧共享，热替换库时可能与其它线程的查找同时发生
+	private Map<String, RuntimeLibrary> runtimeLibs = new ConcurrentHashMap<>();
 
-	Stack<CallFrame> callFrames = new Stack<>();
+	private final ThreadLocal<ExecutionContext> contexts = ThreadLocal.withInitial(this::newExecutionContext);
+
+	// 所有线程的执行状态，供采样分析器等从其它线程读取调用栈；线程结束后随之回收
+	private final Set<ExecutionContext> liveContexts = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
 
 	private Debugger debugger = new Debugger(this);
 
-	private DebuggerAction debuggerAction = DebuggerAction.NONE;
+	private static final ExecutionListener[] NO_LISTENERS = new ExecutionListener[0];
+
+	private volatile ExecutionListener[] listeners = NO_LISTENERS;
+
+	private ExecutionEngine executionEngine = ExecutionEngine.TREE_WALKING;
+
+	public static final int DEFAULT_COMPILE_THRESHOLD = 1000;
+
+	private int compileThreshold = DEFAULT_COMPILE_THRESHOLD;
+
+	private CompiledProgramCache programCache;
+
+	/**
+	 * 当前线程的执行状态
+	 */
+	public ExecutionContext getExecutionContext() {
+		return contexts.get();
+	}
+
+	private ExecutionContext newExecutionContext() {
+		ExecutionContext context = new ExecutionContext();
+		liveContexts.add(context);
+		return context;
+	}
 
-	private CallFrame debuggerFrame;
+	/**
+	 * 所有曾在本解释器上执行过的、仍存活线程的执行状态
+	 */
+	public List<ExecutionContext> getExecutionContexts() {
+		synchronized (liveContexts) {
+			return new ArrayList<>(liveContexts);
+		}
+	}
 
 	public List<CallFrame> getCallFrames() {
-		return callFrames.subList(0, callFrames.size());
+		return getExecutionContext().getCallFrames();
+	}
+
+	public ExecutionEngine getExecutionEngine() {
+		return executionEngine;
+	}
+
+	public Interpreter setExecutionEngine(ExecutionEngine executionEngine) {
+		this.executionEngine = executionEngine;
+		return this;
+	}
+
+	public int getCompileThreshold() {
+		return compileThreshold;
+	}
+
+	/**
+	 * 过程被调用多少次后尝试编译为 CompiledMethod，小于 0 时不编译
+	 */
+	public Interpreter setCompileThreshold(int compileThreshold) {
+		this.compileThreshold = compileThreshold;
+		return this;
+	}
+
+	public CompiledProgramCache getProgramCache() {
+		return programCache;
+	}
+
+	/**
+	 * 设置后 {@link #loadVbProject}、{@link #executeVbProject(String, String)} 优先使用缓存的编译结果
+	 */
+	public Interpreter setProgramCache(CompiledProgramCache programCache) {
+		this.programCache = programCache;
+		return this;
 	}
 
 	public Debugger getDebugger() {
@@ -63,6 +142,29 @@ public class Interpreter {
 		this.debugger = debugger;
 	}
 
+	/**
+	 * 安装执行事件监听器。之后进入的过程改用带事件的执行循环，并且不再走编译执行；
+	 * 已在执行中的过程不受影响，除非在其执行线程上调用 {@link ExecutionContext#requestInstrumentation()}
+	 */
+	public synchronized void addExecutionListener(ExecutionListener listener) {
+		for (ExecutionListener l : listeners) {
+			if (l == listener) return;
+		}
+		ExecutionListener[] result = Arrays.copyOf(listeners, listeners.length + 1);
+		result[listeners.length] = listener;
+		listeners = result;
+	}
+
+	/**
+	 * 移除执行事件监听器。全部移除后新进入的过程恢复为不带事件的执行循环
+	 */
+	public synchronized void removeExecutionListener(ExecutionListener listener) {
+		List<ExecutionListener> result = new ArrayList<>(Arrays.asList(listeners));
+		if (result.remove(listener)) {
+			listeners = result.isEmpty() ? NO_LISTENERS : result.toArray(NO_LISTENERS);
+		}
+	}
+
 	public Interpreter load(List<Statement> statements) throws VbRuntimeException {
 		CallFrame callFrame = new CallFrame(runtimeLibs, null, null);
 		for (Statement statement : statements) {
@@ -71,6 +173,73 @@ public class Interpreter {
 		return this;
 	}
 
+	/**
+	 * 加载编译结果，建立一份新的模块实例和模块级变量
+	 */
+	public Interpreter load(CompiledProgram program) throws VbRuntimeException {
+		return load(program.generateStatements());
+	}
+
+	/**
+	 * 以重新编译的 lib 替换已加载的同名库：为其建立新的模块实例，再换入解释器，之后的调用执行新代码。
+	 * <p>
+	 * 旧库中的模块级变量和 Static 变量，若新库的同一模块（同一过程）中有同名且类型相同的声明，则沿用其值；
+	 * 类型为本库中的类、UDT 的变量不沿用，重新初始化。窗体也重新初始化。
+	 * 已在执行中的过程、已创建的对象仍执行旧代码，旧代码此后对模块级变量的修改对新代码不可见。
+	 * lib 须与其余已加载的库一同编译，见 {@link Compiler#Compiler(CompiledProgram, String)}
+	 */
+	public synchronized Interpreter reloadLibrary(Library lib) throws VbRuntimeException {
+		String name = lib.name.toUpperCase();
+		Map<String, RuntimeLibrary> libs = new HashMap<>(runtimeLibs);
+		new LoadLibraryStatement(lib).eval(this, new CallFrame(libs, null, null));
+		RuntimeLibrary fresh = libs.get(name);
+
+		RuntimeLibrary old = runtimeLibs.get(name);
+		if (old != null) {
+			for (Map.Entry<String, ModuleInstance> entry : fresh.modules.entrySet()) {
+				ModuleInstance oldModule = old.modules.get(entry.getKey());
+				if (oldModule != null) {
+					migrateVariables(old.getLibrary(), oldModule.variables, entry.getValue().variables);
+				}
+			}
+		}
+		runtimeLibs.put(name, fresh);
+		return this;
+	}
+
+	private static void migrateVariables(Library oldLib, Map<VarDecl, VbVariable> from, Map<VarDecl, VbVariable> to) {
+		Map<String, VbVariable> byName = new HashMap<>();
+		for (VbVariable variable : from.values()) {
+			byName.put(variableKey(variable.varDecl), variable);
+		}
+		for (Map.Entry<VarDecl, VbVariable> entry : to.entrySet()) {
+			VbVariable old = byName.get(variableKey(entry.getKey()));
+			VbVariable variable = entry.getValue();
+			if (old != null && isPortable(old.varDecl.varType, oldLib)
+					&& old.varDecl.varType.toString().equals(entry.getKey().varType.toString())) {
+				variable.value = old.value;
+			}
+		}
+	}
+
+	// Static 变量以所在过程区分，Property Get/Let/Set 同名，须连同过程类型
+	private static String variableKey(VarDecl varDecl) {
+		String name = varDecl.upperCaseName();
+		if (varDecl.methodDecl != null) {
+			name = varDecl.methodDecl.methodType + " " + varDecl.methodDecl.upperCaseName() + "." + name;
+		}
+		return name;
+	}
+
+	// 旧库中的类型声明不会与新库中的相等，取值后新代码无法使用；枚举只是 Long
+	private static boolean isPortable(VbVarType varType, Library oldLib) {
+		if (varType.vbType == VbVarType.vbArray) {
+			return isPortable(varType.arrayDef.baseType, oldLib);
+		}
+		return varType.typeDecl == null || varType.typeDecl instanceof EnumDecl
+				|| varType.typeDecl.getLibrary() != oldLib;
+	}
+
 	public Object invoke(String library, String module, String methodName, Object... arguments)
 			throws ArgumentException, VbRuntimeException {
 		library = library.toUpperCase();
@@ -114,29 +283,22 @@ public class Interpreter {
 	 * @throws ArgumentException
 	 * @throws VbRuntimeException
 	 */
-	public synchronized VbValue callMethod(ModuleInstance runtimeModule, MethodDecl method, Object... arguments)
+	public VbValue callMethod(ModuleInstance runtimeModule, MethodDecl method, Object... arguments)
 			throws ArgumentException, VbRuntimeException {
 		assert runtimeModule != null;
 		if (method instanceof JavaMethod) {
 			JavaMethod javaMethod = (JavaMethod) method;
 			try {
+				Object instance = null;
 				if (runtimeModule instanceof JavaModuleInstance) {
-					Object obj = ((JavaModuleInstance) runtimeModule).getInstance();
-					Object result = javaMethod.javaMethod.invoke(obj,
-							toJavaArguments(arguments, javaMethod, javaMethod.javaMethod.getParameterTypes(), this.getCurrentFrame()));
-					return VbValue.fromJava(result, method.returnType);
+					instance = ((JavaModuleInstance) runtimeModule).getInstance();
 				} else if(runtimeModule.getModuleDecl() instanceof FormModuleDecl) {
 					VbDecl decl = (VbDecl) runtimeModule.getMember("FORM");
 					VbVariable var = runtimeModule.variables.get(decl);
-					JavaModuleInstance inst = (JavaModuleInstance) var.value.value;
-					Object result = javaMethod.javaMethod.invoke(inst.getInstance(),
-							toJavaArguments(arguments, javaMethod, javaMethod.javaMethod.getParameterTypes(), this.getCurrentFrame()));
-					return VbValue.fromJava(result, method.returnType);
-				} else {
-					Object result = javaMethod.javaMethod.invoke(null,
-							toJavaArguments(arguments, javaMethod, javaMethod.javaMethod.getParameterTypes(), this.getCurrentFrame()));
-					return VbValue.fromJava(result, method.returnType);
+					instance = ((JavaModuleInstance) var.value.value).getInstance();
 				}
+				Object result = javaMethod.invoke(instance, toJavaArguments(arguments, javaMethod, this.getCurrentFrame()));
+				return VbValue.fromJava(result, method.returnType);
 			} catch (IllegalAccessException | IllegalArgumentException e) {
 				e.printStackTrace();
 				throw new VbRuntimeException(VbRuntimeException.无效的过程调用, e);
@@ -150,137 +312,118 @@ public class Interpreter {
 			}
 		} else {
 			CallFrame frame = new CallFrame(runtimeLibs, runtimeModule, method);
-			Map<VarDecl, VbVariable> args = bindArguments(method, arguments);
+			bindArguments(method, arguments, frame.local);
 			if (method.methodType == MethodType.Function || method.methodType == MethodType.PropertyGet
 					|| method.methodType == MethodType.Rule) {
-				frame.local.put(method.result, method.result.createVar());
+				frame.local[method.result.slot] = method.result.createVar();
 			}
-			frame.local.putAll(args);
 			return eval(frame);
 		}
 	}
 
-	private Object[] toJavaArguments(Object[] arguments, JavaMethod method, Class<?>[] paramTypes, CallFrame callFrame) throws ArgumentException { // TODO 检查能否转换
-		Map<VarDecl, VbVariable> args = bindArguments(method, arguments);
-		
-		Object[] result = new Object[paramTypes.length];
+	// 与 bindArguments 规则相同，但直接产出 Java 方法的实参数组，不为每个参数创建 VbVariable
+	private Object[] toJavaArguments(Object[] arguments, JavaMethod method, CallFrame callFrame) throws ArgumentException { // TODO 检查能否转换
+		Object[] result = new Object[method.javaMethod.getParameterCount()];
 		int offset = 0;
 		if(method.isWithInterpreter()){
 			result[0] = this;
 			result[1] = callFrame;
 			offset = 2;
 		}
-		for (int i = 0; i < method.arguments.size(); i++) {
-			Class<?> paramType = paramTypes[i];
-			ArgumentDecl argDecl = method.arguments.get(i);
-			VbValue argCall = args.get(argDecl).value;
-
-			if (paramType == VbValue.class) {
-				result[i + offset] = argCall;
+		int i = 0;
+		int argIndex = 0;
+		for (ArgumentDecl argDef : method.arguments) {
+			Object arg = null;
+			if (i < arguments.length) {
+				arg = arguments[i++];
+			}
+			VbValue value;
+			if (argDef.isParamArray) {
+				value = toParamArray(arg, arguments, i);
+				i = arguments.length;
+			} else if (arg instanceof VbVariable && isByRefMatch(argDef, (VbVariable) arg)) {
+				value = ((VbVariable) arg).value;
 			} else {
-				result[i + offset] = VbValue.vbValueToJava(argCall);
+				value = bindArgument(argDef, arg instanceof VbVariable ? ((VbVariable) arg).value : arg, i);
 			}
-		}		
+			result[argIndex + offset] = method.toJavaArgument(argIndex, value);
+			argIndex++;
+		}
 		return result;
 	}
 
 	private VbValue eval(CallFrame frame) throws VbRuntimeException {
-		callFrames.push(frame);
+		ExecutionContext context = getExecutionContext();
+		context.push(frame);
 
+		// 进入时的监听器快照，退出时只通知收到过 onCallEnter 的监听器，中途安装的不会收到不成对的 onCallExit
+		ExecutionListener[] entered = listeners;
+		int notified = 0;
 		MethodDecl method = frame.method;
-		if (method.methodType == MethodType.Rule) {
-			RuleDecl rule = (RuleDecl) method;
-			try {
-				method = rule.findMatchMethod(this, frame);
-			} catch (VbRuntimeException e) {
-				SourceLocation s = e.getSourceLocation();
-				if (s == SourceLocation.ByInterpreter || s == null) {
-					s = rule.getLastTestEntrance().getSourceLocation();
-				}
-				if (e.hasVbStackTrace() == false)
-					e.setVbStackTrace(toStackTrace(callFrames));
-				frame.error.wrap(e, frame, s);
-				frame.error.setHandled(false);
-			}
-			if (method == null && frame.error.hasError() == false) {
-				callFrames.pop();
-				throw new VbRuntimeException(VbRuntimeException.无匹配规则); // TODO 错误处理较为复杂
-			}
-			frame.method = method;
-		}
-
-		if (frame.error.hasError() == false) {
-			while (frame.nextStatement < method.statements.size()) {
-				frame.statementIndex = frame.nextStatement;
-				Statement statement = method.statements.get(frame.statementIndex);
-				frame.nextStatement++;
-				switch (debuggerAction) {
-				case STEP_INTO:
-					debuggerAction = DebuggerAction.NONE;
-					if (debugger != null)
-						debugger.stop();
-					break;
-				case STEP_OVER:
-					if (frame == debuggerFrame) {
-						debuggerAction = DebuggerAction.NONE;
-						if (debugger != null)
-							debugger.stop();
-					}
-					break;
-				default:
-					break;
-				}
-
+		// 监听器或编译形式抛出任何异常都要弹出本帧，否则线程上的 ExecutionContext 会残留过期的帧
+		try {
+			if (method.methodType == MethodType.Rule) {
+				RuleDecl rule = (RuleDecl) method;
 				try {
-					try { 
-						statement.eval(this, frame);
-					} catch(VbRuntimeException e) {
-						throw e;
-					} catch(Exception e) {
-						throw new VbRuntimeException(VbRuntimeException.对象不支持此属性或方法, e);
-					}
+					method = rule.findMatchMethod(this, frame);
 				} catch (VbRuntimeException e) {
 					SourceLocation s = e.getSourceLocation();
 					if (s == SourceLocation.ByInterpreter || s == null) {
-						s = statement.getSourceLocation();
+						s = rule.getLastTestEntrance().getSourceLocation();
 					}
 					if (e.hasVbStackTrace() == false)
-						e.setVbStackTrace(toStackTrace(callFrames));
+						e.setVbStackTrace(toStackTrace(context));
 					frame.error.wrap(e, frame, s);
 					frame.error.setHandled(false);
-				} 
-
-				if (frame.error.hasError()) {
-					if (frame.errorHandler != null) {
-						frame.error.setHandled(true);
-						try {
-							frame.errorHandler.eval(this, frame);
-						} catch (VbRuntimeException e1) {
-							// 错误处理程序仅仅跳转运行语句，不会出错
+				}
+				if (method == null && frame.error.hasError() == false) {
+					throw new VbRuntimeException(VbRuntimeException.无匹配规则); // TODO 错误处理较为复杂
+				}
+				frame.method = method;
+			}
+
+			boolean instrumented = entered.length > 0;
+			for (ExecutionListener listener : entered) {
+				listener.onCallEnter(this, frame);
+				notified++;
+			}
+
+			if (frame.error.hasError() == false) {
+				CompiledMethod compiled = instrumented ? null : method.getCompiledMethod(compileThreshold);
+				if (compiled != null && runCompiledMethod(context, frame, compiled)) {
+					// 已由编译形式执行完毕
+				} else {
+					// 执行中被要求切换到带事件的循环时，从中断处继续
+					do {
+						if (executionEngine == ExecutionEngine.LINEAR) {
+							if (instrumented) {
+								runLinearCodeInstrumented(context, frame, method.getLinearCode());
+							} else {
+								runLinearCode(context, frame, method.getLinearCode());
+							}
+						} else {
+							if (instrumented) {
+								runStatementsInstrumented(context, frame, method.statements);
+							} else {
+								runStatements(context, frame, method.statements);
+							}
 						}
-					} else {
-						break; // break loop
-					}
+						instrumented = true;
+					} while (frame.resumeInstrumented());
 				}
 			}
-		}
+		} finally {
+			context.pop();
 
-		callFrames.pop();
+			for (int i = 0; i < notified; i++) {
+				entered[i].onCallExit(this, frame);
+			}
+		}
 
 		if (frame.error.hasError()) {
 			throw frame.error.getException();
 		}
 
-		switch (debuggerAction) {
-		case STEP_RETURN:
-			debuggerAction = DebuggerAction.NONE;
-			if (debugger != null)
-				debugger.stop();
-			break;
-		default:
-			break;
-		}
-
 		if (method.methodType == MethodType.Function || method.methodType == MethodType.PropertyGet) {
 			return frame.getFunctionResult();
 		} else {
@@ -288,7 +431,186 @@ public class Interpreter {
 		}
 	}
 
-	private StackTraceElement[] toStackTrace(Stack<CallFrame> callFrames) {
+	private void runStatements(ExecutionContext context, CallFrame frame, List<Statement> statements) {
+		while (frame.nextStatement < statements.size()) {
+			frame.statementIndex = frame.nextStatement;
+			Statement statement = statements.get(frame.statementIndex);
+			frame.nextStatement++;
+
+			try {
+				evalStatement(frame, statement);
+			} catch (VbRuntimeException e) {
+				if (handleStatementError(context, frame, statement, e) == false) {
+					break;
+				}
+			}
+		}
+	}
+
+	// 与 runStatements 相同，但每条语句都通知监听器
+	private void runStatementsInstrumented(ExecutionContext context, CallFrame frame, List<Statement> statements) {
+		while (frame.nextStatement < statements.size()) {
+			int pc = frame.statementIndex = frame.nextStatement;
+			Statement statement = statements.get(pc);
+			frame.nextStatement++;
+			fireStatement(frame, statement);
+
+			try {
+				evalStatement(frame, statement);
+			} catch (VbRuntimeException e) {
+				fireError(frame, statement, e);
+				if (handleStatementError(context, frame, statement, e) == false) {
+					break;
+				}
+			}
+			if (frame.nextStatement <= pc) {
+				fireBackEdge(frame, statement);
+			}
+		}
+	}
+
+	private void runLinearCode(ExecutionContext context, CallFrame frame, LinearCode code) {
+		final Statement[] statements = code.statements;
+		final int end = statements.length;
+		while (frame.nextStatement < end) {
+			int pc = frame.statementIndex = frame.nextStatement;
+			frame.nextStatement = pc + 1;
+
+			Statement statement = statements[pc];
+			try {
+				evalLinear(frame, code, pc, statement);
+			} catch (VbRuntimeException e) {
+				if (handleStatementError(context, frame, statement, e) == false) {
+					break;
+				}
+			}
+		}
+	}
+
+	// 与 runLinearCode 相同，但每条语句都通知监听器
+	private void runLinearCodeInstrumented(ExecutionContext context, CallFrame frame, LinearCode code) {
+		final Statement[] statements = code.statements;
+		final int end = statements.length;
+		while (frame.nextStatement < end) {
+			int pc = frame.statementIndex = frame.nextStatement;
+			frame.nextStatement = pc + 1;
+
+			Statement statement = statements[pc];
+			fireStatement(frame, statement);
+			try {
+				evalLinear(frame, code, pc, statement);
+			} catch (VbRuntimeException e) {
+				fireError(frame, statement, e);
+				if (handleStatementError(context, frame, statement, e) == false) {
+					break;
+				}
+			}
+			if (frame.nextStatement <= pc) {
+				fireBackEdge(frame, statement);
+			}
+		}
+	}
+
+	private void evalStatement(CallFrame frame, Statement statement) throws VbRuntimeException {
+		try { 
+			statement.eval(this, frame);
+		} catch(VbRuntimeException e) {
+			throw e;
+		} catch(Exception e) {
+			throw new VbRuntimeException(VbRuntimeException.对象不支持此属性或方法, e);
+		}
+	}
+
+	// 执行线性代码的第 pc 条指令
+	private void evalLinear(CallFrame frame, LinearCode code, int pc, Statement statement) throws VbRuntimeException {
+		try {
+			switch (code.opcodes[pc]) {
+			case LinearCode.GOTO:
+				frame.nextStatement = code.targets[pc];
+				break;
+			case LinearCode.IF_NOT_GOTO:
+				if (isTrueCondition(code.conditions[pc].eval(this, frame), statement) == false) {
+					frame.nextStatement = code.targets[pc];
+				}
+				break;
+			case LinearCode.EXIT:
+				frame.nextStatement = code.statements.length;
+				break;
+			default:
+				statement.eval(this, frame);
+			}
+		} catch(VbRuntimeException e) {
+			throw e;
+		} catch(Exception e) {
+			throw new VbRuntimeException(VbRuntimeException.对象不支持此属性或方法, e);
+		}
+	}
+
+	private void fireStatement(CallFrame frame, Statement statement) {
+		for (ExecutionListener listener : listeners) {
+			listener.onStatement(this, frame, statement);
+		}
+	}
+
+	private void fireError(CallFrame frame, Statement statement, VbRuntimeException e) {
+		for (ExecutionListener listener : listeners) {
+			listener.onError(this, frame, statement, e);
+		}
+	}
+
+	private void fireBackEdge(CallFrame frame, Statement statement) {
+		for (ExecutionListener listener : listeners) {
+			listener.onBackEdge(this, frame, statement);
+		}
+	}
+
+	private boolean runCompiledMethod(ExecutionContext context, CallFrame frame, CompiledMethod compiled) {
+		try {
+			return compiled.run(frame);
+		} catch (VbRuntimeException e) {
+			// 编译形式不含 On Error，错误直接结束过程
+			handleStatementError(context, frame, frame.getCurrentStatement(), e);
+			return true;
+		}
+	}
+
+	// 与 IfNotGotoStatement 一致的条件判断
+	private boolean isTrueCondition(VbValue value, Statement statement) throws VbRuntimeException {
+		try {
+			return VbValue.isTrue(value);
+		} catch (ClassCastException e) {
+			throw new VbRuntimeException(VbRuntimeException.类型不匹配, statement.getSourceLocation());
+		} catch (NullValueException e) {
+			throw new VbRuntimeException(VbRuntimeException.Null的使用无效, statement.getSourceLocation());
+		}
+	}
+
+	// 记录错误并转入错误处理程序，无错误处理程序时返回 false，由调用方结束过程
+	private boolean handleStatementError(ExecutionContext context, CallFrame frame, Statement statement, VbRuntimeException e) {
+		SourceLocation s = e.getSourceLocation();
+		if (s == SourceLocation.ByInterpreter || s == null) {
+			s = statement.getSourceLocation();
+		}
+		if (e.hasVbStackTrace() == false)
+			e.setVbStackTrace(toStackTrace(context));
+		frame.error.wrap(e, frame, s);
+		frame.error.setHandled(false);
+
+		if (frame.errorHandler != null) {
+			frame.error.setHandled(true);
+			try {
+				frame.errorHandler.eval(this, frame);
+			} catch (VbRuntimeException e1) {
+				// 错误处理程序仅仅跳转运行语句，不会出错
+			}
+			return true;
+		} else {
+			return false;
+		}
+	}
+
+	private StackTraceElement[] toStackTrace(ExecutionContext context) {
+		List<CallFrame> callFrames = context.getCallFrames();
 		List<StackTraceElement> result = new ArrayList<>();
 		for (int i = callFrames.size() - 1; i >= 0; i--) {
 			CallFrame frame = callFrames.get(i);
@@ -301,10 +623,10 @@ public class Interpreter {
 		return (StackTraceElement[]) result.toArray(new StackTraceElement[result.size()]);
 	}
 
-	private Map<VarDecl, VbVariable> bindArguments(MethodDecl methodDef, Object[] arguments) throws ArgumentException {
-		Map<VarDecl, VbVariable> result = new HashMap<>();
-
+	// 参数依次写入 result 的 0..n-1 号位置，与编译器为参数分配的槽位一致
+	private void bindArguments(MethodDecl methodDef, Object[] arguments, VbVariable[] result) throws ArgumentException {
 		int i = 0;
+		int argIndex = 0;
 		for (ArgumentDecl argDef : methodDef.arguments) {
 			Object arg = null;
 			if (i < arguments.length) {
@@ -312,70 +634,82 @@ public class Interpreter {
 			}
 			VbValue value = null;
 			if (argDef.isParamArray) {
-				// TODO if arg == null, throw not optional
-				List<VbValue> ls = new ArrayList<>();
-				if (arg != null) {
-					try {
-						ls.add(VbValue.cast(VbValue.fromJava(arg), VbVarType.vbVariant)); // ParamArray 只能是 Variant 数组
-					} catch (OverflowException e1) {
-					}
-					for (; i < arguments.length; i++) {
-						try {
-							ls.add(VbValue.cast(VbValue.fromJava(arguments[i]), VbVarType.vbVariant)); // ParamArray 只能是 Variant 数组
-						} catch (OverflowException e) {
-						}
-					}
-					ArrayDef paramArrayDef = new ArrayDef(VbVarType.VbVariant,
-							new ArrayDef.Rank[] { new ArrayDef.Rank(0, ls.size() - 1) });
-					VbVarType arrType = new VbVarType(VbVarType.vbArray, null, paramArrayDef, null);
-					VbArray arr = new VbArray(arrType);
-					for (int j = 0; j < ls.size(); j++) {
-						try {
-							arr.set(new Integer[] { j }, ls.get(j), null);
-						} catch (VbRuntimeException e) {
-						}
-					}
-					value = arr;
-				} else {
-					value = VbValue.Missing.clone();
-				}
+				value = toParamArray(arg, arguments, i);
+				i = arguments.length;
 			} else {
-				if (arg == null) {
-					if (argDef.optional) {
-						value = argDef.defaultValue.clone();
-					} else {
-						throw new ArgumentException(i, new VbRuntimeException(VbRuntimeException.参数的个数错误或无效的属性设置));
-					}
-				} else {
-					if (arg instanceof VbValue) {
-						value = (VbValue) arg;
-						if (Compiler.isArgTypeMatch(argDef.varType, value.varType, true)) {
-							if (argDef.mode == ArgumentMode.ByRef) {
-								// value = arg
-							} else {
-								value = value.clone();
-							}
-						} else {
-							try {
-								value = VbValue.cast((VbValue) arg, argDef.varType.vbType);
-							} catch (OverflowException | ClassCastException | DivByZeroException e) {
-								throw new ArgumentException(i, e);
-							}
-						}
-					} else {
-						try {
-							value = VbValue.fromJava(argDef.varType.vbType, arg);
-						} catch (OverflowException | ClassCastException | DivByZeroException e) {
-							throw new ArgumentException(i, e);
-						}
+				if (arg instanceof VbVariable) {	// ByRef 实参，类型一致时形参直接使用实参变量
+					VbVariable ref = (VbVariable) arg;
+					if (isByRefMatch(argDef, ref)) {
+						result[argIndex++] = ref;
+						continue;
 					}
+					arg = ref.value;
 				}
+				value = bindArgument(argDef, arg, i);
 			}
-			VbVariable varibale = new VbVariable(argDef, value);
-			result.put(argDef, varibale);
+			result[argIndex++] = new VbVariable(argDef, value);
 		}
+	}
 
-		return result;
+	private static boolean isByRefMatch(ArgumentDecl argDef, VbVariable ref) {
+		return argDef.mode == ArgumentMode.ByRef && Compiler.isArgTypeMatch(argDef.varType, ref.value.varType, true);
+	}
+
+	// 把第一个实参 first 及 arguments[from..] 收集为 ParamArray 的 Variant 数组
+	private static VbValue toParamArray(Object first, Object[] arguments, int from) {
+		// TODO if arg == null, throw not optional
+		if (first == null) {
+			return VbValue.Missing.clone();
+		}
+		List<VbValue> ls = new ArrayList<>();
+		try {
+			ls.add(VbValue.cast(VbValue.fromJava(first), VbVarType.vbVariant)); // ParamArray 只能是 Variant 数组
+		} catch (OverflowException e1) {
+		}
+		for (int i = from; i < arguments.length; i++) {
+			try {
+				ls.add(VbValue.cast(VbValue.fromJava(arguments[i]), VbVarType.vbVariant)); // ParamArray 只能是 Variant 数组
+			} catch (OverflowException e) {
+			}
+		}
+		ArrayDef paramArrayDef = new ArrayDef(VbVarType.VbVariant,
+				new ArrayDef.Rank[] { new ArrayDef.Rank(0, ls.size() - 1) });
+		VbVarType arrType = new VbVarType(VbVarType.vbArray, null, paramArrayDef, null);
+		VbArray arr = new VbArray(arrType);
+		for (int j = 0; j < ls.size(); j++) {
+			try {
+				arr.set(new Integer[] { j }, ls.get(j), null);
+			} catch (VbRuntimeException e) {
+			}
+		}
+		return arr;
+	}
+
+	// 按形参类型求出传值参数的值，index 为出错时报告的参数序号
+	private static VbValue bindArgument(ArgumentDecl argDef, Object arg, int index) throws ArgumentException {
+		if (arg == null) {
+			if (argDef.optional) {
+				return argDef.defaultValue.clone();
+			} else {
+				throw new ArgumentException(index, new VbRuntimeException(VbRuntimeException.参数的个数错误或无效的属性设置));
+			}
+		}
+		if (arg instanceof VbValue) {
+			VbValue value = (VbValue) arg;
+			if (Compiler.isArgTypeMatch(argDef.varType, value.varType, true)) {
+				return value.clone();
+			}
+			try {
+				return VbValue.cast(value, argDef.varType.vbType);
+			} catch (OverflowException | ClassCastException | DivByZeroException e) {
+				throw new ArgumentException(index, e);
+			}
+		}
+		try {
+			return VbValue.fromJava(argDef.varType.vbType, arg);
+		} catch (OverflowException | ClassCastException | DivByZeroException e) {
+			throw new ArgumentException(index, e);
+		}
 	}
 
 	public Library loadVbProject(String vbpPath, String charset)
@@ -384,9 +718,38 @@ public class Interpreter {
 		return loadVbProject(project);
 	}
 
-	Library loadVbProject(Project project) throws VbErrorsException, VbRuntimeException {
+	Library loadVbProject(Project project) throws VbErrorsException, VbRuntimeException, IOException {
+		CompiledProgram program = compile(project);
+		this.load(program);
+		return program.getLibrary(project.getName());
+	}
+
+	// 设置了编译缓存时经由缓存编译
+	private CompiledProgram compile(Project project) throws VbErrorsException, IOException {
+		CompiledProgramCache cache = this.programCache;
+		return cache != null ? cache.compile(project) : compileVbProject(project);
+	}
+
+	// 编译 vbp 工程时绑定的全局对象，每次调用都创建新的对象
+	static Map<String, VbValue> newProjectBindings() {
+		Map<String, VbValue> result = new LinkedHashMap<>();
+		result.put("DEBUG", VbValue.fromJava(new Debug()));
+		return result;
+	}
+
+	/**
+	 * 编译 vbp 工程，结果可由多个 Interpreter 分别加载
+	 */
+	public static CompiledProgram compileVbProject(String vbpPath, String charset)
+			throws IOException, UnspportedActiveXReferenceException, VbErrorsException {
+		return compileVbProject(new Project(vbpPath, charset));
+	}
+
+	static CompiledProgram compileVbProject(Project project) throws VbErrorsException {
 		Compiler compiler = new Compiler();
-		compiler.bindObject("DEBUG", VbValue.fromJava(new Debug()));
+		for (Map.Entry<String, VbValue> entry : newProjectBindings().entrySet()) {
+			compiler.bindObject(entry.getKey(), entry.getValue());
+		}
 
 		// compiler.setLibraries(new Library[] { vba });
 
@@ -400,15 +763,23 @@ public class Interpreter {
 		System.out.println(lib);
 		System.out.println("----- above ----");
 
-		this.load(compiler.generateStatements());
-
-		return lib;
+		return compiler.generateProgram(project);
 	}
 
 	public void executeVbProject(String vbpPath, String charset) throws IOException, UnspportedActiveXReferenceException, VbErrorsException,
 			NotFoundException, VbRuntimeException, ArgumentException {
-		Project project = new Project(vbpPath, charset);
-		Library lib = this.loadVbProject(vbpPath, charset);
+		executeVbProject(compile(new Project(vbpPath, charset)));
+	}
+
+	/**
+	 * 加载并运行已编译的 vbp 工程
+	 */
+	public void executeVbProject(CompiledProgram program) throws NotFoundException, VbRuntimeException, ArgumentException {
+		Project project = program.getProject();
+		if (project == null)
+			throw new IllegalArgumentException("program is not compiled from a vbp project");
+		this.load(program);
+		Library lib = program.getLibrary(project.getName());
 		if (project.getType() == ProjectType.Exe) {
 			String s = project.getStartup();
 			if ("Sub Main".equalsIgnoreCase(s)) {
@@ -521,22 +892,8 @@ public class Interpreter {
 		return value;
 	}
 
-	public void setDebuggerAction(DebuggerAction debuggerAction) {
-		this.debuggerAction = debuggerAction;
-		if (debuggerAction == DebuggerAction.STEP_RETURN) {
-			if (callFrames.size() > 1) {
-				CallFrame frame = callFrames.get(callFrames.size() - 2);
-				this.debuggerFrame = frame;
-			} else {
-				this.debuggerFrame = null;
-			}
-		} else {
-			this.debuggerFrame = callFrames.peek();
-		}
-	}
-
 	public CallFrame getCurrentFrame() {
-		return callFrames.peek();
+		return getExecutionContext().getCurrentFrame();
 	}
 
 	public void initControl(ModuleInstance thisForm, JavaModuleInstance baseForm, Control container, ControlDef controlDef) throws VbRuntimeException, ArgumentException {
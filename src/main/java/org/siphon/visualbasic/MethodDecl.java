@@ -25,6 +25,8 @@ import org.antlr.v4.runtime.ParserRuleContext;
 import org.apache.commons.lang3.StringUtils;
 import org.siphon.visualbasic.compile.CompileException;
 import org.siphon.visualbasic.runtime.ArgumentDecl;
+import org.siphon.visualbasic.runtime.CompiledMethod;
+import org.siphon.visualbasic.runtime.LinearCode;
 import org.siphon.visualbasic.runtime.Statement;
 import org.siphon.visualbasic.runtime.VbVarType;
 
@@ -43,11 +45,26 @@ public class MethodDecl extends ModuleMemberDecl {
 
 	public VbVarType returnType;
 
-	public ParserRuleContext ast;
+	public transient ParserRuleContext ast;
 
 	public MethodType methodType;
 	public VarDecl result;
 
+	// 参数占据 0..n-1 号槽位，其后为返回值和局部变量；Rule 的各分支共享同一调用帧，槽位统一由 RuleDecl 分配
+	private MethodDecl slotOwner = this;
+
+	private int slotCount;
+
+	// 多个线程可能同时降级或编译同一过程，结果等价，以最后写入者为准
+	private transient volatile LinearCode linearCode;
+
+	// 调用计数，达到编译阈值后尝试编译，不能编译的过程不再尝试。并发调用时计数可能少计，只会推迟编译
+	private transient int invocationCount;
+
+	private transient volatile CompiledMethod compiledMethod;
+
+	private transient volatile boolean notCompilable;
+
 	public MethodDecl(Library library, ModuleDecl module, MethodType methodType) {
 		super(library, module);
 		this.methodType = methodType;
@@ -90,6 +107,49 @@ public class MethodDecl extends ModuleMemberDecl {
 			this.module.addCompileException(decl.ambiguousIdentifier(), CompileException.AMBIGUOUS_IDENTIFIER, decl.ambiguousIdentifier());
 		} else {
 			this.variables.put(u, decl);
+			if (decl instanceof ConstDecl == false && decl.isStatic == false) {
+				this.allocateSlot(decl);
+			}
 		}
 	}
+
+	public void allocateSlot(VarDecl decl) {
+		decl.slot = slotOwner.slotCount++;
+	}
+
+	public int getSlotCount() {
+		return slotOwner.slotCount;
+	}
+
+	// 编译完成后 statements 不再变化，首次执行时降级
+	public LinearCode getLinearCode() {
+		LinearCode code = this.linearCode;
+		if (code == null) {
+			code = this.linearCode = LinearCode.lower(this);
+		}
+		return code;
+	}
+
+	/**
+	 * 计数一次调用，返回可用的编译形式
+	 * 
+	 * @param threshold 编译阈值，小于 0 时不编译
+	 * @return 尚未编译或不能编译时返回 null
+	 */
+	public CompiledMethod getCompiledMethod(int threshold) {
+		CompiledMethod compiled = this.compiledMethod;
+		if (compiled != null || notCompilable || threshold < 0) {
+			return compiled;
+		}
+		if (++invocationCount < threshold || slotOwner != this) {
+			return null;
+		}
+		compiled = this.compiledMethod = CompiledMethod.compile(this);
+		notCompilable = compiled == null;
+		return compiled;
+	}
+
+	public void shareSlotsWith(MethodDecl owner) {
+		this.slotOwner = owner.slotOwner;
+	}
 }
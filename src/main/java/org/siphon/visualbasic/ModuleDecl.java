@@ -31,6 +31,7 @@ import vba.VbaParser.AmbiguousIdentifierContext;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -48,7 +49,8 @@ public class ModuleDecl extends VbDecl {
 
 	public ModuleType moduleType;
 
-	public final List<CompileException> errors = new ArrayList<>();
+	// 同一模块的过程体在同一任务中编译，顺序与串行编译相同；同步以防其它模块的任务写入
+	public final List<CompileException> errors = Collections.synchronizedList(new ArrayList<>());
 
 	public void addCompileException(CompileException exception) {
 		errors.add(exception);
@@ -154,6 +156,13 @@ public class ModuleDecl extends VbDecl {
 		return compareMode;
 	}
 
+	/**
+	 * @return 是否声明了 Option Compare Text
+	 */
+	public boolean isTextCompare() {
+		return compareMode == CompareMode.Text;
+	}
+
 	public void setCompareMode(CompareMode compareMode) {
 		this.compareMode = compareMode;
 	}
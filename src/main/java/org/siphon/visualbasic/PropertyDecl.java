@@ -80,7 +80,7 @@ public class PropertyDecl extends ModuleMemberDecl {
 				if (this.returnType == null) {
 					this.name = member.name;
 					this.returnType = member.arguments.get(member.arguments.size() - 1).varType;
-					this.arguments = member.arguments.subList(0, member.arguments.size() - 1);
+					this.arguments = new ArrayList<>(member.arguments.subList(0, member.arguments.size() - 1));
 				}
 				if (this.visibility.compareTo(member.visibility) < 0)
 					this.visibility = member.visibility;
@@ -90,7 +90,7 @@ public class PropertyDecl extends ModuleMemberDecl {
 				if (this.returnType == null) {
 					this.name = member.name;
 					this.returnType = member.arguments.get(member.arguments.size() - 1).varType;
-					this.arguments = member.arguments.subList(0, member.arguments.size() - 1);
+					this.arguments = new ArrayList<>(member.arguments.subList(0, member.arguments.size() - 1));
 				}
 				if (this.visibility.compareTo(member.visibility) < 0)
 					this.visibility = member.visibility;
@@ -35,7 +35,7 @@ public class RuleDecl extends MethodDecl{
 
 	public final List<Statement> entrances = new ArrayList<>();
 	
-	public final List<ValueStmtContext> entranceAstes = new ArrayList<>();
+	public final transient List<ValueStmtContext> entranceAstes = new ArrayList<>();		// 仅编译时使用
 
 	public final List<MethodDecl> methods = new ArrayList<>();
 
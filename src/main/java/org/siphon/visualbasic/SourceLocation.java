@@ -25,8 +25,9 @@ import org.antlr.v4.runtime.ParserRuleContext;
 import org.antlr.v4.runtime.Token;
 
 import java.io.File;
+import java.io.Serializable;
 
-public class SourceLocation {
+public class SourceLocation implements Serializable {
 	
 	private static final File UnknownFile = new File("<UNKNOWN>");
 	
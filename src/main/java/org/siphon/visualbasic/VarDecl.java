@@ -42,7 +42,7 @@ public class VarDecl extends ModuleMemberDecl{
 	
 	public VbVarType varType;
 
-	public ParserRuleContext ast;
+	public transient ParserRuleContext ast;
 	
 	public boolean isImplicit;	// 隐式声明的变量
 	
@@ -52,6 +52,8 @@ public class VarDecl extends ModuleMemberDecl{
 	
 	public MethodDecl methodDecl;
 
+	public int slot = -1;		// 过程内变量(参数、返回值、Dim 变量)在调用帧中的槽位，由编译器分配
+
 	public boolean withNew;		// vb 的对象即使声明为 new， 也只是在第一次使用时才真正 new
 
 	@Override
@@ -21,7 +21,9 @@
  ******************************************************************************/
 package org.siphon.visualbasic;
 
-public class VbDecl {
+import java.io.Serializable;
+
+public class VbDecl implements Serializable {
 	public String name;
 	public Visibility visibility = Visibility.PRIVATE;
 	protected final Library library;
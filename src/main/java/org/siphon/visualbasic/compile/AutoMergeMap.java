@@ -21,9 +21,10 @@
  ******************************************************************************/
 package org.siphon.visualbasic.compile;
 
+import java.io.Serializable;
 import java.util.*;
 
-public class AutoMergeMap implements Map<String, Object> {
+public class AutoMergeMap implements Map<String, Object>, Serializable {
 
 	private final Map<String, Object> global = new HashMap<>(); 
 	
@@ -22,7 +22,10 @@
 package org.siphon.visualbasic.compile;
 
 import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
 import org.siphon.visualbasic.*;
+import org.siphon.visualbasic.runtime.ArgumentDecl;
 import org.siphon.visualbasic.runtime.ArrayDef;
 import org.siphon.visualbasic.runtime.ArrayDef.RankAsStatement;
 import org.siphon.visualbasic.runtime.Statement;
@@ -169,12 +172,63 @@ public class BlockCompiler {
 	}
 
 	
+	/**
+	 * s = s & a & b ... 且 s 为本过程的 String、Variant 局部变量（不含参数、Static 变量）时，改用 AppendStatement。
+	 * a、b 等各项中出现同名标识符时不改，保证求值各项时不会读写 s
+	 */
+	private Statement appendOrAssign(AssignStatement assign, ValueStmtContext value) {
+		List<EvalAssignableStatement.MemberAtLocation> thrumb = assign.getAssignee().getThrumb();
+		if (thrumb.size() != 1 || thrumb.get(0).member instanceof VarDecl == false || thrumb.get(0).member instanceof MeDecl) {
+			return assign;
+		}
+		VarDecl var = (VarDecl) thrumb.get(0).member;
+		if (var.methodDecl != method || var.isStatic || var.slot < 0 || var instanceof ArgumentDecl) {
+			return assign;
+		}
+		if (var.varType.vbType != VbVarType.vbString && var.varType.vbType != VbVarType.vbVariant) {
+			return assign;
+		}
+
+		LinkedList<Statement> pieces = new LinkedList<>();
+		Statement left = assign.getValueStatement();
+		while (left instanceof CalcStatements.ConcatStatement) {
+			pieces.addFirst(((CalcStatements.ConcatStatement) left).getRight());
+			left = ((CalcStatements.ConcatStatement) left).getLeft();
+		}
+		if (pieces.isEmpty() || left instanceof EvalAssignableStatement.ApplyStatement == false) {
+			return assign;
+		}
+		List<EvalAssignableStatement.MemberAtLocation> head = ((EvalAssignableStatement.ApplyStatement) left).getBase().getThrumb();
+		if (head.size() != 1 || head.get(0).member != var || countIdentifier(value, var.name) != 1) {
+			return assign;
+		}
+		return new AppendStatement(assign.getSourceLocation(), var, new ArrayList<>(pieces),
+				assign.getValueStatement().getSourceLocation(), assign);
+	}
+
+	private static int countIdentifier(ParseTree ast, String name) {
+		if (ast instanceof TerminalNode) {
+			String text = ast.getText();
+			if (text.length() == name.length() + 1 && "%&@!#$".indexOf(text.charAt(name.length())) != -1) {
+				text = text.substring(0, name.length());
+			}
+			return text.equalsIgnoreCase(name) ? 1 : 0;
+		}
+		int count = 0;
+		for (int i = 0; i < ast.getChildCount(); i++) {
+			count += countIdentifier(ast.getChild(i), name);
+		}
+		return count;
+	}
+
 	private void compileStmt(ParserRuleContext ast, List<GotoStatement> forExits, List<GotoStatement> doWhileExits)
 			throws CompileException {
 		if (ast instanceof VariableStmtContext) {
 			List<VarDecl> vars = compiler.compileVarDecl((VariableStmtContext) ast, method.module, method);
 			for (VarDecl v : vars) {
-				result.add(new VariableStatement(module.sourceLocation(ast), v));
+				if (v.isStatic == false) {		// Static 变量随模块实例创建，不占调用帧槽位
+					result.add(new VariableStatement(module.sourceLocation(ast), v));
+				}
 			}
 
 		} else if (ast instanceof ConstStmtContext) {
@@ -192,8 +246,9 @@ public class BlockCompiler {
 
 			ensureAssignable(assignee.getVarType(), valueStmt.getVarType(), "let");
 			assert assignee.getStatement() instanceof EvalAssignableStatement;
-			result.add(new AssignStatement(module.sourceLocation(ast), (EvalAssignableStatement) assignee.getStatement(),
-					valueStmt.getStatement()));
+			AssignStatement assign = new AssignStatement(module.sourceLocation(ast), (EvalAssignableStatement) assignee.getStatement(),
+					valueStmt.getStatement());
+			result.add(let.EQ() != null ? appendOrAssign(assign, value) : assign);
 		} else if (ast instanceof SetStmtContext) {
 			/*
 			setStmt : SET WS implicitCallStmt_InStmt WS? EQ WS? valueStmt;
@@ -527,10 +582,7 @@ public class BlockCompiler {
 
 		WithStatement with = new WithStatement(module.sourceLocation(ast), statement);
 		BlockCompiler.this.result.add(with);
-		VbDecl prevWith = compiler.withObjDecl;
-		SourceLocation prevWithLocation = compiler.withObjDeclLocation;
-		compiler.withObjDecl = varType.typeDecl;
-		compiler.withObjDeclLocation = module.sourceLocation(ast.type());
+		Compiler.WithObject prevWith = compiler.enterWith(varType.typeDecl, module.sourceLocation(ast.type()));
 
 		if (ast.block() != null) {
 			for (BlockStmtContext st : ast.block().blockStmt()) {
@@ -538,8 +590,7 @@ public class BlockCompiler {
 			}
 		}
 
-		compiler.withObjDecl = prevWith;
-		compiler.withObjDeclLocation = prevWithLocation;
+		compiler.exitWith(prevWith);
 		BlockCompiler.this.result.add(with.endWith(module.sourceLocation(ast.END_WITH())));
 	}
 
@@ -837,7 +888,8 @@ public class BlockCompiler {
 		ValueStatementDesc vsd = compiler.compileValueStatement(ast.valueStmt(), method);
 		compiler.mustBeNumberOrStringType(vsd.getVarType());
 		Statement vs = vsd.getStatement();
-		SelectCaseStatement selectCaseStatement = new SelectCaseStatement(module.sourceLocation(ast), vs);
+		boolean textCompare = module.isTextCompare();
+		SelectCaseStatement selectCaseStatement = new SelectCaseStatement(module.sourceLocation(ast), vs, textCompare);
 		result.add(selectCaseStatement);
 
 		int index = 0;
@@ -852,12 +904,12 @@ public class BlockCompiler {
 						CaseCondValueContext v = (CaseCondValueContext) selection;
 						vsd = compiler.compileValueStatement(v.valueStmt(), method);
 						compiler.mustBeNumberOrStringType(vsd.getVarType());
-						conds.add(new SelectCaseStatement.SingleValueCondition(vsd.getStatement()));
+						conds.add(new SelectCaseStatement.SingleValueCondition(vsd.getStatement(), textCompare));
 					} else if (selection instanceof CaseCondIsContext) {
 						CaseCondIsContext s = (CaseCondIsContext) selection;
 						vsd = compiler.compileValueStatement(s.valueStmt(), method);
 						compiler.mustBeNumberOrStringType(vsd.getVarType());
-						conds.add(new ComparisonCondition(vsd.getStatement(), s.comparisonOperator().getText()));
+						conds.add(new ComparisonCondition(vsd.getStatement(), s.comparisonOperator().getText(), textCompare));
 					} else if (selection instanceof CaseCondToContext) {
 						CaseCondToContext c = (CaseCondToContext) selection;
 						vsd = compiler.compileValueStatement(c.valueStmt(0), method);
@@ -866,7 +918,7 @@ public class BlockCompiler {
 						vsd = compiler.compileValueStatement(c.valueStmt(1), method);
 						compiler.mustBeNumberType(vsd.getVarType());
 						Statement to = vsd.getStatement();
-						conds.add(new SelectCaseStatement.BetweenCondition(from, to));
+						conds.add(new SelectCaseStatement.BetweenCondition(from, to, textCompare));
 					}
 				}
 				switcher.conditionStatements = (SelectCaseConditionStatement[]) conds
@@ -35,10 +35,10 @@ import org.siphon.visualbasic.runtime.*;
 import org.siphon.visualbasic.runtime.framework.stdole.StdOleLibrary;
 import org.siphon.visualbasic.runtime.framework.vb.VBLibrary;
 import org.siphon.visualbasic.runtime.framework.vba.VBALibrary;
-import org.siphon.visualbasic.runtime.statements.InitLibraryStatement;
 import org.siphon.visualbasic.runtime.statements.LiteralStatement;
-import org.siphon.visualbasic.runtime.statements.LoadLibraryStatement;
 import org.siphon.visualbasic.runtime.statements.NamedArgumentStatement;
+import org.siphon.visualbasic.runtime.statements.ParenthesizedStatement;
+import org.siphon.visualbasic.runtime.statements.EvalAssignableStatement.ApplyStatement;
 import vba.VbaLexer;
 import vba.VbaParser;
 import vba.VbaParser.*;
@@ -48,9 +48,15 @@ import java.io.IOException;
 import java.math.BigDecimal;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
 
 public class Compiler {
 
@@ -64,9 +70,29 @@ public class Compiler {
 
 	private final List<CompileException> errors = new ArrayList<>();
 
-	protected VbDecl withObjDecl;
+	private final Map<String, VbValue> boundObjects = new LinkedHashMap<>();
 
-	SourceLocation withObjDeclLocation;
+	// 当前 With 块的对象。过程体可能在多个线程上同时编译，各线程分别记录
+	private final ThreadLocal<WithObject> withObject = new ThreadLocal<>();
+
+	static class WithObject {
+		final VbDecl decl;
+		final SourceLocation location;
+
+		WithObject(VbDecl decl, SourceLocation location) {
+			this.decl = decl;
+			this.location = location;
+		}
+	}
+
+	// 是否在 ForkJoinPool 上并行解析各文件、编译各模块的过程体
+	private boolean parallel = true;
+
+	// 可沿用的语法树，键为源文件绝对路径。增量编译时未改动的文件不再解析
+	private Map<String, ParseTree> reusableTrees = Collections.emptyMap();
+
+	// 最近一次 compile 中没有语法错误的各文件的语法树
+	private final Map<String, ParseTree> parseTrees = new HashMap<>();
 
 	private final VBALibrary vba;
 	public VBALibrary getVbaLib() {
@@ -115,6 +141,65 @@ public class Compiler {
 		this.addLibraries(new Library[] { vba, vb });
 	}
 
+	/**
+	 * 增量编译用。沿用 program 中除 recompiledLibrary 外的各库（含 VBA、VB 等框架库）及绑定的对象，
+	 * 新编译出的库与已加载的库共享这些声明，可以替换到运行中的 Interpreter 里
+	 * 
+	 * @param program 上一次的编译结果
+	 * @param recompiledLibrary 将要重新编译的库名
+	 */
+	public Compiler(CompiledProgram program, String recompiledLibrary) {
+		VBALibrary vba = null;
+		VBLibrary vb = null;
+		for (Library lib : program.getLibraries()) {
+			if (lib.name.equalsIgnoreCase(recompiledLibrary)) {
+				continue;
+			}
+			if (lib instanceof VBALibrary) {
+				vba = (VBALibrary) lib;
+			} else if (lib instanceof VBLibrary) {
+				vb = (VBLibrary) lib;
+			}
+			this.addLibraries(new Library[] { lib });
+		}
+		if (vba == null || vb == null) {
+			throw new IllegalArgumentException("program does not contain VBA and VB libraries");
+		}
+		this.vba = vba;
+		this.vb = vb;
+
+		for (Map.Entry<String, VbValue> entry : program.getBoundObjects().entrySet()) {
+			this.bindObject(entry.getKey(), entry.getValue());
+		}
+	}
+
+	public boolean isParallel() {
+		return parallel;
+	}
+
+	/**
+	 * 关闭后在调用线程内依次解析、编译，便于调试
+	 */
+	public Compiler setParallel(boolean parallel) {
+		this.parallel = parallel;
+		return this;
+	}
+
+	/**
+	 * 编译时对 trees 中已有的文件直接使用其语法树。语法树只读，可由多个 Compiler 共用
+	 */
+	public Compiler reuseParseTrees(Map<String, ParseTree> trees) {
+		this.reusableTrees = trees;
+		return this;
+	}
+
+	/**
+	 * @return 最近一次 {@link #compile} 中没有语法错误的文件的语法树，键为源文件绝对路径
+	 */
+	public Map<String, ParseTree> getParseTrees() {
+		return Collections.unmodifiableMap(parseTrees);
+	}
+
 	/**
 	 * 加载其它库，库信息进入 globals 知识中
 	 * 
@@ -153,32 +238,16 @@ public class Compiler {
 
 		Map<String, ParseTree> moduleTrees = new HashMap<>();
 		List<ParseTree> lsAst = new ArrayList<>();
-		for (String s : files) {
-			File file = new File(s);
-			VbaLexer lexer;
-			try {
-				lexer = new VbaLexer(new org.antlr.v4.runtime.ANTLRFileStream(s, charset));
-
-				CommonTokenStream tokenStream = new CommonTokenStream(lexer);
-				VbaParser parser = new VbaParser(tokenStream);
-				parser.setBuildParseTree(true);
-				parser.addErrorListener(new BaseErrorListener() {
-
-					@Override
-					public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
-							int charPositionInLine, String msg, RecognitionException e) {
-						errors.add(new CompileException(new SourceLocation(file, line, charPositionInLine, 0),
-								CompileException.SYNTAX_ERROR, msg, ((CommonToken) offendingSymbol).getText()));
-					}
-
-				});
-
-				ParseTree moduleNode = parser.module();
-
-				lsAst.add(moduleNode);
-				moduleTrees.put(file.getAbsolutePath(), moduleNode);
-			} catch (IOException e) {
-				errors.add(new CompileException(new SourceLocation(file, 0, 0, 0), e.getMessage()));
+		// 各文件相互独立，可并行解析；错误按文件顺序汇总，与逐个解析时相同
+		parseTrees.clear();
+		for (ParsedFile parsed : map(Arrays.asList(files), s -> parseOrReuse(s, charset))) {
+			errors.addAll(parsed.errors);
+			if (parsed.tree != null) {
+				lsAst.add(parsed.tree);
+				moduleTrees.put(parsed.file.getAbsolutePath(), parsed.tree);
+				if (parsed.errors.isEmpty()) {
+					parseTrees.put(parsed.file.getAbsolutePath(), parsed.tree);
+				}
 			}
 		}
 
@@ -249,22 +318,12 @@ public class Compiler {
 		}
 		
 		// procedure body
-		for (ModuleDecl moduleDecl : result.modules.values()) {
-			for (VbDecl member : moduleDecl.members.values()) {
-				if (member instanceof RuleDecl) {
-					compileRuleBody((RuleDecl) member);
-				} else if (member instanceof MethodDecl) {
-					MethodDecl method = (MethodDecl) member;
-					compileMethodBody(method);
-				} else if (member instanceof PropertyDecl) {
-					for (MethodDecl m : ((PropertyDecl) member).getMembers()) {
-						if (m != null) {
-							compileMethodBody(m);
-						}
-					}
-				}
-			}
-		}
+		// 此时声明均已登记，各模块的过程体互不影响，按模块并行编译。
+		// 同一模块的过程在同一任务中依次编译：Rule 与其别名过程共享槽位分配，错误也保持原有顺序
+		map(new ArrayList<>(result.modules.values()), moduleDecl -> {
+			compileModuleBodies(moduleDecl);
+			return null;
+		});
 
 		this.libs.add(result);
 
@@ -751,6 +810,7 @@ public class Compiler {
 		}
 
 		MethodDecl func = new MethodDecl(module.getLibrary(), module, MethodType.Function);
+		func.shareSlotsWith(rule);
 		func.ast = ruleStmt;
 		func.name = rule.name;
 		func.arguments = rule.arguments;
@@ -848,6 +908,10 @@ public class Compiler {
 			} else {
 				method.variables.put(u, arg);
 			}
+			method.allocateSlot(arg);
+		}
+		if (method.result != null) {
+			method.allocateSlot(method.result);
 		}
 	}
 
@@ -919,6 +983,8 @@ public class Compiler {
 
 		if (arg.BYREF() != null) {
 			argument.mode = ArgumentMode.ByRef;
+		} else if (arg.BYVAL() != null) {
+			argument.mode = ArgumentMode.ByVal;
 		}
 		if (arg.PARAMARRAY() != null) {
 			argument.isParamArray = true;
@@ -1230,9 +1296,9 @@ public class Compiler {
 					return MathExpr.idiv(n1, n2);
 				}
 			} else if (valueStmt instanceof CveLikeContext) {
-				VbValue n1 = parseConstValueExpr(((CveMultContext) valueStmt).constValueExpr(0), module, method);
-				VbValue n2 = parseConstValueExpr(((CveMultContext) valueStmt).constValueExpr(1), module, method);
-				return StringExpr.like(n1, n2);
+				VbValue n1 = parseConstValueExpr(((CveLikeContext) valueStmt).constValueExpr(0), module, method);
+				VbValue n2 = parseConstValueExpr(((CveLikeContext) valueStmt).constValueExpr(1), module, method);
+				return StringExpr.like(n1, n2, module.isTextCompare());
 			} else if (valueStmt instanceof CvePowContext) {
 				VbValue n1 = parseConstValueExpr(((CvePowContext) valueStmt).constValueExpr(0), module, method);
 				VbValue n2 = parseConstValueExpr(((CvePowContext) valueStmt).constValueExpr(1), module, method);
@@ -1290,6 +1356,17 @@ public class Compiler {
 		return names.findAccessibleConst(complexName, module.getLibrary()).constValue;
 	}
 	
+	/**
+	 * 先在全局查找，找不到再查本库。框架库（如 VBA）构造时尚未加入全局，其 Java 方法声明里的缺省值（如 vbBinaryCompare）只能在本库找到
+	 */
+	private VbValue findAccessibleConst(String constName, ModuleDecl module) throws AmbiguousIdentifierException, NotMatchException, NotFoundException {
+		try {
+			return names.findAccessibleConst(constName, module.getLibrary()).constValue;
+		} catch (NotFoundException e) {
+			return module.getLibrary().names.findAccessibleConst(constName, module.getLibrary()).constValue;
+		}
+	}
+
 	VbValue findConstValue(ConstValueExprContext valueStmt, ModuleDecl module, MethodDecl method,
 			List<AmbiguousIdentifierContext> ids) throws CompileException {
 		try {
@@ -1303,11 +1380,11 @@ public class Compiler {
 					}
 					return ((ConstDecl) v).constValue;
 				} else {
-					return names.findAccessibleConst(constName, module.getLibrary()).constValue;
+					return findAccessibleConst(constName, module);
 				}
 			} else {
 				String constName = valueStmt.getText().toUpperCase();
-				return names.findAccessibleConst(constName, module.getLibrary()).constValue;
+				return findAccessibleConst(constName, module);
 			}
 		} catch (NotMatchException e) {
 			throw module.newCompileException(valueStmt, CompileException.SHOULD_BE, valueStmt, "const");
@@ -1588,6 +1665,109 @@ public class Compiler {
 		}
 	}
 
+	private static class ParsedFile {
+		final File file;
+		ParseTree tree;
+		final List<CompileException> errors = new ArrayList<>();
+
+		ParsedFile(File file) {
+			this.file = file;
+		}
+	}
+
+	private ParsedFile parseOrReuse(String s, String charset) {
+		File file = new File(s);
+		ParseTree tree = reusableTrees.get(file.getAbsolutePath());
+		if (tree == null) {
+			return parseFile(s, charset);
+		}
+		ParsedFile result = new ParsedFile(file);
+		result.tree = tree;
+		return result;
+	}
+
+	private ParsedFile parseFile(String s, String charset) {
+		ParsedFile result = new ParsedFile(new File(s));
+		File file = result.file;
+		try {
+			result.tree = SourceParser.parse(new org.antlr.v4.runtime.ANTLRFileStream(s, charset), VbaParser::module, new BaseErrorListener() {
+
+				@Override
+				public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+						int charPositionInLine, String msg, RecognitionException e) {
+					result.errors.add(new CompileException(new SourceLocation(file, line, charPositionInLine, 0),
+							CompileException.SYNTAX_ERROR, msg, ((CommonToken) offendingSymbol).getText()));
+				}
+
+			});
+		} catch (IOException e) {
+			result.errors.add(new CompileException(new SourceLocation(file, 0, 0, 0), e.getMessage()));
+		}
+		return result;
+	}
+
+	/**
+	 * 对每一项执行 task，结果与 items 顺序一致。并行时若有任务抛出异常，等全部任务结束后按顺序抛出第一个
+	 */
+	private <T, R> List<R> map(List<T> items, Function<T, R> task) {
+		List<R> result = new ArrayList<>(items.size());
+		if (parallel == false || items.size() < 2 || ForkJoinPool.getCommonPoolParallelism() < 2) {
+			for (T item : items) {
+				result.add(task.apply(item));
+			}
+			return result;
+		}
+		List<ForkJoinTask<R>> tasks = new ArrayList<>(items.size());
+		for (T item : items) {
+			tasks.add(ForkJoinPool.commonPool().submit(() -> task.apply(item)));
+		}
+		for (ForkJoinTask<R> t : tasks) {
+			t.quietlyJoin();
+		}
+		for (ForkJoinTask<R> t : tasks) {
+			result.add(t.join());
+		}
+		return result;
+	}
+
+	private void compileModuleBodies(ModuleDecl moduleDecl) {
+		for (VbDecl member : moduleDecl.members.values()) {
+			if (member instanceof RuleDecl) {
+				compileRuleBody((RuleDecl) member);
+			} else if (member instanceof MethodDecl) {
+				MethodDecl method = (MethodDecl) member;
+				compileMethodBody(method);
+			} else if (member instanceof PropertyDecl) {
+				for (MethodDecl m : ((PropertyDecl) member).getMembers()) {
+					if (m != null) {
+						compileMethodBody(m);
+					}
+				}
+			}
+		}
+	}
+
+	WithObject currentWith() {
+		return withObject.get();
+	}
+
+	/**
+	 * 进入 With 块，返回外层的 With 对象，离开时交给 exitWith 恢复
+	 */
+	WithObject enterWith(VbDecl decl, SourceLocation location) {
+		WithObject prev = withObject.get();
+		withObject.set(new WithObject(decl, location));
+		return prev;
+	}
+
+	void exitWith(WithObject prev) {
+		if (prev == null) {
+			withObject.remove();
+		} else {
+			withObject.set(prev);
+		}
+	}
+
 	/**
 	 * 编译方法体为语句
 	 * 
@@ -1700,6 +1880,9 @@ public class Compiler {
 			if (c instanceof ArgCallContext) {
 				argCall = (ArgCallContext) c;
 				ValueStatementDesc vds = this.compileValueStatement(argCall.valueStmt(), method);
+				if (argCall.valueStmt() instanceof VsStructContext && vds.getStatement() instanceof ApplyStatement) {
+					vds.setStatement(new ParenthesizedStatement(vds.getStatement()));		// (x) 是表达式，按值传递
+				}
 				if (argCall.ambiguousIdentifier() != null) {
 					result.add(new NamedArgument(vds, argCall.ambiguousIdentifier().getText()));
 				} else {
@@ -1788,6 +1971,8 @@ public class Compiler {
 		boolean match = false;
 		if (declType == argType) {
 			match = true;
+		} else if (argType == null) {	// 编译期推断不出类型的表达式，调用时再转换
+			match = true;
 		} else if (declType.vbType == VbVarType.vbVariant) {
 			match = true;
 		} else if (declType.vbType == VbVarType.vbObject) {
@@ -1975,20 +2160,27 @@ public class Compiler {
 	}
 
 	public List<Statement> generateStatements() throws VbErrorsException {
-		List<Statement> result = new ArrayList<>();
+		return generateProgram().generateStatements();
+	}
+
+	/**
+	 * 生成可被多个 Interpreter 重复加载的编译结果
+	 */
+	public CompiledProgram generateProgram() throws VbErrorsException {
+		return generateProgram(null);
+	}
+
+	public CompiledProgram generateProgram(Project project) throws VbErrorsException {
 		for (Library lib : libs) {
 			if (lib.hasError()) {
 				throw new VbErrorsException(lib.getErrors());
 			}
-			result.add(new LoadLibraryStatement(lib));
-		}
-		for (Library lib : libs) {
-			result.add(new InitLibraryStatement(lib));
 		}
-		return result;
+		return new CompiledProgram(libs, project, boundObjects);
 	}
 
 	public void bindObject(String name, VbValue object) {
+		boundObjects.put(name, object);
 		ConstDecl konst = new ConstDecl(null, null, object);
 		konst.varType = object.varType;
 		konst.visibility = Visibility.PUBLIC;
@@ -2029,12 +2221,7 @@ public class Compiler {
 	}
 
 	public Statement compileExpression(String expr, MethodDecl method, ModuleInstance module) throws CompileException {
-		VbaLexer lexer = new VbaLexer(new org.antlr.v4.runtime.ANTLRInputStream(expr));
-
-		CommonTokenStream tokenStream = new CommonTokenStream(lexer);
-		VbaParser parser = new VbaParser(tokenStream);
-		parser.setBuildParseTree(true);
-		parser.addErrorListener(new BaseErrorListener() {
+		EvalStmtContext eval = SourceParser.parse(new org.antlr.v4.runtime.ANTLRInputStream(expr), VbaParser::evalStmt, new BaseErrorListener() {
 
 			@Override
 			public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int charPositionInLine,
@@ -2045,8 +2232,6 @@ public class Compiler {
 			}
 
 		});
-
-		EvalStmtContext eval = parser.evalStmt();
 		ParserRuleContext c = (ParserRuleContext) eval.getChild(0);
 		if (c instanceof ValueStmtContext) {
 			return this.compileValueStatement((ValueStmtContext) c, method).getStatement();
@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Inshua<inshua@gmail.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.siphon.visualbasic.compile;
+
+import org.siphon.visualbasic.ClassTypeDecl;
+import org.siphon.visualbasic.runtime.VbVarType;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Java 类的反射信息。每个类只收集一次，由 VbValue.fromJava、CreateObject 及 JavaClassModuleDecl 共用。
+ * <p>
+ * 以 ClassValue 保存，不会阻止类及其 ClassLoader 被卸载。返回的数组、列表不可修改。
+ */
+public class JavaClassInfo {
+
+	private static final ClassValue<JavaClassInfo> INFOS = new ClassValue<JavaClassInfo>() {
+		@Override
+		protected JavaClassInfo computeValue(Class<?> type) {
+			return new JavaClassInfo(type);
+		}
+	};
+
+	public static JavaClassInfo of(Class<?> javaClass) {
+		return INFOS.get(javaClass);
+	}
+
+	private final Class<?> javaClass;
+
+	private final Method[] methods;
+
+	private final Field[] fields;
+
+	private final Constructor<?>[] constructors;
+
+	// 键为大写名称，同名字段取 getFields 中的第一个，同名方法保持 getMethods 中的顺序
+	private final Map<String, Field> fieldsByName = new HashMap<>();
+
+	private final Map<String, List<Method>> methodsByName = new HashMap<>();
+
+	private final Map<Method, JavaInvoker> invokers = new ConcurrentHashMap<>();
+
+	// 不自动包装时的对象类型，成员在调用时按名称查找
+	private final VbVarType javaObjectType;
+
+	// fromJava 自动包装对象时使用的类型，首次使用时创建
+	private volatile VbVarType vbVarType;
+
+	private JavaClassInfo(Class<?> javaClass) {
+		this.javaClass = javaClass;
+		this.methods = javaClass.getMethods();
+		this.fields = javaClass.getFields();
+		this.constructors = javaClass.getConstructors();
+		this.javaObjectType = new VbVarType(VbVarType.vbObject, ClassTypeDecl.JAVA_OBJECT_TYPE, null, javaClass);
+
+		for (Field fld : fields) {
+			fieldsByName.putIfAbsent(fld.getName().toUpperCase(), fld);
+		}
+		for (Method method : methods) {
+			methodsByName.computeIfAbsent(method.getName().toUpperCase(), k -> new ArrayList<>()).add(method);
+		}
+	}
+
+	public Class<?> getJavaClass() {
+		return javaClass;
+	}
+
+	public Method[] getMethods() {
+		return methods;
+	}
+
+	public Field[] getFields() {
+		return fields;
+	}
+
+	public Constructor<?>[] getConstructors() {
+		return constructors;
+	}
+
+	/**
+	 * @param name 不区分大小写
+	 * @return 找不到时返回 null
+	 */
+	public Field findField(String name) {
+		return fieldsByName.get(name.toUpperCase());
+	}
+
+	/**
+	 * @param name 不区分大小写
+	 * @return 同名的全部公开方法（含重载），找不到时返回空列表
+	 */
+	public List<Method> findMethods(String name) {
+		List<Method> result = methodsByName.get(name.toUpperCase());
+		return result == null ? Collections.emptyList() : Collections.unmodifiableList(result);
+	}
+
+	/**
+	 * @param method 本类声明的方法
+	 */
+	public JavaInvoker getInvoker(Method method) {
+		return invokers.computeIfAbsent(method, JavaInvoker::new);
+	}
+
+	public VbVarType getJavaObjectType() {
+		return javaObjectType;
+	}
+
+	/**
+	 * 以 JavaClassModuleDecl 描述该类的对象类型
+	 */
+	public VbVarType getVbVarType() {
+		VbVarType result = this.vbVarType;
+		if (result == null) {
+			synchronized (this) {
+				result = this.vbVarType;
+				if (result == null) {
+					JavaClassModuleDecl decl = new JavaClassModuleDecl(null, null, javaClass);
+					ClassTypeDecl ct = new ClassTypeDecl(null, decl);
+					result = this.vbVarType = new VbVarType(VbVarType.vbObject, ct, null, javaClass);
+				}
+			}
+		}
+		return result;
+	}
+}
@@ -21,7 +21,6 @@
  ******************************************************************************/
 package org.siphon.visualbasic.compile;
 
-import org.antlr.v4.runtime.CommonTokenStream;
 import org.antlr.v4.runtime.tree.ParseTree;
 import org.apache.commons.lang3.StringUtils;
 import org.siphon.visualbasic.*;
@@ -30,7 +29,6 @@ import org.siphon.visualbasic.runtime.VbRuntimeException;
 import org.siphon.visualbasic.runtime.VbValue;
 import org.siphon.visualbasic.runtime.framework.VbEvent;
 import org.siphon.visualbasic.runtime.framework.VbMethod;
-import vba.VbaLexer;
 import vba.VbaParser;
 import vba.VbaParser.*;
 
@@ -66,11 +64,12 @@ public class JavaClassModuleDecl extends ClassModuleDecl {
 			this.visibility = Visibility.FRIEND;
 		}
 		
-		for(Method method : this.javaClass.getMethods()){
+		JavaClassInfo info = JavaClassInfo.of(this.javaClass);
+		for(Method method : info.getMethods()){
 			processJavaMethod(lib, compiler, method);
 		}
 		
-		for(Field fld: this.javaClass.getFields()){
+		for(Field fld: info.getFields()){
 			int modifier = fld.getModifiers();
 			if(Modifier.isStatic(modifier) && Modifier.isPublic(modifier) && Modifier.isFinal(modifier)){
 				try {
@@ -87,10 +86,7 @@ public class JavaClassModuleDecl extends ClassModuleDecl {
 					VbEvent vbEvent = vbEvents[0]; 
 					String decl = vbEvent.value();
 					
-					VbaLexer lexer = new VbaLexer(new org.antlr.v4.runtime.ANTLRInputStream(decl));
-					CommonTokenStream tokenStream = new CommonTokenStream(lexer);
-					VbaParser parser = new VbaParser(tokenStream);					
-					ParseTree element = parser.eventStmt();
+					ParseTree element = SourceParser.parse(new org.antlr.v4.runtime.ANTLRInputStream(decl), VbaParser::eventStmt, null);
 					if(element instanceof EventStmtContext){
 						EventDecl eventDecl = compiler.compileEventDecl((EventStmtContext) element, this);
 						if(eventDecl != null) {
@@ -140,10 +136,7 @@ public class JavaClassModuleDecl extends ClassModuleDecl {
 					String decl = vbMethod.value();
 					String methodType = decl.substring(0, decl.indexOf(' ')); 
 					decl = decl + "\r\n" + "End " + methodType;
-					VbaLexer lexer = new VbaLexer(new org.antlr.v4.runtime.ANTLRInputStream(decl));
-					CommonTokenStream tokenStream = new CommonTokenStream(lexer);
-					VbaParser parser = new VbaParser(tokenStream);
-					ParseTree element = parser.moduleBodyElement().getChild(0);
+					ParseTree element = SourceParser.parse(new org.antlr.v4.runtime.ANTLRInputStream(decl), VbaParser::moduleBodyElement, null).getChild(0);
 					MethodDecl methodDecl = null;
 					JavaMethod m = null;
 					if(element instanceof FunctionStmtContext){
@@ -0,0 +1,190 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Inshua<inshua@gmail.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.siphon.visualbasic.compile;
+
+import org.siphon.visualbasic.runtime.VbValue;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.List;
+
+/**
+ * 调用一个 Java 方法。实参由 VbValue 转为形参类型、返回值转为 VbValue 都已串进 MethodHandle，
+ * 调用时不再查形参表。每个方法只创建一次，见 {@link JavaClassInfo#getInvoker(Method)}。
+ * <p>
+ * 变长参数方法及不能通过 publicLookup 访问的方法仍走反射。两种方式抛出的都是方法本身的异常，
+ * 不包装为 InvocationTargetException。{@link JavaMethod} 也经由本类调用。
+ */
+public class JavaInvoker {
+
+	private static final MethodHandle TO_JAVA;		// (VbValue, Class)Object
+
+	private static final MethodHandle FROM_JAVA;	// (Object, boolean)VbValue
+
+	private static final MethodType JAVA_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+
+	static {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+			TO_JAVA = lookup.findVirtual(VbValue.class, "toJava", MethodType.methodType(Object.class, Class.class));
+			FROM_JAVA = lookup.findStatic(VbValue.class, "fromJava",
+					MethodType.methodType(VbValue.class, Object.class, boolean.class));
+		} catch (NoSuchMethodException | IllegalAccessException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	public static JavaInvoker of(Method method) {
+		return JavaClassInfo.of(method.getDeclaringClass()).getInvoker(method);
+	}
+
+	private final Method method;
+
+	private final Class<?>[] paramTypes;
+
+	// (Object instance, Object[] javaArgs)Object，实参已是 Java 值；为 null 时走反射
+	private final MethodHandle javaHandle;
+
+	// (Object instance, VbValue[] args)VbValue，静态方法忽略 instance；为 null 时走反射
+	private final MethodHandle handle;
+
+	JavaInvoker(Method method) {
+		this.method = method;
+		this.paramTypes = method.getParameterTypes();
+		MethodHandle target = createTarget(method);
+		this.javaHandle = target == null ? null : target.asSpreader(Object[].class, paramTypes.length).asType(JAVA_TYPE);
+		this.handle = target == null || method.isVarArgs() ? null : createHandle(target, paramTypes);
+	}
+
+	public Method getMethod() {
+		return method;
+	}
+
+	/**
+	 * 把 VbValue 转为第 index 个 Java 形参的类型，与 MethodHandle 中串入的转换相同
+	 */
+	public Object toJavaArgument(int index, VbValue value) {
+		return value.toJava(paramTypes[index]);
+	}
+
+	// (Object instance, 形参...)Object，静态方法忽略 instance
+	private static MethodHandle createTarget(Method method) {
+		MethodHandle target;
+		try {
+			target = MethodHandles.publicLookup().unreflect(method).asFixedArity();
+		} catch (IllegalAccessException e) {
+			return null;	// 反射调用时报告同样的错误
+		}
+		if (Modifier.isStatic(method.getModifiers())) {
+			target = MethodHandles.dropArguments(target, 0, Object.class);
+		} else {
+			target = target.asType(target.type().changeParameterType(0, Object.class));
+		}
+		return target.asType(target.type().changeReturnType(Object.class));	// void 返回 null
+	}
+
+	private static MethodHandle createHandle(MethodHandle target, Class<?>[] params) {
+		MethodHandle[] converters = new MethodHandle[params.length];
+		for (int i = 0; i < params.length; i++) {
+			converters[i] = MethodHandles.insertArguments(TO_JAVA, 1, params[i])
+					.asType(MethodType.methodType(params[i], VbValue.class));
+		}
+		target = MethodHandles.filterArguments(target, 1, converters);
+		target = MethodHandles.filterReturnValue(target, MethodHandles.insertArguments(FROM_JAVA, 1, false));
+
+		return target.asSpreader(VbValue[].class, params.length);
+	}
+
+	/**
+	 * 以已转换好的 Java 实参调用，变长参数须已合成数组
+	 * @param instance 静态方法时忽略
+	 * @param args 个数与 Java 形参一致
+	 * @return 方法的返回值，void 时为 null
+	 * @throws Exception 方法本身抛出的异常；实参类型不符时为 ClassCastException 或 IllegalArgumentException
+	 */
+	public Object invokeJava(Object instance, Object[] args) throws Exception {
+		if (javaHandle != null) {
+			try {
+				return (Object) javaHandle.invokeExact(instance, args);
+			} catch (Exception | Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new UndeclaredThrowableException(e);
+			}
+		}
+		return reflect(instance, args);
+	}
+
+	private Object reflect(Object instance, Object[] args) throws Exception {
+		try {
+			return method.invoke(instance, args);
+		} catch (InvocationTargetException e) {
+			Throwable t = e.getTargetException();
+			if (t instanceof Exception) {
+				throw (Exception) t;
+			} else if (t instanceof Error) {
+				throw (Error) t;
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * @param instance 静态方法时忽略
+	 * @param args 实参，个数须与形参一致（变长参数除外）
+	 * @return 方法返回 void 或 null 时为 null
+	 * @throws Exception 转换实参失败或方法本身抛出的异常
+	 */
+	public VbValue invoke(Object instance, List<VbValue> args) throws Exception {
+		if (handle != null) {
+			try {
+				return (VbValue) handle.invokeExact(instance, args.toArray(new VbValue[paramTypes.length]));
+			} catch (Exception | Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new UndeclaredThrowableException(e);
+			}
+		}
+		Parameter[] params = method.getParameters();
+		Object[] javaArgs = new Object[params.length];
+		for (int i = 0; i < params.length; i++) {
+			Parameter param = params[i];
+			if (param.isVarArgs()) {
+				Object[] objects = new Object[args.size() - i];
+				Class<?> ctype = param.getType().getComponentType();
+				for (int j = i; j < args.size(); j++) {
+					objects[j - i] = args.get(j).toJava(ctype);
+				}
+				javaArgs[i] = objects;
+			} else {
+				javaArgs[i] = args.get(i).toJava(param.getType());
+			}
+		}
+		return VbValue.fromJava(reflect(instance, javaArgs), false);
+	}
+}
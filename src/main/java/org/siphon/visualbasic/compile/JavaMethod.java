@@ -27,6 +27,7 @@ import org.siphon.visualbasic.runtime.VbValue;
 import org.siphon.visualbasic.runtime.VbVarType;
 import org.siphon.visualbasic.runtime.framework.VbParam;
 
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
 import java.util.ArrayList;
@@ -38,10 +39,50 @@ public class JavaMethod extends MethodDecl {
 	public final Method javaMethod;
 	private boolean withInterpreter;
 
+	// 调用 javaMethod 的句柄及参数转换方式，首次调用时取得
+	private volatile JavaInvoker invoker;
+
 	public boolean isWithInterpreter() {
 		return withInterpreter;
 	}
 
+	/**
+	 * 把第 index 个 VB 参数转为 Java 实参。Java 形参为基本类型时按形参转换，如 Long 参数传给 int 形参
+	 * @param index
+	 * @param value
+	 * @return
+	 */
+	public Object toJavaArgument(int index, VbValue value) {
+		return getInvoker().toJavaArgument(withInterpreter ? index + 2 : index, value);
+	}
+
+	/**
+	 * 调用 Java 方法，args 须已按 Java 形参排好（含 Interpreter、CallFrame）。
+	 * Java 方法抛出的异常（包括实参类型不符）一律包装为 InvocationTargetException，与 Method.invoke 一致
+	 * @param instance 静态方法时忽略
+	 * @param args
+	 * @return
+	 * @throws IllegalAccessException
+	 * @throws InvocationTargetException
+	 */
+	public Object invoke(Object instance, Object[] args) throws IllegalAccessException, InvocationTargetException {
+		try {
+			return getInvoker().invokeJava(instance, args);
+		} catch (IllegalAccessException e) {	// 不能访问的方法由反射调用报告
+			throw e;
+		} catch (Exception e) {
+			throw new InvocationTargetException(e);
+		}
+	}
+
+	private JavaInvoker getInvoker() {
+		JavaInvoker result = invoker;
+		if (result == null) {
+			invoker = result = JavaInvoker.of(javaMethod);
+		}
+		return result;
+	}
+
 	public JavaMethod(Library library, ModuleDecl module, Method method, boolean withInterpreter) {
 		super(library, module, method.getReturnType() == Void.class ? MethodType.Sub : MethodType.Function);
 
@@ -21,7 +21,6 @@
  ******************************************************************************/
 package org.siphon.visualbasic.compile;
 
-import org.antlr.v4.runtime.CommonTokenStream;
 import org.antlr.v4.runtime.tree.ParseTree;
 import org.apache.commons.lang3.StringUtils;
 import org.siphon.visualbasic.ConstDecl;
@@ -30,7 +29,6 @@ import org.siphon.visualbasic.MethodDecl;
 import org.siphon.visualbasic.ModuleDecl;
 import org.siphon.visualbasic.runtime.VbValue;
 import org.siphon.visualbasic.runtime.framework.VbMethod;
-import vba.VbaLexer;
 import vba.VbaParser;
 import vba.VbaParser.FunctionStmtContext;
 import vba.VbaParser.SubStmtContext;
@@ -38,6 +36,8 @@ import vba.VbaParser.SubStmtContext;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Java 模块。只取其中的 static 成员(含final static常量)。
@@ -54,6 +54,8 @@ public class JavaModuleDecl extends ModuleDecl {
 
 		this.javaClass = javaClass;
 
+		// Chr$ 与 Chr 同名(类型后缀不计入名称)，带后缀的版本仅在没有 Variant 版本时登记
+		List<JavaMethod> hinted = new ArrayList<>();
 		for (Method method : this.javaClass.getMethods()) {
 			int modifier = method.getModifiers();
 			if (Modifier.isStatic(modifier) && Modifier.isPublic(modifier)) {
@@ -69,14 +71,15 @@ public class JavaModuleDecl extends ModuleDecl {
 						String decl = vbMethod.value();
 						String methodType = decl.substring(0, decl.indexOf(' '));
 						decl = decl + "\r\n" + "End " + methodType;
-						VbaLexer lexer = new VbaLexer(new org.antlr.v4.runtime.ANTLRInputStream(decl));
-						CommonTokenStream tokenStream = new CommonTokenStream(lexer);
-						VbaParser parser = new VbaParser(tokenStream);
-						ParseTree element = parser.moduleBodyElement().getChild(0);
+						ParseTree element = SourceParser.parse(new org.antlr.v4.runtime.ANTLRInputStream(decl), VbaParser::moduleBodyElement, null).getChild(0);
 						if (element instanceof FunctionStmtContext) {
 							MethodDecl methodDecl = compiler.compileMethodBaseInfo((FunctionStmtContext) element, this);
 							JavaMethod m = new JavaMethod(lib, this, methodDecl, method, vbMethod.withIntepreter());
-							this.addMember(m);
+							if (((FunctionStmtContext) element).typeHint() != null) {
+								hinted.add(m);
+							} else {
+								this.addMember(m);
+							}
 						} else if (element instanceof SubStmtContext) {
 							MethodDecl methodDecl = compiler.compileMethodBaseInfo((SubStmtContext) element, this);
 							JavaMethod m = new JavaMethod(lib, this, methodDecl, method, vbMethod.withIntepreter());
@@ -88,6 +91,11 @@ public class JavaModuleDecl extends ModuleDecl {
 				}
 			}
 		}
+		for (JavaMethod m : hinted) {
+			if (!this.members.containsKey(m.name.toUpperCase())) {
+				this.addMember(m);
+			}
+		}
 
 		for (Field fld : this.javaClass.getFields()) {
 			int modifier = fld.getModifiers();
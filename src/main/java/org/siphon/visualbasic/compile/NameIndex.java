@@ -23,10 +23,12 @@ package org.siphon.visualbasic.compile;
 
 import org.siphon.visualbasic.*;
 
+import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /*
  * 对所有可引用成员（类型、常量、函数）列出所有可能的名字。不分是不是 public 都建立索引。
@@ -48,10 +50,11 @@ import java.util.Map;
  * 	Name
  * 	Lib.Name
  * 
+ * 过程体并行编译时多个线程同时查找，登记只在声明阶段，故用读多写少的并发容器。
  */
-public class NameIndex {
+public class NameIndex implements Serializable {
 
-	public Map<String, List<VbDecl>> indexes = new HashMap<>();
+	public Map<String, List<VbDecl>> indexes = new ConcurrentHashMap<>();
 
 	public void addDecl(VbDecl decl) {
 		if (decl instanceof Library) {
@@ -108,11 +111,7 @@ public class NameIndex {
 	}
 	
 	private void append(VbDecl decl, String name) {
-		List<VbDecl> ls = indexes.get(name);
-		if (ls == null) {
-			indexes.put(name,ls = new ArrayList<>());
-		}
-		ls.add(decl);
+		indexes.computeIfAbsent(name, k -> new CopyOnWriteArrayList<>()).add(decl);
 	}
 
 	public Library findLibrary(String name) {
@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Inshua<inshua@gmail.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.siphon.visualbasic.compile;
+
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import vba.VbaLexer;
+import vba.VbaParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 两阶段解析 VBA 源码。
+ * <p>
+ * 先以 SLL 预测解析，遇到语法错误立即放弃（BailErrorStrategy），再以完整的 LL 预测和常规错误恢复重新解析。
+ * 绝大多数代码 SLL 即可解析成功，比 LL 快得多；有语法错误或 SLL 不能判定时，结果和错误报告与直接 LL 解析相同。
+ * <p>
+ * VbaParser 的 DFA 缓存为静态共享，各线程、各次解析共用，{@link #warmUp} 可在启动时预先填充。
+ */
+public class SourceParser {
+
+	private static final LongAdder sllParses = new LongAdder();
+
+	private static final LongAdder llParses = new LongAdder();
+
+	/**
+	 * @param rule 入口规则，如 VbaParser::module
+	 * @param errorListener 语法错误的接收者，可为 null，仅在 LL 阶段报告
+	 */
+	public static <T extends ParserRuleContext> T parse(CharStream input, Function<VbaParser, T> rule, ANTLRErrorListener errorListener) {
+		return parse(input, rule, errorListener, true);
+	}
+
+	private static <T extends ParserRuleContext> T parse(CharStream input, Function<VbaParser, T> rule, ANTLRErrorListener errorListener, boolean console) {
+		CommonTokenStream tokenStream = new CommonTokenStream(new VbaLexer(input));
+		VbaParser parser = new VbaParser(tokenStream);
+		parser.setBuildParseTree(true);
+
+		parser.removeErrorListeners();
+		parser.setErrorHandler(new BailErrorStrategy());
+		parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+		try {
+			T result = rule.apply(parser);
+			sllParses.increment();
+			return result;
+		} catch (ParseCancellationException e) {
+			// SLL 失败，从头以 LL 重新解析
+		}
+
+		tokenStream.seek(0);
+		parser.reset();
+		if (console) {
+			parser.addErrorListener(ConsoleErrorListener.INSTANCE);
+		}
+		if (errorListener != null) {
+			parser.addErrorListener(errorListener);
+		}
+		parser.setErrorHandler(new DefaultErrorStrategy());
+		parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+		llParses.increment();
+		return rule.apply(parser);
+	}
+
+	/**
+	 * 解析一批有代表性的源码并丢弃结果，使常用的预测路径进入共享 DFA 缓存，后续编译不再为此付出代价。
+	 * 读取失败的文件忽略。
+	 */
+	public static void warmUp(Iterable<File> files, String charset) {
+		for (File file : files) {
+			try {
+				parse(new ANTLRFileStream(file.getPath(), charset), VbaParser::module, null, false);
+			} catch (IOException e) {
+				// 预热不影响正确性
+			}
+		}
+	}
+
+	public static void warmUp(String... sources) {
+		for (String source : sources) {
+			parse(new ANTLRInputStream(source), VbaParser::module, null, false);
+		}
+	}
+
+	/**
+	 * SLL 一次解析成功的次数
+	 */
+	public static long getSllParses() {
+		return sllParses.sum();
+	}
+
+	/**
+	 * 退回 LL 重新解析的次数
+	 */
+	public static long getLlParses() {
+		return llParses.sum();
+	}
+}
@@ -248,7 +248,7 @@ public class ValueStatementCompiler {
 			ValueStatementDesc v2 = compileValueStatement(op.valueStmt(1), method);
 			CompareStatements.checkAllowCompare(v1.getVarType(), v2.getVarType());
 			Statement stmt = new CompareStatements.LikeStatement(method.module.sourceLocation(valueStmt), v1.getStatement(),
-					v2.getStatement());
+					v2.getStatement(), method.module.isTextCompare());
 			result.setStatement(stmt).setVarType(VbVarType.VbBoolean).setAst(valueStmt);
 
 		} else if (valueStmt instanceof VsGeqContext) {
@@ -257,7 +257,7 @@ public class ValueStatementCompiler {
 			ValueStatementDesc v2 = compileValueStatement(op.valueStmt(1), method);
 			CompareStatements.checkAllowCompare(v1.getVarType(), v2.getVarType());
 			Statement stmt = new CompareStatements.GeqStatement(method.module.sourceLocation(valueStmt), v1.getStatement(),
-					v2.getStatement());
+					v2.getStatement(), method.module.isTextCompare());
 			result.setStatement(stmt).setVarType(VbVarType.VbBoolean).setAst(valueStmt);
 
 		} else if (valueStmt instanceof VsEqContext) {
@@ -266,7 +266,7 @@ public class ValueStatementCompiler {
 			ValueStatementDesc v2 = compileValueStatement(op.valueStmt(1), method);
 			CompareStatements.checkAllowCompare(v1.getVarType(), v2.getVarType());
 			Statement stmt = new CompareStatements.EqStatement(method.module.sourceLocation(valueStmt), v1.getStatement(),
-					v2.getStatement());
+					v2.getStatement(), method.module.isTextCompare());
 			result.setStatement(stmt).setVarType(VbVarType.VbBoolean).setAst(valueStmt);
 
 		} else if (valueStmt instanceof VsLeqContext) {
@@ -275,7 +275,7 @@ public class ValueStatementCompiler {
 			ValueStatementDesc v2 = compileValueStatement(op.valueStmt(1), method);
 			CompareStatements.checkAllowCompare(v1.getVarType(), v2.getVarType());
 			Statement stmt = new CompareStatements.LeqStatement(method.module.sourceLocation(valueStmt), v1.getStatement(),
-					v2.getStatement());
+					v2.getStatement(), method.module.isTextCompare());
 			result.setStatement(stmt).setVarType(VbVarType.VbBoolean).setAst(valueStmt);
 
 		} else if (valueStmt instanceof VsGtContext) {
@@ -284,7 +284,7 @@ public class ValueStatementCompiler {
 			ValueStatementDesc v2 = compileValueStatement(op.valueStmt(1), method);
 			CompareStatements.checkAllowCompare(v1.getVarType(), v2.getVarType());
 			Statement stmt = new CompareStatements.GtStatement(method.module.sourceLocation(valueStmt), v1.getStatement(),
-					v2.getStatement());
+					v2.getStatement(), method.module.isTextCompare());
 			result.setStatement(stmt).setVarType(VbVarType.VbBoolean).setAst(valueStmt);
 
 		} else if (valueStmt instanceof VsLtContext) {
@@ -293,7 +293,7 @@ public class ValueStatementCompiler {
 			ValueStatementDesc v2 = compileValueStatement(op.valueStmt(1), method);
 			CompareStatements.checkAllowCompare(v1.getVarType(), v2.getVarType());
 			Statement stmt = new CompareStatements.LtStatement(method.module.sourceLocation(valueStmt), v1.getStatement(),
-					v2.getStatement());
+					v2.getStatement(), method.module.isTextCompare());
 			result.setStatement(stmt).setVarType(VbVarType.VbBoolean).setAst(valueStmt);
 
 		} else if (valueStmt instanceof VsNeqContext) {
@@ -302,7 +302,7 @@ public class ValueStatementCompiler {
 			ValueStatementDesc v2 = compileValueStatement(op.valueStmt(1), method);
 			CompareStatements.checkAllowCompare(v1.getVarType(), v2.getVarType());
 			Statement stmt = new CompareStatements.NeqStatement(method.module.sourceLocation(valueStmt), v1.getStatement(),
-					v2.getStatement());
+					v2.getStatement(), method.module.isTextCompare());
 			result.setStatement(stmt).setVarType(VbVarType.VbBoolean).setAst(valueStmt);
 			
 		} else if(valueStmt instanceof VsTypeOfContext){
@@ -400,8 +400,9 @@ public class ValueStatementCompiler {
 		int depth = 0;
 		
 		if (inWithStatement) {
-			base = compiler.withObjDecl;
-			baseLoacation = compiler.withObjDeclLocation;
+			Compiler.WithObject with = compiler.currentWith();
+			base = with != null ? with.decl : null;
+			baseLoacation = with != null ? with.location : null;
 			assert (first instanceof MemberCallContext) || (first instanceof DictionaryCallContext);
 			thrumb.add(first);
 			
@@ -514,7 +515,7 @@ public class ValueStatementCompiler {
 				result = new EvalAssignableStatement(method.module.sourceLocation(implicitCallStmt), c);
 				type = c.varType;
 			} else {
-				return new ValueStatementDesc().setStatement(new LiteralStatement(c)).setVarType(type).setAst(implicitCallStmt);
+				return new ValueStatementDesc().setStatement(new LiteralStatement(c)).setVarType(c.varType).setAst(implicitCallStmt);
 			}
 		} else if (base instanceof VarDecl) {
 			VarDecl vd = (VarDecl) base;
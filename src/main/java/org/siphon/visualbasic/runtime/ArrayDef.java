@@ -23,9 +23,11 @@ package org.siphon.visualbasic.runtime;
 
 import org.apache.commons.lang3.StringUtils;
 
-public class ArrayDef {
+import java.io.Serializable;
 
-	public static class Rank{
+public class ArrayDef implements Serializable {
+
+	public static class Rank implements Serializable {
 		public final int lBound;
 		
 		public final int rBound;
@@ -43,7 +45,7 @@ public class ArrayDef {
 		}
 	}
 	
-	public static class RankAsStatement{
+	public static class RankAsStatement implements Serializable {
 		public final Statement lBound;
 		
 		public final Statement rBound;
@@ -21,12 +21,13 @@
  ******************************************************************************/
 package org.siphon.visualbasic.runtime;
 
-import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.siphon.visualbasic.*;
 import org.siphon.visualbasic.runtime.statements.GotoStatement;
 
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Stack;
 
@@ -34,7 +35,9 @@ public class CallFrame {
 
 	public final Map<String, RuntimeLibrary> libs;
 
-	public final Map<VarDecl, VbVariable> local = new HashMap<>();
+	private static final VbVariable[] NO_LOCALS = new VbVariable[0];
+
+	public final VbVariable[] local;	// 按 VarDecl.slot 索引
 
 	public final ModuleInstance module;
 
@@ -54,10 +57,18 @@ public class CallFrame {
 
 	public int statementIndex = 0;
 
+	// 要求切换到带监听的执行循环时，nextStatement 暂存于此，nextStatement 置为 SWITCH_LOOP 使当前循环退出
+	private int switchedNextStatement = -1;
+
+	private static final int SWITCH_LOOP = Integer.MAX_VALUE;
+
+	private Map<Statement, Object> statementStates;	// With、For Each 等语句在本帧中的运行状态，语句对象在线程、递归调用之间共享，不能保存状态
+
 	public CallFrame(Map<String, RuntimeLibrary> global, ModuleInstance moduleInstance, MethodDecl method) {
 		this.libs = global;
 		this.module = moduleInstance;
 		this.method = method;
+		this.local = method == null ? NO_LOCALS : new VbVariable[method.getSlotCount()];
 	}
 
 	public VbVariable locateVbVariable(VarDecl varDecl, ModuleInstance moduleInstance) {
@@ -84,12 +95,15 @@ public class CallFrame {
 				return moduleInstance.variables.get(varDecl);
 			}
 		} else {
-			if(varDecl.isImplicit){
-				if(local.containsKey(varDecl) == false){
-					local.put(varDecl, varDecl.createVar());
+			VbVariable var = local[varDecl.slot];
+			if (var == null) {
+				if (varDecl.isImplicit) {
+					var = local[varDecl.slot] = varDecl.createVar();
 				}
+			} else {
+				var.flushAppend();
 			}
-			return local.get(varDecl);
+			return var;
 		}
 	}
 	
@@ -97,8 +111,45 @@ public class CallFrame {
 		return this.locateVbVariable(varDecl, null);
 	}
 
+	/**
+	 * 让执行本帧的循环在当前语句结束后退出，由 Interpreter 改用带监听的循环从原处继续。
+	 * 当前语句自行改写 nextStatement（跳转、错误处理等）时本次请求失效
+	 */
+	public void requestInstrumentation() {
+		if (switchedNextStatement < 0 && nextStatement != SWITCH_LOOP) {
+			switchedNextStatement = nextStatement;
+			nextStatement = SWITCH_LOOP;
+		}
+	}
+
+	/**
+	 * 执行循环退出后调用：若是因 requestInstrumentation 退出，恢复 nextStatement 并返回 true
+	 */
+	public boolean resumeInstrumented() {
+		int next = switchedNextStatement;
+		switchedNextStatement = -1;
+		if (next >= 0 && nextStatement == SWITCH_LOOP) {
+			nextStatement = next;
+			return true;
+		}
+		return false;
+	}
+
+	public Object getStatementState(Statement statement) {
+		return statementStates == null ? null : statementStates.get(statement);
+	}
+
+	public void setStatementState(Statement statement, Object state) {
+		if (statementStates == null) {
+			statementStates = new IdentityHashMap<>();
+		}
+		statementStates.put(statement, state);
+	}
+
 	public VbValue getFunctionResult() {
-		return local.get(method.result).value;
+		VbVariable result = local[method.result.slot];
+		result.flushAppend();
+		return result.value;
 	}
 
 	public ModuleInstance locateRuntimeModule(ModuleMemberDecl decl) {
@@ -112,14 +163,34 @@ public class CallFrame {
 
 	@Override
 	public String toString() {
-		return String.format("Call Frame @(%s) \r\n%s", method.name, StringUtils.join(local.values(), "\r\n"));
+		return String.format("Call Frame @(%s) \r\n%s", method.name, StringUtils.join(getVariables().values(), "\r\n"));
 	}
 
 	public Statement getCurrentStatement() {
 		return this.method.statements.get(this.statementIndex);
 	}
 
+	/**
+	 * 本帧的局部变量，供调试器、ExecutionListener 查看。尚未合并的自身追加先合并，使其看到当前的值
+	 */
 	public Map<VarDecl, VbVariable> getVariables(){
-		return MapUtils.unmodifiableMap(this.local);
+		Map<VarDecl, VbVariable> result = new LinkedHashMap<>();
+		boolean[] argSlots = new boolean[local.length];
+		if (method != null) {
+			for (ArgumentDecl arg : method.arguments) {	// ByRef 参数的变量可能是调用者的变量，按形参登记
+				if (local[arg.slot] != null) {
+					local[arg.slot].flushAppend();
+					result.put(arg, local[arg.slot]);
+				}
+				argSlots[arg.slot] = true;
+			}
+		}
+		for (int i = 0; i < local.length; i++) {
+			if (local[i] != null && argSlots[i] == false) {
+				local[i].flushAppend();
+				result.put(local[i].varDecl, local[i]);
+			}
+		}
+		return Collections.unmodifiableMap(result);
 	}
 }
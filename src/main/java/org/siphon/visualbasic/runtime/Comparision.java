@@ -35,7 +35,7 @@ public class Comparision {
 		
 		boolean returnVariant = (num1.isVariant() || num2.isVariant());
 		int c = compare(num1, num2);
-		VbValue r = new VbValue(VbVarType.VbBoolean, c == 0? -1 : 0);
+		VbValue r = VbValue.ofBoolean(c == 0);
 		if(returnVariant){
 			return new VbValue(VbVarType.VbVariant, r);
 		} else {
@@ -53,7 +53,7 @@ public class Comparision {
 		
 		boolean returnVariant = (num1.isVariant() || num2.isVariant());
 		int c = compare(num1, num2);
-		VbValue r = new VbValue(VbVarType.VbBoolean, c != 0? -1 : 0);
+		VbValue r = VbValue.ofBoolean(c != 0);
 		if(returnVariant){
 			return new VbValue(VbVarType.VbVariant, r);
 		} else {
@@ -71,7 +71,7 @@ public class Comparision {
 		
 		boolean returnVariant = (num1.isVariant() || num2.isVariant());
 		int c = compare(num1, num2);
-		VbValue r = new VbValue(VbVarType.VbBoolean, c > 0? -1 : 0);
+		VbValue r = VbValue.ofBoolean(c > 0);
 		if(returnVariant){
 			return new VbValue(VbVarType.VbVariant, r);
 		} else {
@@ -89,7 +89,7 @@ public class Comparision {
 		
 		boolean returnVariant = (num1.isVariant() || num2.isVariant());
 		int c = compare(num1, num2);
-		VbValue r = new VbValue(VbVarType.VbBoolean, c >= 0? -1 : 0);
+		VbValue r = VbValue.ofBoolean(c >= 0);
 		if(returnVariant){
 			return new VbValue(VbVarType.VbVariant, r);
 		} else {
@@ -107,7 +107,7 @@ public class Comparision {
 		
 		boolean returnVariant = (num1.isVariant() || num2.isVariant());
 		int c = compare(num1, num2);
-		VbValue r = new VbValue(VbVarType.VbBoolean, c <= 0? -1 : 0);
+		VbValue r = VbValue.ofBoolean(c <= 0);
 		if(returnVariant){
 			return new VbValue(VbVarType.VbVariant, r);
 		} else {
@@ -125,7 +125,7 @@ public class Comparision {
 		
 		boolean returnVariant = (num1.isVariant() || num2.isVariant());
 		int c = compare(num1, num2);
-		VbValue r = new VbValue(VbVarType.VbBoolean, c < 0? -1 : 0);
+		VbValue r = VbValue.ofBoolean(c < 0);
 		if(returnVariant){
 			return new VbValue(VbVarType.VbVariant, r);
 		} else {
@@ -133,6 +133,23 @@ public class Comparision {
 		}
 	}
 	
+	/**
+	 * Option Compare Text 下比较两个字符串，逐字符折叠大小写，与按 TextKey 比较的结果一致
+	 */
+	public static int compareText(String s1, String s2) {
+		return String.CASE_INSENSITIVE_ORDER.compare(s1, s2);
+	}
+
+	/**
+	 * @param textCompare 两边都是字符串时是否忽略大小写（Option Compare Text）
+	 */
+	public static int compare(VbValue num1, VbValue num2, boolean textCompare) {
+		if (textCompare && num1.isString() && num2.isString()) {
+			return compareText((String) num1.getExactValue(), (String) num2.getExactValue());
+		}
+		return compare(num1, num2);
+	}
+
 	public static int compare(VbValue num1, VbValue num2) {
 		
 		VbVarType resultType = null;
@@ -169,9 +186,9 @@ public class Comparision {
 		}
 
 		if (num1.varType.vbType == VbVarType.vbEmpty)
-			num1 = new VbValue(VbVarType.VbInteger, 0);
+			num1 = VbValue.ofInteger(0);
 		if (num2.varType.vbType == VbVarType.vbEmpty)
-			num2 = new VbValue(VbVarType.VbInteger, 0);
+			num2 = VbValue.ofInteger(0);
 
 		if (num1.varType.vbType == VbVarType.vbBoolean)
 			num1 = VbValue.cast(num1, VbVarType.vbInteger);
@@ -196,4 +213,41 @@ public class Comparision {
 		return Math.signum(a.doubleValue() - b.doubleValue());
 	}
 
+	/**
+	 * Option Compare Text 下字符串的比较键，逐字符折叠大小写，键之间按 String.compareTo 比较。
+	 * 记住原串，原串仍是同一对象（字面量、未改变的变量）时可以沿用上次的键，不必重新折叠
+	 */
+	public static final class TextKey {
+
+		public final String source;
+
+		public final String key;
+
+		private TextKey(String source) {
+			this.source = source;
+			this.key = fold(source);
+		}
+
+		public static TextKey of(String s, TextKey last) {
+			return last != null && last.source == s ? last : new TextKey(s);
+		}
+
+		private static String fold(String s) {
+			int n = s.length();
+			int i = 0;
+			while (i < n && TextSearch.fold(s.charAt(i)) == s.charAt(i)) {
+				i++;
+			}
+			if (i == n) {
+				return s;
+			}
+			char[] cs = new char[n];
+			s.getChars(0, i, cs, 0);
+			for (; i < n; i++) {
+				cs[i] = TextSearch.fold(s.charAt(i));
+			}
+			return new String(cs);
+		}
+	}
+
 }
@@ -0,0 +1,921 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Inshua<inshua@gmail.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.siphon.visualbasic.runtime;
+
+import org.siphon.visualbasic.ArgumentMode;
+import org.siphon.visualbasic.MeDecl;
+import org.siphon.visualbasic.MethodDecl;
+import org.siphon.visualbasic.MethodType;
+import org.siphon.visualbasic.SourceLocation;
+import org.siphon.visualbasic.VarDecl;
+import org.siphon.visualbasic.compile.ImpossibleException;
+import org.siphon.visualbasic.runtime.statements.AssignStatement;
+import org.siphon.visualbasic.runtime.statements.BinaryStatement;
+import org.siphon.visualbasic.runtime.statements.CalcStatements;
+import org.siphon.visualbasic.runtime.statements.CompareStatements;
+import org.siphon.visualbasic.runtime.statements.EvalAssignableStatement;
+import org.siphon.visualbasic.runtime.statements.EvalAssignableStatement.MemberAtLocation;
+import org.siphon.visualbasic.runtime.statements.ExitMethodStatement;
+import org.siphon.visualbasic.runtime.statements.ForNextStatement;
+import org.siphon.visualbasic.runtime.statements.GotoStatement;
+import org.siphon.visualbasic.runtime.statements.IfNotGotoStatement;
+import org.siphon.visualbasic.runtime.statements.LiteralStatement;
+import org.siphon.visualbasic.runtime.statements.LogicalStatements;
+import org.siphon.visualbasic.runtime.statements.VariableStatement;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 热点过程的编译形式。
+ * 
+ * MethodDecl 累计调用次数，达到 Interpreter 的编译阈值后尝试把过程体编译为类型化的节点树：Integer、Long、Boolean 
+ * 局部变量存放在 long[] 中，Double 存放在 double[] 中，运算过程不再产生 VbValue。只有全部由数值局部变量、字面量、
+ * 算术、比较、逻辑运算、赋值、Dim、For...Next、If、Goto、Exit 构成的过程才能编译，遇到 GoSub、On Error、过程调用、
+ * 对象成员、Variant 等其它情况 compile 返回 null，过程继续由解释器执行。
+ * 
+ * 节点与 MethodDecl.statements 一一对应，出错时把语句序号写回 CallFrame.statementIndex，错误号、出错位置与解释执行一致，
+ * 如 Integer 运算超出范围时同样报告“溢出”。
+ */
+public class CompiledMethod {
+
+	// 值的种类，按类型提升的顺序排列
+	private static final int BOOLEAN = 1;
+	private static final int INTEGER = 2;
+	private static final int LONG = 3;
+	private static final int DOUBLE = 4;
+
+	private final Step[] steps;
+
+	private final int frameSize;
+
+	private final int[] argumentSlots;
+
+	private final int[] argumentKinds;
+
+	private final int resultSlot;
+
+	private final int resultKind;
+
+	private CompiledMethod(Step[] steps, int frameSize, int[] argumentSlots, int[] argumentKinds, int resultSlot, int resultKind) {
+		this.steps = steps;
+		this.frameSize = frameSize;
+		this.argumentSlots = argumentSlots;
+		this.argumentKinds = argumentKinds;
+		this.resultSlot = resultSlot;
+		this.resultKind = resultKind;
+	}
+
+	/**
+	 * 在已绑定参数的调用帧上执行。参数的实际类型与声明不符时（如 ByRef 传入的 Variant）返回 false，尚未执行任何语句，由解释器接手。
+	 */
+	public boolean run(CallFrame frame) throws VbRuntimeException {
+		long[] l = new long[frameSize];
+		double[] d = new double[frameSize];
+		for (int i = 0; i < argumentSlots.length; i++) {
+			int slot = argumentSlots[i];
+			VbValue value = frame.local[slot].value;
+			if (value.varType.vbType != toVbType(argumentKinds[i])) {
+				return false;
+			}
+			if (argumentKinds[i] == DOUBLE) {
+				d[slot] = ((Number) value.value).doubleValue();
+			} else {
+				l[slot] = ((Number) value.value).longValue();
+			}
+		}
+
+		final Step[] steps = this.steps;
+		int pc = 0;
+		try {
+			while (pc < steps.length) {
+				pc = steps[pc].exec(l, d);
+			}
+		} catch (VbRuntimeException e) {
+			frame.statementIndex = pc;
+			throw e;
+		}
+
+		if (resultSlot != -1) {
+			frame.local[resultSlot].value = box(resultKind, l[resultSlot], d[resultSlot]);
+		}
+		return true;
+	}
+
+	/**
+	 * 编译过程，不支持时返回 null
+	 */
+	public static CompiledMethod compile(MethodDecl method) {
+		try {
+			return new Builder(method).build();
+		} catch (NotCompilableException e) {
+			return null;
+		}
+	}
+
+	private static int toVbType(int kind) {
+		switch (kind) {
+		case BOOLEAN:
+			return VbVarType.vbBoolean;
+		case INTEGER:
+			return VbVarType.vbInteger;
+		case LONG:
+			return VbVarType.vbLong;
+		case DOUBLE:
+			return VbVarType.vbDouble;
+		default:
+			throw new ImpossibleException();
+		}
+	}
+
+	private static VbValue box(int kind, long l, double d) {
+		switch (kind) {
+		case BOOLEAN:
+			return l == 0 ? VbValue.FALSE : l == -1 ? VbValue.TRUE : new VbValue(VbVarType.VbBoolean, (int) l);
+		case INTEGER:
+			return VbValue.ofInteger((int) l);
+		case LONG:
+			return VbValue.ofLong(l);
+		case DOUBLE:
+			return new VbValue(VbVarType.VbDouble, d);
+		default:
+			throw new ImpossibleException();
+		}
+	}
+
+	// 与 new VbValue(VbVarType.VbInteger, ...) 的范围检查一致
+	private static long checkInteger(long value, SourceLocation sourceLocation) throws VbRuntimeException {
+		if (value < -32768 || value > 32767) {
+			throw new VbRuntimeException(VbRuntimeException.溢出, sourceLocation);
+		}
+		return value;
+	}
+
+	private static class NotCompilableException extends Exception {
+		NotCompilableException() {
+			super(null, null, false, false);
+		}
+	}
+
+	// ================================ 表达式 ================================
+
+	private static abstract class Expr {
+		final int kind;
+		final SourceLocation sourceLocation;
+
+		Expr(int kind, SourceLocation sourceLocation) {
+			this.kind = kind;
+			this.sourceLocation = sourceLocation;
+		}
+
+		// kind 为 BOOLEAN、INTEGER、LONG 时调用
+		abstract long evalLong(long[] l, double[] d) throws VbRuntimeException;
+
+		double evalDouble(long[] l, double[] d) throws VbRuntimeException {
+			return evalLong(l, d);
+		}
+	}
+
+	private static abstract class DoubleExpr extends Expr {
+		DoubleExpr(SourceLocation sourceLocation) {
+			super(DOUBLE, sourceLocation);
+		}
+
+		@Override
+		long evalLong(long[] l, double[] d) {
+			throw new ImpossibleException();
+		}
+
+		@Override
+		abstract double evalDouble(long[] l, double[] d) throws VbRuntimeException;
+	}
+
+	private static class LongConst extends Expr {
+		private final long value;
+
+		LongConst(int kind, long value) {
+			super(kind, SourceLocation.ByInterpreter);
+			this.value = value;
+		}
+
+		@Override
+		long evalLong(long[] l, double[] d) {
+			return value;
+		}
+	}
+
+	private static class DoubleConst extends DoubleExpr {
+		private final double value;
+
+		DoubleConst(double value) {
+			super(SourceLocation.ByInterpreter);
+			this.value = value;
+		}
+
+		@Override
+		double evalDouble(long[] l, double[] d) {
+			return value;
+		}
+	}
+
+	private static class LongLocal extends Expr {
+		private final int slot;
+
+		LongLocal(int kind, int slot) {
+			super(kind, SourceLocation.ByInterpreter);
+			this.slot = slot;
+		}
+
+		@Override
+		long evalLong(long[] l, double[] d) {
+			return l[slot];
+		}
+	}
+
+	private static class DoubleLocal extends DoubleExpr {
+		private final int slot;
+
+		DoubleLocal(int slot) {
+			super(SourceLocation.ByInterpreter);
+			this.slot = slot;
+		}
+
+		@Override
+		double evalDouble(long[] l, double[] d) {
+			return d[slot];
+		}
+	}
+
+	private static final int ADD = 0, SUBTRACT = 1, MULTI = 2, DIV = 3, IDIV = 4;
+
+	// Integer、Long 运算，Integer 结果检查范围，Long 溢出时报告溢出
+	private static class LongArith extends Expr {
+		private final int op;
+		private final Expr v1, v2;
+
+		LongArith(int kind, int op, Expr v1, Expr v2, SourceLocation sourceLocation) {
+			super(kind, sourceLocation);
+			this.op = op;
+			this.v1 = v1;
+			this.v2 = v2;
+		}
+
+		@Override
+		long evalLong(long[] l, double[] d) throws VbRuntimeException {
+			long a = v1.evalLong(l, d);
+			long b = v2.evalLong(l, d);
+			long r;
+			try {
+				switch (op) {
+				case ADD:
+					r = Math.addExact(a, b);
+					break;
+				case SUBTRACT:
+					r = Math.subtractExact(a, b);
+					break;
+				case MULTI:
+					r = Math.multiplyExact(a, b);
+					break;
+				case IDIV:
+					if (b == 0) {
+						throw new VbRuntimeException(VbRuntimeException.除以零, sourceLocation);
+					}
+					if (a == Long.MIN_VALUE && b == -1) {
+						throw new ArithmeticException();
+					}
+					r = a / b;
+					break;
+				default:
+					throw new ImpossibleException();
+				}
+			} catch (ArithmeticException e) {
+				throw new VbRuntimeException(VbRuntimeException.溢出, sourceLocation);
+			}
+			if (kind == INTEGER) {
+				checkInteger(r, sourceLocation);
+			}
+			return r;
+		}
+	}
+
+	private static class DoubleArith extends DoubleExpr {
+		private final int op;
+		private final Expr v1, v2;
+
+		DoubleArith(int op, Expr v1, Expr v2, SourceLocation sourceLocation) {
+			super(sourceLocation);
+			this.op = op;
+			this.v1 = v1;
+			this.v2 = v2;
+		}
+
+		@Override
+		double evalDouble(long[] l, double[] d) throws VbRuntimeException {
+			double a = v1.evalDouble(l, d);
+			double b = v2.evalDouble(l, d);
+			switch (op) {
+			case ADD:
+				return a + b;
+			case SUBTRACT:
+				return a - b;
+			case MULTI:
+				return a * b;
+			case DIV:
+				double r = a / b;
+				if (Double.isInfinite(r)) {
+					throw new VbRuntimeException(VbRuntimeException.除以零, sourceLocation);
+				}
+				return r;
+			default:
+				throw new ImpossibleException();
+			}
+		}
+	}
+
+	private static class LongNeg extends Expr {
+		private final Expr v;
+
+		LongNeg(int kind, Expr v, SourceLocation sourceLocation) {
+			super(kind, sourceLocation);
+			this.v = v;
+		}
+
+		@Override
+		long evalLong(long[] l, double[] d) throws VbRuntimeException {
+			long r;
+			try {
+				r = Math.negateExact(v.evalLong(l, d));
+			} catch (ArithmeticException e) {
+				throw new VbRuntimeException(VbRuntimeException.溢出, sourceLocation);
+			}
+			if (kind == INTEGER) {
+				checkInteger(r, sourceLocation);
+			}
+			return r;
+		}
+	}
+
+	private static class DoubleNeg extends DoubleExpr {
+		private final Expr v;
+
+		DoubleNeg(Expr v, SourceLocation sourceLocation) {
+			super(sourceLocation);
+			this.v = v;
+		}
+
+		@Override
+		double evalDouble(long[] l, double[] d) throws VbRuntimeException {
+			return -v.evalDouble(l, d);
+		}
+	}
+
+	private static final int EQ = 0, NEQ = 1, GT = 2, GEQ = 3, LEQ = 4, LT = 5;
+
+	// 与 Comparision.compare 一致，数值一律按 Double 比较
+	private static class Compare extends Expr {
+		private final int op;
+		private final Expr v1, v2;
+
+		Compare(int op, Expr v1, Expr v2, SourceLocation sourceLocation) {
+			super(BOOLEAN, sourceLocation);
+			this.op = op;
+			this.v1 = v1;
+			this.v2 = v2;
+		}
+
+		@Override
+		long evalLong(long[] l, double[] d) throws VbRuntimeException {
+			int c = Double.compare(v1.evalDouble(l, d), v2.evalDouble(l, d));
+			boolean r;
+			switch (op) {
+			case EQ:
+				r = c == 0;
+				break;
+			case NEQ:
+				r = c != 0;
+				break;
+			case GT:
+				r = c > 0;
+				break;
+			case GEQ:
+				r = c >= 0;
+				break;
+			case LEQ:
+				r = c <= 0;
+				break;
+			case LT:
+				r = c < 0;
+				break;
+			default:
+				throw new ImpossibleException();
+			}
+			return r ? -1 : 0;
+		}
+	}
+
+	private static final int AND = 0, OR = 1, XOR = 2;
+
+	// 按位运算，Boolean 以 -1、0 表示，因此同样适用
+	private static class Logical extends Expr {
+		private final int op;
+		private final Expr v1, v2;
+
+		Logical(int kind, int op, Expr v1, Expr v2, SourceLocation sourceLocation) {
+			super(kind, sourceLocation);
+			this.op = op;
+			this.v1 = v1;
+			this.v2 = v2;
+		}
+
+		@Override
+		long evalLong(long[] l, double[] d) throws VbRuntimeException {
+			long a = v1.evalLong(l, d);
+			long b = v2.evalLong(l, d);
+			switch (op) {
+			case AND:
+				return a & b;
+			case OR:
+				return a | b;
+			case XOR:
+				return a ^ b;
+			default:
+				throw new ImpossibleException();
+			}
+		}
+	}
+
+	private static class Not extends Expr {
+		private final Expr v;
+
+		Not(Expr v, SourceLocation sourceLocation) {
+			super(v.kind, sourceLocation);
+			this.v = v;
+		}
+
+		@Override
+		long evalLong(long[] l, double[] d) throws VbRuntimeException {
+			return ~v.evalLong(l, d);
+		}
+	}
+
+	// ================================ 语句 ================================
+
+	private static abstract class Step {
+		final int next;
+
+		Step(int next) {
+			this.next = next;
+		}
+
+		// 返回下一条语句的序号
+		abstract int exec(long[] l, double[] d) throws VbRuntimeException;
+	}
+
+	// 写入局部变量，转换规则与 VbValue.cast 一致
+	private static class Store {
+		private final int kind;
+		private final int slot;
+		private final Expr value;
+		private final SourceLocation sourceLocation;
+
+		Store(int kind, int slot, Expr value, SourceLocation sourceLocation) {
+			this.kind = kind;
+			this.slot = slot;
+			this.value = value;
+			this.sourceLocation = sourceLocation;
+		}
+
+		void exec(long[] l, double[] d) throws VbRuntimeException {
+			if (kind == DOUBLE) {
+				d[slot] = value.evalDouble(l, d);
+			} else if (kind == INTEGER && value.kind == LONG) {
+				// CInt 取 intValue 后再检查范围
+				l[slot] = checkInteger((int) value.evalLong(l, d), sourceLocation);
+			} else {
+				l[slot] = value.evalLong(l, d);
+			}
+		}
+	}
+
+	private static class Assign extends Step {
+		private final Store store;
+
+		Assign(int next, Store store) {
+			super(next);
+			this.store = store;
+		}
+
+		@Override
+		int exec(long[] l, double[] d) throws VbRuntimeException {
+			store.exec(l, d);
+			return next;
+		}
+	}
+
+	private static class Dim extends Step {
+		private final int slot;
+
+		Dim(int next, int slot) {
+			super(next);
+			this.slot = slot;
+		}
+
+		@Override
+		int exec(long[] l, double[] d) {
+			l[slot] = 0;
+			d[slot] = 0;
+			return next;
+		}
+	}
+
+	private static class Goto extends Step {
+		Goto(int target) {
+			super(target);
+		}
+
+		@Override
+		int exec(long[] l, double[] d) {
+			return next;
+		}
+	}
+
+	private static class IfNotGoto extends Step {
+		private final Expr condition;
+		private final int target;
+
+		IfNotGoto(int next, Expr condition, int target) {
+			super(next);
+			this.condition = condition;
+			this.target = target;
+		}
+
+		@Override
+		int exec(long[] l, double[] d) throws VbRuntimeException {
+			boolean cond;
+			if (condition.kind == DOUBLE) {
+				cond = condition.evalDouble(l, d) != 0;
+			} else {
+				cond = condition.evalLong(l, d) != 0;
+			}
+			return cond ? next : target;
+		}
+	}
+
+	// For 的终值、步长存放在过程槽位之后的临时槽位中
+	private static class ForInit extends Step {
+		private final Store init;
+		private final Store end;
+		private final Store step;
+
+		ForInit(int next, Store init, Store end, Store step) {
+			super(next);
+			this.init = init;
+			this.end = end;
+			this.step = step;
+		}
+
+		@Override
+		int exec(long[] l, double[] d) throws VbRuntimeException {
+			init.exec(l, d);
+			end.exec(l, d);
+			step.exec(l, d);
+			return next;
+		}
+	}
+
+	private static class ForNext extends Step {
+		private final Store increase;
+		private final Expr var;
+		private final Expr end;
+		private final Expr step;
+		private final int beginLine;
+
+		ForNext(int next, Store increase, Expr var, Expr end, Expr step, int beginLine) {
+			super(next);
+			this.increase = increase;
+			this.var = var;
+			this.end = end;
+			this.step = step;
+			this.beginLine = beginLine;
+		}
+
+		@Override
+		int exec(long[] l, double[] d) throws VbRuntimeException {
+			increase.exec(l, d);
+			int c = Double.compare(var.evalDouble(l, d), end.evalDouble(l, d));
+			int expect = step.evalDouble(l, d) < 0 ? -1 : 1;
+			if (Integer.signum(c) == expect) {
+				return next;
+			} else {
+				return beginLine;
+			}
+		}
+	}
+
+	// ================================ 编译 ================================
+
+	private static class Builder {
+		private final MethodDecl method;
+		private final List<Statement> statements;
+		private int frameSize;
+		private final Map<ForNextStatement, Expr[]> forTemps = new HashMap<>();
+
+		Builder(MethodDecl method) {
+			this.method = method;
+			this.statements = method.statements;
+			this.frameSize = method.getSlotCount();
+		}
+
+		CompiledMethod build() throws NotCompilableException {
+			if (method.methodType == MethodType.Rule) {
+				throw new NotCompilableException();
+			}
+			int[] argumentSlots = new int[method.arguments.size()];
+			int[] argumentKinds = new int[method.arguments.size()];
+			for (int i = 0; i < argumentSlots.length; i++) {
+				ArgumentDecl arg = method.arguments.get(i);
+				if (arg.optional || arg.isParamArray) {
+					throw new NotCompilableException();
+				}
+				argumentSlots[i] = arg.slot;
+				argumentKinds[i] = kindOf(arg);
+			}
+			int resultSlot = -1;
+			int resultKind = 0;
+			if (method.methodType == MethodType.Function || method.methodType == MethodType.PropertyGet) {
+				resultSlot = method.result.slot;
+				resultKind = kindOf(method.result);
+			}
+
+			Step[] steps = new Step[statements.size()];
+			for (int i = 0; i < steps.length; i++) {
+				steps[i] = compileStatement(statements.get(i), i);
+			}
+			return new CompiledMethod(steps, frameSize, argumentSlots, argumentKinds, resultSlot, resultKind);
+		}
+
+		private Step compileStatement(Statement statement, int index) throws NotCompilableException {
+			// 只接受确切的类型，OnError、Resume、GoSub 等子类有额外语义
+			Class<?> c = statement.getClass();
+			if (c == GotoStatement.class) {
+				return new Goto(target(((GotoStatement) statement).getNextStatement()));
+			} else if (c == IfNotGotoStatement.class) {
+				IfNotGotoStatement ifNotGoto = (IfNotGotoStatement) statement;
+				return new IfNotGoto(index + 1, compileExpr(ifNotGoto.getCondition()), target(ifNotGoto.getNextStatement()));
+			} else if (c == ExitMethodStatement.class) {
+				return new Goto(statements.size());
+			} else if (c == VariableStatement.class) {
+				VarDecl var = ((VariableStatement) statement).getVarDecl();
+				kindOf(var);
+				return new Dim(index + 1, var.slot);
+			} else if (c == AssignStatement.class) {
+				AssignStatement assign = (AssignStatement) statement;
+				MemberAtLocation assignee = singleMember(assign.getAssignee());
+				VarDecl var = writableLocal(assignee.member);
+				return new Assign(index + 1, store(var.slot, kindOf(var), compileExpr(assign.getValueStatement()), assignee.sourceLocation));
+			} else if (c == ForNextStatement.Init.class) {
+				ForNextStatement.Init init = (ForNextStatement.Init) statement;
+				ForNextStatement forNext = init.getForNext();
+				VarDecl var = writableLocal(forNext.getVar());
+				int kind = kindOf(var);
+				Expr end = compileExpr(forNext.getEnd());
+				Expr step = compileExpr(forNext.getStep());
+				if (kind != DOUBLE && step.kind == DOUBLE) {
+					throw new NotCompilableException(); // 累加后要经 CInt/CLng 舍入
+				}
+				int endSlot = frameSize++;
+				int stepSlot = frameSize++;
+				forTemps.put(forNext, new Expr[] { local(end.kind, endSlot), local(step.kind, stepSlot) });
+				return new ForInit(index + 1, store(var.slot, kind, compileExpr(forNext.getInit()), init.getSourceLocation()),
+						store(endSlot, end.kind, end, init.getSourceLocation()),
+						store(stepSlot, step.kind, step, init.getSourceLocation()));
+			} else if (c == ForNextStatement.Next.class) {
+				ForNextStatement.Next next = (ForNextStatement.Next) statement;
+				Expr[] temps = forTemps.get(next.getForNext());
+				if (temps == null) {
+					throw new NotCompilableException();
+				}
+				VarDecl var = next.getForNext().getVar();
+				int kind = kindOf(var);
+				Expr current = local(kind, var.slot);
+				Expr sum = arith(ADD, current, temps[1], next.getSourceLocation());
+				return new ForNext(index + 1, store(var.slot, kind, sum, next.getSourceLocation()), current, temps[0], temps[1],
+						next.getBeginLine());
+			} else {
+				throw new NotCompilableException();
+			}
+		}
+
+		private int target(int target) throws NotCompilableException {
+			if (target < 0 || target > statements.size()) {
+				throw new NotCompilableException();
+			}
+			return target;
+		}
+
+		private Expr compileExpr(Statement statement) throws NotCompilableException {
+			SourceLocation sourceLocation = statement.getSourceLocation();
+			Class<?> c = statement.getClass();
+			if (c == LiteralStatement.class) {
+				VbValue literal = ((LiteralStatement) statement).getLiteral();
+				switch (literal.varType.vbType) {
+				case VbVarType.vbBoolean:
+					return new LongConst(BOOLEAN, ((Number) literal.value).longValue());
+				case VbVarType.vbInteger:
+					return new LongConst(INTEGER, ((Number) literal.value).longValue());
+				case VbVarType.vbLong:
+					return new LongConst(LONG, ((Number) literal.value).longValue());
+				case VbVarType.vbDouble:
+					return new DoubleConst(((Number) literal.value).doubleValue());
+				default:
+					throw new NotCompilableException();
+				}
+			} else if (c == EvalAssignableStatement.ApplyStatement.class) {
+				MemberAtLocation member = singleMember(((EvalAssignableStatement.ApplyStatement) statement).getBase());
+				VarDecl var = local(member.member);
+				return local(kindOf(var), var.slot);
+			} else if (c == CalcStatements.AddStatement.class) {
+				return arith(ADD, statement, sourceLocation);
+			} else if (c == CalcStatements.SubtractStatement.class) {
+				return arith(SUBTRACT, statement, sourceLocation);
+			} else if (c == CalcStatements.MultiStatement.class) {
+				return arith(MULTI, statement, sourceLocation);
+			} else if (c == CalcStatements.DivStatement.class) {
+				BinaryStatement binary = (BinaryStatement) statement;
+				return new DoubleArith(DIV, compileExpr(binary.getLeft()), compileExpr(binary.getRight()), sourceLocation);
+			} else if (c == CalcStatements.IDivStatement.class) {
+				BinaryStatement binary = (BinaryStatement) statement;
+				Expr v1 = compileExpr(binary.getLeft());
+				Expr v2 = compileExpr(binary.getRight());
+				// MathExpr.idiv 只按左侧提升类型，两侧类型一致或右侧更宽时才能编译
+				if (v1.kind == DOUBLE || v2.kind == DOUBLE || numeric(v1.kind) > numeric(v2.kind)) {
+					throw new NotCompilableException();
+				}
+				return new LongArith(numeric(v2.kind), IDIV, v1, v2, sourceLocation);
+			} else if (c == CalcStatements.NegStatement.class) {
+				Expr v = compileExpr(((CalcStatements.NegStatement) statement).getStatement());
+				if (v.kind == DOUBLE) {
+					return new DoubleNeg(v, sourceLocation);
+				}
+				return new LongNeg(numeric(v.kind), v, sourceLocation);
+			} else if (c == CalcStatements.PosStatement.class) {
+				Expr v = compileExpr(((CalcStatements.PosStatement) statement).getStatement());
+				if (v.kind == BOOLEAN) {
+					return new LongArith(INTEGER, ADD, v, new LongConst(INTEGER, 0), sourceLocation);
+				}
+				return v;
+			} else if (c == CompareStatements.EqStatement.class) {
+				return compare(EQ, statement, sourceLocation);
+			} else if (c == CompareStatements.NeqStatement.class) {
+				return compare(NEQ, statement, sourceLocation);
+			} else if (c == CompareStatements.GtStatement.class) {
+				return compare(GT, statement, sourceLocation);
+			} else if (c == CompareStatements.GeqStatement.class) {
+				return compare(GEQ, statement, sourceLocation);
+			} else if (c == CompareStatements.LeqStatement.class) {
+				return compare(LEQ, statement, sourceLocation);
+			} else if (c == CompareStatements.LtStatement.class) {
+				return compare(LT, statement, sourceLocation);
+			} else if (c == LogicalStatements.AndStatement.class) {
+				return logical(AND, statement, sourceLocation);
+			} else if (c == LogicalStatements.OrStatement.class) {
+				return logical(OR, statement, sourceLocation);
+			} else if (c == LogicalStatements.XorStatement.class) {
+				return logical(XOR, statement, sourceLocation);
+			} else if (c == LogicalStatements.NotStatement.class) {
+				Expr v = compileExpr(((LogicalStatements.NotStatement) statement).getStatement());
+				if (v.kind == DOUBLE) {
+					throw new NotCompilableException();
+				}
+				return new Not(v, sourceLocation);
+			} else {
+				throw new NotCompilableException();
+			}
+		}
+
+		private Expr arith(int op, Statement statement, SourceLocation sourceLocation) throws NotCompilableException {
+			BinaryStatement binary = (BinaryStatement) statement;
+			return arith(op, compileExpr(binary.getLeft()), compileExpr(binary.getRight()), sourceLocation);
+		}
+
+		// Boolean 按 Integer 参与运算，结果取两侧较宽的类型
+		private Expr arith(int op, Expr v1, Expr v2, SourceLocation sourceLocation) {
+			int kind = Math.max(numeric(v1.kind), numeric(v2.kind));
+			if (kind == DOUBLE) {
+				return new DoubleArith(op, v1, v2, sourceLocation);
+			} else {
+				return new LongArith(kind, op, v1, v2, sourceLocation);
+			}
+		}
+
+		private Expr compare(int op, Statement statement, SourceLocation sourceLocation) throws NotCompilableException {
+			BinaryStatement binary = (BinaryStatement) statement;
+			return new Compare(op, compileExpr(binary.getLeft()), compileExpr(binary.getRight()), sourceLocation);
+		}
+
+		private Expr logical(int op, Statement statement, SourceLocation sourceLocation) throws NotCompilableException {
+			BinaryStatement binary = (BinaryStatement) statement;
+			Expr v1 = compileExpr(binary.getLeft());
+			Expr v2 = compileExpr(binary.getRight());
+			if (v1.kind == DOUBLE || v2.kind == DOUBLE) {
+				throw new NotCompilableException();
+			}
+			return new Logical(Math.max(v1.kind, v2.kind), op, v1, v2, sourceLocation);
+		}
+
+		private static int numeric(int kind) {
+			return kind == BOOLEAN ? INTEGER : kind;
+		}
+
+		private Store store(int slot, int kind, Expr value, SourceLocation sourceLocation) throws NotCompilableException {
+			switch (kind) {
+			case BOOLEAN:
+				if (value.kind != BOOLEAN) {
+					throw new NotCompilableException();
+				}
+				break;
+			case INTEGER:
+			case LONG:
+				if (value.kind == DOUBLE) {
+					throw new NotCompilableException(); // CInt、CLng 的舍入规则留给解释器
+				}
+				break;
+			}
+			return new Store(kind, slot, value, sourceLocation);
+		}
+
+		private Expr local(int kind, int slot) {
+			if (kind == DOUBLE) {
+				return new DoubleLocal(slot);
+			} else {
+				return new LongLocal(kind, slot);
+			}
+		}
+
+		private MemberAtLocation singleMember(EvalAssignableStatement statement) throws NotCompilableException {
+			List<MemberAtLocation> thrumb = statement.getThrumb();
+			if (thrumb.size() != 1) {
+				throw new NotCompilableException();
+			}
+			return thrumb.get(0);
+		}
+
+		private VarDecl local(Object member) throws NotCompilableException {
+			if (member instanceof VarDecl == false || member instanceof MeDecl) {
+				throw new NotCompilableException();
+			}
+			VarDecl var = (VarDecl) member;
+			if (var.methodDecl != method || var.isStatic || var.slot < 0) {
+				throw new NotCompilableException();
+			}
+			return var;
+		}
+
+		// ByRef 参数的赋值要反映到调用方，不编译
+		private VarDecl writableLocal(Object member) throws NotCompilableException {
+			VarDecl var = local(member);
+			if (var instanceof ArgumentDecl && ((ArgumentDecl) var).mode != ArgumentMode.ByVal) {
+				throw new NotCompilableException();
+			}
+			return var;
+		}
+
+		private int kindOf(VarDecl var) throws NotCompilableException {
+			if (var.withNew || var.withEvents) {
+				throw new NotCompilableException();
+			}
+			switch (var.varType.vbType) {
+			case VbVarType.vbBoolean:
+				return BOOLEAN;
+			case VbVarType.vbInteger:
+				return INTEGER;
+			case VbVarType.vbLong:
+				return LONG;
+			case VbVarType.vbDouble:
+				return DOUBLE;
+			default:
+				throw new NotCompilableException();
+			}
+		}
+	}
+}
@@ -29,25 +29,82 @@ import org.siphon.visualbasic.compile.Compiler;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.CountDownLatch;
 
-public class Debugger {
+/**
+ * 控制台调试器，由 Stop 语句进入。单步执行时作为 {@link ExecutionListener} 安装到解释器上，继续运行时移除，
+ * 因此不调试时不影响执行速度。
+ */
+public class Debugger implements ExecutionListener {
 
 	private Interpreter interpreter;
-	private boolean debugging;
+	private volatile boolean debugging;
 	private Compiler compiler;
 
+	// 被中断线程的执行状态，调试线程通过它查看调用栈、设置单步动作
+	private volatile ExecutionContext context;
+
+	private volatile CountDownLatch resumed;
+
 	public Debugger(Interpreter interpreter) {
 		this.interpreter = interpreter;
 	}
 
 	public void stop() {
-		debugging = true;
-		startDebugger();
-		synchronized (interpreter) {
+		// 多个线程同时停下时，依次进入调试控制台
+		synchronized (this) {
+			ExecutionContext context = interpreter.getExecutionContext();
+			this.context = context;
+			resumed = new CountDownLatch(1);
+			debugging = true;
+			startDebugger();
 			try {
-				interpreter.wait();
+				resumed.await();
 			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if (context.getDebuggerAction() == DebuggerAction.NONE) {
+				interpreter.removeExecutionListener(this);
+			} else {
+				// 单步需要逐条语句的事件，正在执行的过程也切换过去
+				interpreter.addExecutionListener(this);
+				context.requestInstrumentation();
+			}
+		}
+	}
+
+	@Override
+	public void onStatement(Interpreter interpreter, CallFrame frame, Statement statement) {
+		ExecutionContext context = interpreter.getExecutionContext();
+		switch (context.getDebuggerAction()) {
+		case STEP_INTO:
+			context.setDebuggerAction(DebuggerAction.NONE);
+			stop();
+			break;
+		case STEP_OVER:
+			if (frame == context.getDebuggerFrame()) {
+				context.setDebuggerAction(DebuggerAction.NONE);
+				stop();
+			}
+			break;
+		case STEP_RETURN:
+			// 过程进入时调试器尚未安装则收不到它的 onCallExit，改在调用者的下一条语句停下
+			if (frame == context.getDebuggerFrame()) {
+				context.setDebuggerAction(DebuggerAction.NONE);
+				stop();
 			}
+			break;
+		default:
+			break;
+		}
+	}
+
+	@Override
+	public void onCallExit(Interpreter interpreter, CallFrame frame) {
+		ExecutionContext context = interpreter.getExecutionContext();
+		if (context.getDebuggerAction() == DebuggerAction.STEP_RETURN && frame.error.hasError() == false) {
+			context.setDebuggerAction(DebuggerAction.NONE);
+			stop();
 		}
 	}
 
@@ -72,7 +129,7 @@ public class Debugger {
 	}
 
 	protected void printCurrentFrame() {
-		List<CallFrame> frames = interpreter.getCallFrames();
+		List<CallFrame> frames = context.getCallFrames();
 		CallFrame frame = frames.get(frames.size() -1);
 		System.out.println(frame.method);
 		System.out.println(String.format("* %s\t%s", frame.statementIndex , frame.method.statements.get(frame.statementIndex)));
@@ -93,7 +150,7 @@ public class Debugger {
 			String[] arr = line.split("\\s+");
 			String command = arr[0];
 			if (command.equals("local")) {
-				List<CallFrame> frames = interpreter.getCallFrames();
+				List<CallFrame> frames = context.getCallFrames();
 				int i = 0;
 				if (arr.length > 1) i = Integer.parseInt(arr[1]);
 				i = arr.length - 1 - i;
@@ -108,15 +165,15 @@ public class Debugger {
 				String action = "in";
 				if(arr.length>1) action = arr[1];
 				if("in".equals(action)){
-					interpreter.setDebuggerAction(DebuggerAction.STEP_INTO);
+					context.setDebuggerAction(DebuggerAction.STEP_INTO);
 				} else if("over".equals(action)){
-					interpreter.setDebuggerAction(DebuggerAction.STEP_OVER);
+					context.setDebuggerAction(DebuggerAction.STEP_OVER);
 				} else {
-					interpreter.setDebuggerAction(DebuggerAction.STEP_RETURN);
+					context.setDebuggerAction(DebuggerAction.STEP_RETURN);
 				}
 				resume();
 			} else if(command.equals("stack")){
-				List<CallFrame> frames = interpreter.getCallFrames();
+				List<CallFrame> frames = context.getCallFrames();
 				for(int i=frames.size() -1; i>=0; i--){
 					System.out.println(frames.get(i));
 					System.out.println("--");
@@ -124,7 +181,7 @@ public class Debugger {
 			} else if(command.equals("goto")){
 				int i = 0;
 				if (arr.length > 1) i = Integer.parseInt(arr[1]);
-				CallFrame frame = interpreter.getCurrentFrame();
+				CallFrame frame = context.getCurrentFrame();
 				if(i < 0 || i >= frame.method.statements.size()){
 					System.out.println(String.format("Please input number between 0 and %s", frame.method.statements.size()-1));
 				} else {
@@ -132,7 +189,7 @@ public class Debugger {
 					resume();
 				}
 			} else if(command.equals("eval")){
-				CallFrame frame = interpreter.getCurrentFrame();
+				CallFrame frame = context.getCurrentFrame();
 				String expr = line.substring(4).trim();
 				if(StringUtils.isEmpty(expr)){
 					System.out.println("Empty Statement");
@@ -151,9 +208,7 @@ public class Debugger {
 
 	public void resume() {
 		debugging = false;
-		synchronized (interpreter) {
-			interpreter.notify();
-		}
+		resumed.countDown();
 	}
 
 	public void setCompiler(Compiler compiler) {
@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Inshua<inshua@gmail.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.siphon.visualbasic.runtime;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 一个线程上的执行状态：调用栈和调试动作。
+ * Interpreter 为每个线程各保留一个，已加载的 RuntimeLibrary（模块实例、模块级变量）在线程之间共享。
+ */
+public class ExecutionContext {
+
+	private final List<CallFrame> callFrames = new ArrayList<>();
+
+	private volatile DebuggerAction debuggerAction = DebuggerAction.NONE;	// 由调试器线程设置
+
+	private CallFrame debuggerFrame;
+
+	public void push(CallFrame frame) {
+		callFrames.add(frame);
+	}
+
+	public void pop() {
+		callFrames.remove(callFrames.size() - 1);
+	}
+
+	public List<CallFrame> getCallFrames() {
+		return Collections.unmodifiableList(callFrames);
+	}
+
+	/**
+	 * 供其它线程读取调用栈（如采样分析器）。读取时调用栈可能正在变化，结果只是近似的一个快照，
+	 * 不会抛出异常也不会含有 null
+	 */
+	public CallFrame[] snapshotCallFrames() {
+		Object[] frames;
+		try {
+			frames = callFrames.toArray();
+		} catch (RuntimeException e) {
+			return new CallFrame[0];
+		}
+		int n = 0;
+		for (Object frame : frames) {
+			if (frame != null) n++;
+		}
+		CallFrame[] result = new CallFrame[n];
+		n = 0;
+		for (Object frame : frames) {
+			if (frame != null) result[n++] = (CallFrame) frame;
+		}
+		return result;
+	}
+
+	public CallFrame getCurrentFrame() {
+		return callFrames.isEmpty() ? null : callFrames.get(callFrames.size() - 1);
+	}
+
+	/**
+	 * 让本线程调用栈上的所有过程在当前语句结束后切换到带监听的执行循环，
+	 * 须在执行线程上调用（如在监听器回调或 Stop 语句中）
+	 */
+	public void requestInstrumentation() {
+		for (CallFrame frame : callFrames) {
+			frame.requestInstrumentation();
+		}
+	}
+
+	public DebuggerAction getDebuggerAction() {
+		return debuggerAction;
+	}
+
+	public CallFrame getDebuggerFrame() {
+		return debuggerFrame;
+	}
+
+	public void setDebuggerAction(DebuggerAction debuggerAction) {
+		if (debuggerAction == DebuggerAction.STEP_RETURN) {
+			if (callFrames.size() > 1) {
+				this.debuggerFrame = callFrames.get(callFrames.size() - 2);
+			} else {
+				this.debuggerFrame = null;
+			}
+		} else {
+			this.debuggerFrame = getCurrentFrame();
+		}
+		this.debuggerAction = debuggerAction;
+	}
+}
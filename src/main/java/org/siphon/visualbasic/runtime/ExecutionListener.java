@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Inshua<inshua@gmail.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.siphon.visualbasic.runtime;
+
+import org.siphon.visualbasic.Interpreter;
+
+/**
+ * 执行事件监听器，用于调试器、性能分析、跟踪等。通过 {@link Interpreter#addExecutionListener} 安装。
+ * <p>
+ * 没有安装任何监听器时解释器使用不带事件的执行循环，不产生额外开销；安装后新进入的过程改用带事件的循环，
+ * 已在执行中的过程可通过 {@link ExecutionContext#requestInstrumentation()} 在下一条语句切换过去。
+ * 监听器在执行线程上被调用，多个线程同时执行时须自行保证线程安全。
+ * onCallEnter 与 onCallExit 成对出现：过程执行中途安装的监听器收不到该过程的 onCallExit，中途移除的监听器仍会收到已进入过程的 onCallExit。
+ */
+public interface ExecutionListener {
+
+	/**
+	 * 即将执行 frame 中的一条语句，此时 frame.statementIndex 指向该语句
+	 */
+	default void onStatement(Interpreter interpreter, CallFrame frame, Statement statement) {
+	}
+
+	/**
+	 * 进入过程，参数已绑定
+	 */
+	default void onCallEnter(Interpreter interpreter, CallFrame frame) {
+	}
+
+	/**
+	 * 退出过程，frame 已出栈。过程出错时 frame.error 中带有错误
+	 */
+	default void onCallExit(Interpreter interpreter, CallFrame frame) {
+	}
+
+	/**
+	 * 语句执行出错，在转入 On Error 错误处理之前
+	 */
+	default void onError(Interpreter interpreter, CallFrame frame, Statement statement, VbRuntimeException exception) {
+	}
+
+	/**
+	 * 循环回跳：statement 执行后跳回到它之前的语句（For/Do/While 的循环尾、向前的 GoTo 等）
+	 */
+	default void onBackEdge(Interpreter interpreter, CallFrame frame, Statement statement) {
+	}
+}
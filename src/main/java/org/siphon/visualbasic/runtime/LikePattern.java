@@ -0,0 +1,296 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Inshua<inshua@gmail.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.siphon.visualbasic.runtime;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 编译后的 Like 模式。
+ * <p>
+ * 模式解析为一串元素：* 或单个字符类（字面字符、?、#、[...]）。字符类对 ASCII 字符用位图判断，
+ * 其余字符按区间判断。元素不超过 63 个时按位并行模拟 NFA（每个字符一次移位、与、或），
+ * 匹配时间与字符串长度成线性；更长的模式改用记住上一个 * 位置的回溯匹配。
+ * <p>
+ * Option Compare Text 时忽略大小写：字符与其大、小写形式之一属于字符类即算匹配。
+ * VB 文本比较按区域设置的排序规则判断 [A-Z] 这类区间，这里只处理大小写。
+ */
+public final class LikePattern {
+
+	private static final int MAX_CACHED = 256;
+
+	// 动态生成的模式按最近使用保留
+	private static final Map<String, LikePattern> binaryCache = newCache();
+
+	private static final Map<String, LikePattern> textCache = newCache();
+
+	private static final CharClass STAR = null;
+
+	private static final int MAX_PARALLEL_ELEMENTS = 63;
+
+	private final String pattern;
+
+	private final boolean textCompare;
+
+	private final CharClass[] elements;		// STAR 表示 *，相邻的 * 已合并
+
+	// 按位并行匹配用：第 i 位为“已匹配前 i 个元素”的状态
+	private final long starMask;
+
+	private final long[] asciiMasks;		// 各 ASCII 字符能通过的字符类元素
+
+	private LikePattern(String pattern, boolean textCompare) {
+		this.pattern = pattern;
+		this.textCompare = textCompare;
+		this.elements = parse(pattern);
+
+		if (elements.length <= MAX_PARALLEL_ELEMENTS) {
+			long stars = 0;
+			for (int i = 0; i < elements.length; i++) {
+				if (elements[i] == STAR) {
+					stars |= 1L << i;
+				}
+			}
+			this.starMask = stars;
+			this.asciiMasks = new long[128];
+			for (char c = 0; c < 128; c++) {
+				asciiMasks[c] = classMask(c);
+			}
+		} else {
+			this.starMask = 0;
+			this.asciiMasks = null;
+		}
+	}
+
+	/**
+	 * 取得编译后的模式，最近用过的模式直接取自缓存
+	 * 
+	 * @throws InvalidPatternException 模式中的 [ 没有闭合，或区间的起止字符倒置
+	 */
+	public static LikePattern of(String pattern, boolean textCompare) {
+		Map<String, LikePattern> cache = textCompare ? textCache : binaryCache;
+		LikePattern result = cache.get(pattern);
+		if (result == null) {
+			result = new LikePattern(pattern, textCompare);
+			cache.put(pattern, result);
+		}
+		return result;
+	}
+
+	private static Map<String, LikePattern> newCache() {
+		return Collections.synchronizedMap(new LinkedHashMap<String, LikePattern>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, LikePattern> eldest) {
+				return size() > MAX_CACHED;
+			}
+		});
+	}
+
+	public String getPattern() {
+		return pattern;
+	}
+
+	public boolean isTextCompare() {
+		return textCompare;
+	}
+
+	public boolean matches(String s) {
+		return asciiMasks != null ? matchParallel(s) : matchBacktrack(s);
+	}
+
+	private boolean matchParallel(String s) {
+		final long accept = 1L << elements.length;
+		long state = closure(1L);
+		for (int i = 0, n = s.length(); i < n && state != 0; i++) {
+			char c = s.charAt(i);
+			long mask = c < 128 ? asciiMasks[c] : classMask(c);
+			state = closure(((state & mask) << 1) | (state & starMask));
+		}
+		return (state & accept) != 0;
+	}
+
+	// 处于 * 之前的状态同时也处于 * 之后（* 匹配零个字符），* 已合并，不会连续
+	private long closure(long state) {
+		return state | ((state & starMask) << 1);
+	}
+
+	private long classMask(char c) {
+		long mask = 0;
+		for (int i = 0; i < elements.length; i++) {
+			if (elements[i] != STAR && matches(elements[i], c)) {
+				mask |= 1L << i;
+			}
+		}
+		return mask;
+	}
+
+	private boolean matchBacktrack(String s) {
+		int si = 0, pi = 0, starPi = -1, starSi = 0;
+		int n = s.length(), m = elements.length;
+		while (si < n) {
+			if (pi < m && elements[pi] == STAR) {
+				starPi = pi++;
+				starSi = si;
+			} else if (pi < m && matches(elements[pi], s.charAt(si))) {
+				si++;
+				pi++;
+			} else if (starPi >= 0) {	// 让上一个 * 多匹配一个字符
+				pi = starPi + 1;
+				si = ++starSi;
+			} else {
+				return false;
+			}
+		}
+		while (pi < m && elements[pi] == STAR) {
+			pi++;
+		}
+		return pi == m;
+	}
+
+	private boolean matches(CharClass cls, char c) {
+		if (textCompare) {
+			boolean in = cls.contains(c) || cls.contains(Character.toUpperCase(c)) || cls.contains(Character.toLowerCase(c));
+			return in != cls.negate;
+		}
+		return cls.contains(c) != cls.negate;
+	}
+
+	private static CharClass[] parse(String pattern) {
+		List<CharClass> result = new ArrayList<>();
+		for (int i = 0; i < pattern.length();) {
+			char c = pattern.charAt(i++);
+			switch (c) {
+			case '*':
+				if (result.isEmpty() || result.get(result.size() - 1) != STAR) {
+					result.add(STAR);
+				}
+				break;
+			case '?':
+				result.add(CharClass.ANY);
+				break;
+			case '#':
+				result.add(CharClass.DIGIT);
+				break;
+			case '[':
+				int end = pattern.indexOf(']', i);
+				if (end < 0) {
+					throw new InvalidPatternException();
+				}
+				if (end > i) {		// [] 匹配零个字符
+					result.add(CharClass.parseList(pattern, i, end));
+				}
+				i = end + 1;
+				break;
+			default:
+				result.add(CharClass.of(c));
+			}
+		}
+		return result.toArray(new CharClass[result.size()]);
+	}
+
+	@Override
+	public String toString() {
+		return pattern;
+	}
+
+	private static final class CharClass {
+
+		static final CharClass ANY = new CharClass(0, 0, new char[0], true);
+
+		static final CharClass DIGIT = new CharClass(0x03FF000000000000L, 0, new char[0], false);
+
+		final long low;		// 字符 0..63
+		final long high;	// 字符 64..127
+		final char[] ranges;	// 非 ASCII 部分，依次为各区间的起止字符
+		final boolean negate;
+
+		CharClass(long low, long high, char[] ranges, boolean negate) {
+			this.low = low;
+			this.high = high;
+			this.ranges = ranges;
+			this.negate = negate;
+		}
+
+		static CharClass of(char c) {
+			return c < 64 ? new CharClass(1L << c, 0, new char[0], false)
+					: c < 128 ? new CharClass(0, 1L << (c - 64), new char[0], false)
+					: new CharClass(0, 0, new char[] { c, c }, false);
+		}
+
+		/**
+		 * [charlist]，start、end 为 [ 之后、] 所在的位置。开头的 ! 表示排除，开头或末尾的 - 为字面字符
+		 */
+		static CharClass parseList(String pattern, int start, int end) {
+			boolean negate = false;
+			if (pattern.charAt(start) == '!' && end > start + 1) {
+				negate = true;
+				start++;
+			}
+			long low = 0, high = 0;
+			List<Character> ranges = new ArrayList<>();
+			for (int i = start; i < end; i++) {
+				char from = pattern.charAt(i);
+				char to = from;
+				if (i + 2 < end && pattern.charAt(i + 1) == '-') {
+					to = pattern.charAt(i + 2);
+					if (to < from) {
+						throw new InvalidPatternException();
+					}
+					i += 2;
+				}
+				for (int c = from; c <= to && c < 128; c++) {
+					if (c < 64) {
+						low |= 1L << c;
+					} else {
+						high |= 1L << (c - 64);
+					}
+				}
+				if (to >= 128) {
+					ranges.add((char) Math.max(from, 128));
+					ranges.add(to);
+				}
+			}
+			char[] r = new char[ranges.size()];
+			for (int i = 0; i < r.length; i++) {
+				r[i] = ranges.get(i);
+			}
+			return new CharClass(low, high, r, negate);
+		}
+
+		boolean contains(char c) {
+			if (c < 64) {
+				return (low >>> c & 1) != 0;
+			} else if (c < 128) {
+				return (high >>> (c - 64) & 1) != 0;
+			}
+			for (int i = 0; i < ranges.length; i += 2) {
+				if (c >= ranges[i] && c <= ranges[i + 1]) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Inshua<inshua@gmail.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.siphon.visualbasic.runtime;
+
+import org.siphon.visualbasic.MethodDecl;
+import org.siphon.visualbasic.runtime.statements.ExitMethodStatement;
+import org.siphon.visualbasic.runtime.statements.GotoStatement;
+import org.siphon.visualbasic.runtime.statements.IfNotGotoStatement;
+
+import java.util.List;
+
+/**
+ * 过程体的线性指令流。
+ * 
+ * 指令与 MethodDecl.statements 一一对应，下标即语句序号，因此错误处理、Resume、GoSub 以及调试器的 goto 
+ * 仍可通过 CallFrame.nextStatement 工作。Goto、If Not Goto、Exit 由分派循环直接执行，跳转目标在降级时已沿
+ * Goto 链解析到最终位置；其它语句仍调用 Statement.eval。
+ */
+public class LinearCode {
+
+	public static final byte EVAL = 0;
+	public static final byte GOTO = 1;
+	public static final byte IF_NOT_GOTO = 2;
+	public static final byte EXIT = 3;
+
+	public final byte[] opcodes;
+
+	public final int[] targets;
+
+	public final Statement[] statements;
+
+	public final Statement[] conditions;
+
+	private LinearCode(int size) {
+		this.opcodes = new byte[size];
+		this.targets = new int[size];
+		this.statements = new Statement[size];
+		this.conditions = new Statement[size];
+	}
+
+	public int size() {
+		return statements.length;
+	}
+
+	public static LinearCode lower(MethodDecl method) {
+		List<Statement> source = method.statements;
+		LinearCode code = new LinearCode(source.size());
+		for (int i = 0; i < source.size(); i++) {
+			Statement statement = source.get(i);
+			code.statements[i] = statement;
+			// 只降级确切的类型，OnError、Resume、GoSub 等子类有额外语义
+			if (statement.getClass() == GotoStatement.class) {
+				code.opcodes[i] = GOTO;
+				code.targets[i] = resolveTarget(source, ((GotoStatement) statement).getNextStatement());
+			} else if (statement.getClass() == IfNotGotoStatement.class) {
+				IfNotGotoStatement ifNotGoto = (IfNotGotoStatement) statement;
+				code.opcodes[i] = IF_NOT_GOTO;
+				code.targets[i] = resolveTarget(source, ifNotGoto.getNextStatement());
+				code.conditions[i] = ifNotGoto.getCondition();
+			} else if (statement.getClass() == ExitMethodStatement.class) {
+				code.opcodes[i] = EXIT;
+			} else {
+				code.opcodes[i] = EVAL;
+			}
+		}
+		return code;
+	}
+
+	// 跳到 Goto 的跳转直接取其终点，如 ElseIf 分支末尾跳到外层循环的 Wend
+	private static int resolveTarget(List<Statement> source, int target) {
+		for (int hops = 0; hops < source.size(); hops++) {
+			if (target < 0 || target >= source.size()) {
+				return target;
+			}
+			Statement statement = source.get(target);
+			if (statement.getClass() != GotoStatement.class) {
+				return target;
+			}
+			target = ((GotoStatement) statement).getNextStatement();
+		}
+		return target; // 死循环的 Goto 链，保持原样
+	}
+}
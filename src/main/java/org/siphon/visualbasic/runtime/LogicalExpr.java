@@ -327,7 +327,7 @@ public class LogicalExpr {
 				throw new ClassCastException();
 			}
 		} else if (number.varType.vbType == VbVarType.vbEmpty){
-			number = new VbValue(VbVarType.VbInteger, 0);
+			number = VbValue.ofInteger(0);
 		}
 		
 		if (number.varType.vbType == VbVarType.vbDate) {
@@ -34,6 +34,140 @@ public class MathExpr {
 	
 	// Byte、 Integer、Long、Single、Currency、Double 和 Decimal
 	public static final int[] MultiTypeOrder = new int[] { VbVarType.vbByte, VbVarType.vbInteger, VbVarType.vbLong, VbVarType.vbSingle, VbVarType.vbCurrency, VbVarType.vbDouble, VbVarType.vbDecimal };
+
+	/*
+	 * 常见类型组合的专用运算，按 [左类型][右类型] 查表，直接在基本类型上计算，结果与通用流程一致。
+	 * 返回 null 表示需要走通用流程：Integer、Long、Currency 溢出时由通用流程报错或为 Variant 升级类型。
+	 * 表中没有的组合（Boolean、Date、Single、Byte、Null、Empty、数字字符串等）同样走通用流程。
+	 */
+	private interface Kernel {
+		VbValue apply(VbValue num1, VbValue num2);
+	}
+
+	private static final int KernelTableSize = VbVarType.vbString + 1;
+
+	private static final Kernel[][] AddKernels = new Kernel[KernelTableSize][KernelTableSize];
+	private static final Kernel[][] SubtractKernels = new Kernel[KernelTableSize][KernelTableSize];
+	private static final Kernel[][] MultiKernels = new Kernel[KernelTableSize][KernelTableSize];
+	private static final Kernel[][] DivKernels = new Kernel[KernelTableSize][KernelTableSize];
+
+	static {
+		final int I = VbVarType.vbInteger, L = VbVarType.vbLong, D = VbVarType.vbDouble, C = VbVarType.vbCurrency;
+
+		AddKernels[I][I] = (a, b) -> integerResult(intOf(a) + intOf(b));
+		SubtractKernels[I][I] = (a, b) -> integerResult(intOf(a) - intOf(b));
+		MultiKernels[I][I] = (a, b) -> integerResult(intOf(a) * intOf(b));	// 两个 Integer 之积不会超出 int
+
+		for (int t1 : new int[] { I, L }) {
+			for (int t2 : new int[] { I, L }) {
+				if (t1 == I && t2 == I) continue;
+				AddKernels[t1][t2] = (a, b) -> longResult(longOf(a), longOf(b), '+');
+				SubtractKernels[t1][t2] = (a, b) -> longResult(longOf(a), longOf(b), '-');
+				MultiKernels[t1][t2] = (a, b) -> longResult(longOf(a), longOf(b), '*');
+			}
+		}
+
+		for (int t1 : new int[] { I, L, D }) {
+			for (int t2 : new int[] { I, L, D }) {
+				DivKernels[t1][t2] = (a, b) -> new VbValue(VbVarType.VbDouble, doubleOf(a) / doubleOf(b));
+				if (t1 == D || t2 == D) {
+					AddKernels[t1][t2] = (a, b) -> new VbValue(VbVarType.VbDouble, doubleOf(a) + doubleOf(b));
+					SubtractKernels[t1][t2] = (a, b) -> new VbValue(VbVarType.VbDouble, doubleOf(a) - doubleOf(b));
+					MultiKernels[t1][t2] = (a, b) -> new VbValue(VbVarType.VbDouble, doubleOf(a) * doubleOf(b));
+				}
+			}
+		}
+
+		// Currency 以 1/10000 为单位的 long 存储，Integer、Long 经 CCur 放大后相加减
+		for (int t : new int[] { I, L, C }) {
+			AddKernels[C][t] = (a, b) -> currencyResult(currencyOf(a), currencyOf(b), '+');
+			AddKernels[t][C] = (a, b) -> currencyResult(currencyOf(a), currencyOf(b), '+');
+			SubtractKernels[C][t] = (a, b) -> currencyResult(currencyOf(a), currencyOf(b), '-');
+			SubtractKernels[t][C] = (a, b) -> currencyResult(currencyOf(a), currencyOf(b), '-');
+		}
+
+		AddKernels[VbVarType.vbString][VbVarType.vbString] = (a, b) -> new VbValue(VbVarType.VbString, (String) a.value + (String) b.value);
+	}
+
+	private static int intOf(VbValue v) {
+		return ((Number) v.value).intValue();
+	}
+
+	private static long longOf(VbValue v) {
+		return ((Number) v.value).longValue();
+	}
+
+	private static double doubleOf(VbValue v) {
+		return ((Number) v.value).doubleValue();
+	}
+
+	// 与 VbValue.CCur 一致，Integer、Long 乘以 10000
+	private static long currencyOf(VbValue v) {
+		if (v.varType.vbType == VbVarType.vbCurrency) {
+			return (Long) v.value;
+		}
+		return longOf(v) * 10000L;
+	}
+
+	private static VbValue integerResult(int r) {
+		if (r < -32768 || r > 32767) {
+			return null;
+		}
+		return VbValue.ofInteger(r);
+	}
+
+	private static VbValue longResult(long x, long y, char op) {
+		Long r = exact(x, y, op);
+		return r == null ? null : VbValue.ofLong(r);
+	}
+
+	private static VbValue currencyResult(long x, long y, char op) {
+		Long r = exact(x, y, op);
+		return r == null ? null : new VbValue(VbVarType.VbCurrency, r);
+	}
+
+	private static Long exact(long x, long y, char op) {
+		try {
+			switch (op) {
+			case '+':
+				return Math.addExact(x, y);
+			case '-':
+				return Math.subtractExact(x, y);
+			case '*':
+				return Math.multiplyExact(x, y);
+			default:
+				throw new ImpossibleException();
+			}
+		} catch (ArithmeticException e) {
+			return null;
+		}
+	}
+
+	private static VbValue applyKernel(Kernel[][] kernels, VbValue num1, VbValue num2) {
+		boolean returnVariant = false;
+		if (num1.varType.vbType == VbVarType.vbVariant) {
+			num1 = (VbValue) num1.value;
+			returnVariant = true;
+		}
+		if (num2.varType.vbType == VbVarType.vbVariant) {
+			num2 = (VbValue) num2.value;
+			returnVariant = true;
+		}
+		int t1 = num1.varType.vbType;
+		int t2 = num2.varType.vbType;
+		if (t1 < 0 || t1 >= KernelTableSize || t2 < 0 || t2 >= KernelTableSize) {
+			return null;
+		}
+		Kernel kernel = kernels[t1][t2];
+		if (kernel == null) {
+			return null;
+		}
+		VbValue result = kernel.apply(num1, num2);
+		if (result != null && returnVariant) {
+			return new VbValue(VbVarType.VbVariant, result);
+		}
+		return result;
+	}
 	
 	/* 
 	 * 
@@ -53,6 +187,11 @@ public class MathExpr {
 	 	MSDN 里对数学运算的介绍错谬连篇。
 	*/
 	public static VbValue add(VbValue num1, VbValue num2) throws OverflowException {
+		VbValue fast = applyKernel(AddKernels, num1, num2);
+		if (fast != null) {
+			return fast;
+		}
+
 		if(num1.isNull() || num2.isNull()){
 			return VbValue.Null;
 		}
@@ -100,9 +239,9 @@ public class MathExpr {
 		}
 
 		if (num1.varType.vbType == VbVarType.vbEmpty)
-			num1 = new VbValue(VbVarType.VbInteger, 0);
+			num1 = VbValue.ofInteger(0);
 		if (num2.varType.vbType == VbVarType.vbEmpty)
-			num2 = new VbValue(VbVarType.VbInteger, 0);
+			num2 = VbValue.ofInteger(0);
 
 		if (num1.varType.vbType == VbVarType.vbBoolean)
 			num1 = VbValue.cast(num1, VbVarType.vbInteger);
@@ -208,6 +347,11 @@ public class MathExpr {
 	}
 
 	public static VbValue subtract(VbValue num1, VbValue num2) throws OverflowException {
+		VbValue fast = applyKernel(SubtractKernels, num1, num2);
+		if (fast != null) {
+			return fast;
+		}
+
 		if(num1.isNull() || num2.isNull()){
 			return VbValue.Null;
 		}
@@ -241,9 +385,9 @@ public class MathExpr {
 		}
 
 		if (num1.varType.vbType == VbVarType.vbEmpty)
-			num1 = new VbValue(VbVarType.VbInteger, 0);
+			num1 = VbValue.ofInteger(0);
 		if (num2.varType.vbType == VbVarType.vbEmpty)
-			num2 = new VbValue(VbVarType.VbInteger, 0);
+			num2 = VbValue.ofInteger(0);
 
 		if (num1.varType.vbType == VbVarType.vbBoolean)
 			num1 = VbValue.cast(num1, VbVarType.vbInteger);
@@ -349,6 +493,11 @@ public class MathExpr {
 	}
 
 	public static VbValue multi(VbValue num1, VbValue num2) throws OverflowException {
+		VbValue fast = applyKernel(MultiKernels, num1, num2);
+		if (fast != null) {
+			return fast;
+		}
+
 		if(num1.isNull() || num2.isNull()){
 			return VbValue.Null;
 		}
@@ -382,9 +531,9 @@ public class MathExpr {
 		}
 
 		if (num1.varType.vbType == VbVarType.vbEmpty)
-			num1 = new VbValue(VbVarType.VbInteger, 0);
+			num1 = VbValue.ofInteger(0);
 		if (num2.varType.vbType == VbVarType.vbEmpty)
-			num2 = new VbValue(VbVarType.VbInteger, 0);
+			num2 = VbValue.ofInteger(0);
 
 		if (num1.varType.vbType == VbVarType.vbBoolean)
 			num1 = VbValue.cast(num1, VbVarType.vbInteger);
@@ -470,6 +619,11 @@ public class MathExpr {
 	}
 
 	public static VbValue div(VbValue num1, VbValue num2) throws OverflowException {
+		VbValue fast = applyKernel(DivKernels, num1, num2);
+		if (fast != null) {
+			return fast;
+		}
+
 		if(num1.isNull() || num2.isNull()){
 			return VbValue.Null;
 		}
@@ -503,9 +657,9 @@ public class MathExpr {
 		}
 
 		if (num1.varType.vbType == VbVarType.vbEmpty)
-			num1 = new VbValue(VbVarType.VbInteger, 0);
+			num1 = VbValue.ofInteger(0);
 		if (num2.varType.vbType == VbVarType.vbEmpty)
-			num2 = new VbValue(VbVarType.VbInteger, 0);
+			num2 = VbValue.ofInteger(0);
 
 		if (num1.varType.vbType == VbVarType.vbBoolean)
 			num1 = VbValue.cast(num1, VbVarType.vbInteger);
@@ -642,9 +796,9 @@ public class MathExpr {
 		}
 
 		if (num1.varType.vbType == VbVarType.vbEmpty)
-			num1 = new VbValue(VbVarType.VbInteger, 0);
+			num1 = VbValue.ofInteger(0);
 		if (num2.varType.vbType == VbVarType.vbEmpty)
-			num2 = new VbValue(VbVarType.VbInteger, 0);
+			num2 = VbValue.ofInteger(0);
 
 		if (num1.varType.vbType == VbVarType.vbBoolean)
 			num1 = VbValue.cast(num1, VbVarType.vbInteger);
@@ -839,9 +993,9 @@ public class MathExpr {
 		}
 
 		if (num1.varType.vbType == VbVarType.vbEmpty)
-			num1 = new VbValue(VbVarType.VbInteger, 0);
+			num1 = VbValue.ofInteger(0);
 		if (num2.varType.vbType == VbVarType.vbEmpty)
-			num2 = new VbValue(VbVarType.VbInteger, 0);
+			num2 = VbValue.ofInteger(0);
 
 		if (num1.varType.vbType == VbVarType.vbBoolean)
 			num1 = VbValue.cast(num1, VbVarType.vbInteger);
@@ -1053,7 +1207,7 @@ public class MathExpr {
 		}
 
 		if (number.varType.vbType == VbVarType.vbEmpty)
-			number = new VbValue(VbVarType.VbInteger, 0);
+			number = VbValue.ofInteger(0);
 
 		if (number.varType.vbType == VbVarType.vbBoolean)
 			number = VbValue.cast(number, VbVarType.vbInteger);
@@ -1090,7 +1244,7 @@ public class MathExpr {
 				throw new ClassCastException();
 			}
 		} else if (number.varType.vbType == VbVarType.vbEmpty){
-			number = new VbValue(VbVarType.VbInteger, 0);
+			number = VbValue.ofInteger(0);
 		} else if (number.varType.vbType == VbVarType.vbBoolean){
 			number = VbValue.cast(number, VbVarType.vbInteger);
 		}
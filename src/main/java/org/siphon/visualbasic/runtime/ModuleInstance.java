@@ -28,6 +28,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Predicate;
 
 public class ModuleInstance {
@@ -40,7 +41,8 @@ public class ModuleInstance {
 
 	public final VbValue _asVbValue;
 
-	private List<EventSubscriber> eventSubscribers = new ArrayList<>();
+	// 事件可能在订阅者增减的同时由其它线程触发
+	private List<EventSubscriber> eventSubscribers = new CopyOnWriteArrayList<>();
 
 	public VbValue asVbValue() {
 		return this._asVbValue;
@@ -175,7 +177,7 @@ public class ModuleInstance {
 		}
 	}
 
-	public void raiseEvent(EventDecl eventDecl, List<Statement> argumentStatements, List<VbValue> arguments,
+	public void raiseEvent(EventDecl eventDecl, List<Statement> argumentStatements, List<Object> arguments,
 			Interpreter interpreter, CallFrame frame) throws VbRuntimeException {
 		for (EventSubscriber subscriber : this.eventSubscribers) {
 			if (subscriber.getEventDecl() == eventDecl) {
@@ -0,0 +1,351 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Inshua<inshua@gmail.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.siphon.visualbasic.runtime;
+
+import org.siphon.visualbasic.Interpreter;
+import org.siphon.visualbasic.MethodDecl;
+import org.siphon.visualbasic.SourceLocation;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * VB 过程级的性能分析器。
+ * <p>
+ * EXACT 模式作为 {@link ExecutionListener} 安装，记录每个过程的调用次数、总耗时（含被调过程）与自身耗时，
+ * 以及每条语句的执行次数；由于安装监听器后不再走编译执行，测得的是解释执行的耗时。
+ * SAMPLING 模式不安装监听器，由后台线程按固定间隔读取各线程的调用栈，开销很小，只有采样计数。
+ * <p>
+ * 两种模式都可以导出 collapsed stack 格式（flamegraph.pl、speedscope 可直接读取）和按耗时排序的文本报告。
+ * <pre>
+ * Profiler profiler = new Profiler(interpreter, Profiler.Mode.EXACT);
+ * profiler.start();
+ * ...
+ * profiler.stop();
+ * profiler.writeReport(writer);
+ * </pre>
+ */
+public class Profiler implements ExecutionListener {
+
+	public enum Mode {
+		EXACT,
+		SAMPLING,
+	}
+
+	public static final int DEFAULT_SAMPLING_INTERVAL = 10;
+
+	private final Interpreter interpreter;
+
+	private final Mode mode;
+
+	private int samplingInterval = DEFAULT_SAMPLING_INTERVAL;	// 毫秒
+
+	private volatile Thread sampler;
+
+	private final Map<MethodDecl, MethodStats> methods = new ConcurrentHashMap<>();
+
+	// 每条语句的 SourceLocation 对象各不相同，按对象区分即可
+	private final Map<SourceLocation, LongAdder> statementHits = new ConcurrentHashMap<>();
+
+	// 调用路径 -> EXACT 模式下的自身耗时（纳秒）或 SAMPLING 模式下的采样次数
+	private final Map<String, LongAdder> stacks = new ConcurrentHashMap<>();
+
+	private final LongAdder samples = new LongAdder();
+
+	private final ThreadLocal<ArrayDeque<Activation>> activations = ThreadLocal.withInitial(ArrayDeque::new);
+
+	public static class MethodStats {
+		public final MethodDecl method;
+		public final String name;
+		public final LongAdder calls = new LongAdder();
+		public final LongAdder inclusiveNanos = new LongAdder();
+		public final LongAdder exclusiveNanos = new LongAdder();
+		public final LongAdder samples = new LongAdder();		// SAMPLING 模式下位于栈内的采样数
+		public final LongAdder selfSamples = new LongAdder();	// SAMPLING 模式下位于栈顶的采样数
+
+		MethodStats(MethodDecl method, String name) {
+			this.method = method;
+			this.name = name;
+		}
+	}
+
+	// EXACT 模式下一次过程调用的计时
+	private static class Activation {
+		final CallFrame frame;
+		final MethodStats stats;
+		final String stack;
+		final long start;
+		long childNanos;
+		boolean recursive;	// 外层已有同一过程在执行，总耗时由最外层计入
+
+		Activation(CallFrame frame, MethodStats stats, String stack, long start) {
+			this.frame = frame;
+			this.stats = stats;
+			this.stack = stack;
+			this.start = start;
+		}
+	}
+
+	public Profiler(Interpreter interpreter, Mode mode) {
+		this.interpreter = interpreter;
+		this.mode = mode;
+	}
+
+	public Mode getMode() {
+		return mode;
+	}
+
+	public int getSamplingInterval() {
+		return samplingInterval;
+	}
+
+	/**
+	 * SAMPLING 模式的采样间隔（毫秒），须在 start 之前设置
+	 */
+	public Profiler setSamplingInterval(int samplingInterval) {
+		if (samplingInterval <= 0) {
+			throw new IllegalArgumentException("sampling interval must be positive");
+		}
+		this.samplingInterval = samplingInterval;
+		return this;
+	}
+
+	public synchronized void start() {
+		if (mode == Mode.EXACT) {
+			interpreter.addExecutionListener(this);
+		} else if (sampler == null) {
+			Thread thread = new Thread(this::sampleLoop, "VBA Profiler");
+			thread.setDaemon(true);
+			sampler = thread;
+			thread.start();
+		}
+	}
+
+	public synchronized void stop() {
+		if (mode == Mode.EXACT) {
+			interpreter.removeExecutionListener(this);
+		} else if (sampler != null) {
+			Thread thread = sampler;
+			sampler = null;
+			thread.interrupt();
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * 清空已收集的数据
+	 */
+	public void reset() {
+		methods.clear();
+		statementHits.clear();
+		stacks.clear();
+		samples.reset();
+	}
+
+	public Collection<MethodStats> getMethodStats() {
+		return Collections.unmodifiableCollection(methods.values());
+	}
+
+	/**
+	 * EXACT 模式下各语句的执行次数
+	 */
+	public Map<SourceLocation, Long> getStatementHits() {
+		Map<SourceLocation, Long> result = new IdentityHashMap<>();
+		for (Map.Entry<SourceLocation, LongAdder> entry : statementHits.entrySet()) {
+			result.put(entry.getKey(), entry.getValue().sum());
+		}
+		return result;
+	}
+
+	public long getSampleCount() {
+		return samples.sum();
+	}
+
+	// ---------------- EXACT ----------------
+
+	@Override
+	public void onCallEnter(Interpreter interpreter, CallFrame frame) {
+		ArrayDeque<Activation> stack = activations.get();
+		MethodStats stats = statsOf(frame);
+		Activation parent = stack.peek();
+		String path = parent == null ? stats.name : parent.stack + ";" + stats.name;
+		Activation activation = new Activation(frame, stats, path, System.nanoTime());
+		for (Activation a : stack) {
+			if (a.stats == stats) {
+				activation.recursive = true;
+				break;
+			}
+		}
+		stack.push(activation);
+		stats.calls.increment();
+	}
+
+	@Override
+	public void onCallExit(Interpreter interpreter, CallFrame frame) {
+		ArrayDeque<Activation> stack = activations.get();
+		Activation activation = stack.peek();
+		if (activation == null || activation.frame != frame) {
+			return;		// 进入过程时分析器尚未启动
+		}
+		stack.pop();
+		long elapsed = System.nanoTime() - activation.start;
+		long exclusive = elapsed - activation.childNanos;
+		if (activation.recursive == false) {
+			activation.stats.inclusiveNanos.add(elapsed);
+		}
+		activation.stats.exclusiveNanos.add(exclusive);
+		stacks.computeIfAbsent(activation.stack, k -> new LongAdder()).add(exclusive);
+		Activation parent = stack.peek();
+		if (parent != null) {
+			parent.childNanos += elapsed;
+		}
+	}
+
+	@Override
+	public void onStatement(Interpreter interpreter, CallFrame frame, Statement statement) {
+		SourceLocation location = statement.getSourceLocation();
+		if (location == null || location == SourceLocation.ByInterpreter) {
+			return;
+		}
+		LongAdder hits = statementHits.get(location);
+		if (hits == null) {
+			hits = statementHits.computeIfAbsent(location, k -> new LongAdder());
+		}
+		hits.increment();
+	}
+
+	// ---------------- SAMPLING ----------------
+
+	private void sampleLoop() {
+		while (sampler == Thread.currentThread()) {
+			try {
+				Thread.sleep(samplingInterval);
+			} catch (InterruptedException e) {
+				break;
+			}
+			sample();
+		}
+	}
+
+	private void sample() {
+		for (ExecutionContext context : interpreter.getExecutionContexts()) {
+			CallFrame[] frames = context.snapshotCallFrames();
+			StringBuilder path = new StringBuilder();
+			Set<MethodStats> seen = new HashSet<>();
+			MethodStats top = null;
+			for (CallFrame frame : frames) {
+				if (frame.method == null) continue;
+				top = statsOf(frame);
+				if (seen.add(top)) {
+					top.samples.increment();
+				}
+				if (path.length() > 0) path.append(';');
+				path.append(top.name);
+			}
+			if (top != null) {
+				top.selfSamples.increment();
+				samples.increment();
+				stacks.computeIfAbsent(path.toString(), k -> new LongAdder()).increment();
+			}
+		}
+	}
+
+	// ---------------- 导出 ----------------
+
+	private MethodStats statsOf(CallFrame frame) {
+		MethodStats stats = methods.get(frame.method);
+		if (stats == null) {
+			String name = frame.module == null ? frame.method.name : frame.module.getModuleDecl().name + "." + frame.method.name;
+			stats = methods.computeIfAbsent(frame.method, k -> new MethodStats(k, name));
+		}
+		return stats;
+	}
+
+	/**
+	 * 以 collapsed stack 格式输出，每行为“调用路径 数值”，路径中的过程以 ; 分隔。
+	 * EXACT 模式的数值为该路径的自身耗时（微秒），SAMPLING 模式为采样次数
+	 */
+	public void writeCollapsedStacks(Writer writer) throws IOException {
+		List<Map.Entry<String, LongAdder>> entries = new ArrayList<>(stacks.entrySet());
+		entries.sort(Map.Entry.comparingByKey());
+		for (Map.Entry<String, LongAdder> entry : entries) {
+			long value = entry.getValue().sum();
+			if (mode == Mode.EXACT) {
+				value /= 1000;
+			}
+			if (value > 0) {
+				writer.write(entry.getKey().replace(' ', '_'));
+				writer.write(' ');
+				writer.write(Long.toString(value));
+				writer.write('\n');
+			}
+		}
+		writer.flush();
+	}
+
+	/**
+	 * 输出文本报告：过程按自身耗时（SAMPLING 模式按栈顶采样数）降序排列，EXACT 模式另列出执行次数最多的语句
+	 */
+	public void writeReport(Writer writer) throws IOException {
+		PrintWriter out = new PrintWriter(writer);
+		List<MethodStats> list = new ArrayList<>(methods.values());
+		if (mode == Mode.EXACT) {
+			list.sort((a, b) -> Long.compare(b.exclusiveNanos.sum(), a.exclusiveNanos.sum()));
+			out.println(String.format("%10s %12s %12s  %s", "Calls", "Total(ms)", "Self(ms)", "Procedure"));
+			for (MethodStats stats : list) {
+				out.println(String.format("%10d %12.3f %12.3f  %s", stats.calls.sum(),
+						stats.inclusiveNanos.sum() / 1e6, stats.exclusiveNanos.sum() / 1e6, stats.name));
+			}
+
+			// 同一位置可能对应多个语句对象（如 For 的初始化与循环尾），按位置合并
+			Map<String, Long> hits = new HashMap<>();
+			for (Map.Entry<SourceLocation, LongAdder> entry : statementHits.entrySet()) {
+				hits.merge(entry.getKey().toString(), entry.getValue().sum(), Long::sum);
+			}
+			List<Map.Entry<String, Long>> sorted = new ArrayList<>(hits.entrySet());
+			sorted.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+			out.println();
+			out.println(String.format("%10s  %s", "Hits", "Statement"));
+			for (Map.Entry<String, Long> entry : sorted) {
+				out.println(String.format("%10d  %s", entry.getValue(), entry.getKey()));
+			}
+		} else {
+			long total = Math.max(samples.sum(), 1);
+			list.sort((a, b) -> Long.compare(b.selfSamples.sum(), a.selfSamples.sum()));
+			out.println(String.format("%10s %8s %10s %8s  %s", "Total", "%", "Self", "%", "Procedure"));
+			for (MethodStats stats : list) {
+				long all = stats.samples.sum();
+				long self = stats.selfSamples.sum();
+				out.println(String.format("%10d %7.2f%% %10d %7.2f%%  %s", all, all * 100.0 / total, self, self * 100.0 / total, stats.name));
+			}
+		}
+		out.flush();
+	}
+}
@@ -24,7 +24,9 @@ package org.siphon.visualbasic.runtime;
 import org.siphon.visualbasic.Interpreter;
 import org.siphon.visualbasic.SourceLocation;
 
-public abstract class Statement {
+import java.io.Serializable;
+
+public abstract class Statement implements Serializable {
 
 	protected final SourceLocation sourceLocation;
 
@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Inshua<inshua@gmail.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.siphon.visualbasic.runtime;
+
+import java.util.Arrays;
+
+/**
+ * 子串查找，供 InStr、InStrRev、Replace 等使用。
+ * <p>
+ * 二进制比较直接用 String.indexOf / lastIndexOf。文本比较时查找串预先折叠大小写，
+ * 被查串逐字符折叠后比较，不生成整串的小写副本；被查串较长时按 Horspool 算法跳跃前进。
+ * 同一查找串要查多次（如 Replace）时创建一个实例反复使用。
+ */
+public final class TextSearch {
+
+	// 剩余长度不足此数时逐位比较，建跳跃表不划算
+	private static final int HORSPOOL_MIN_LENGTH = 64;
+
+	private static final int TABLE_MASK = 0xFF;
+
+	private final String find;
+
+	private final boolean textCompare;
+
+	private final char[] folded;
+
+	// 按折叠后字符的低 8 位索引，冲突时取较小的跳跃距离
+	private int[] skip;
+
+	private int[] skipBack;
+
+	public TextSearch(String find, boolean textCompare) {
+		this.find = find;
+		this.textCompare = textCompare;
+		if (textCompare) {
+			this.folded = new char[find.length()];
+			for (int i = 0; i < folded.length; i++) {
+				folded[i] = fold(find.charAt(i));
+			}
+		} else {
+			this.folded = null;
+		}
+	}
+
+	public static int indexOf(String s, String find, int from, boolean textCompare) {
+		if (textCompare) {
+			return new TextSearch(find, true).indexIn(s, from);
+		} else {
+			return s.indexOf(find, from);
+		}
+	}
+
+	public static int lastIndexOf(String s, String find, int from, boolean textCompare) {
+		if (textCompare) {
+			return new TextSearch(find, true).lastIndexIn(s, from);
+		} else {
+			return s.lastIndexOf(find, from);
+		}
+	}
+
+	/**
+	 * 从 from 起向后查找，返回首个匹配的起始下标（从 0 起），找不到返回 -1
+	 */
+	public int indexIn(String s, int from) {
+		if (!textCompare) {
+			return s.indexOf(find, from);
+		}
+		int m = folded.length;
+		int n = s.length();
+		if (from < 0) {
+			from = 0;
+		}
+		if (m == 0) {
+			return from <= n ? from : -1;
+		}
+		int last = n - m;
+		if (from > last) {
+			return -1;
+		}
+		if (m == 1 || last - from < HORSPOOL_MIN_LENGTH) {
+			char first = folded[0];
+			for (int i = from; i <= last; i++) {
+				if (fold(s.charAt(i)) == first && matchAt(s, i)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		int[] skip = this.skip;
+		if (skip == null) {
+			skip = new int[TABLE_MASK + 1];
+			Arrays.fill(skip, m);
+			for (int k = 0; k < m - 1; k++) {
+				skip[folded[k] & TABLE_MASK] = m - 1 - k;
+			}
+			this.skip = skip;
+		}
+		char tail = folded[m - 1];
+		int i = from;
+		while (i <= last) {
+			char c = fold(s.charAt(i + m - 1));
+			if (c == tail) {
+				int j = m - 2;
+				while (j >= 0 && fold(s.charAt(i + j)) == folded[j]) {
+					j--;
+				}
+				if (j < 0) {
+					return i;
+				}
+			}
+			i += skip[c & TABLE_MASK];
+		}
+		return -1;
+	}
+
+	/**
+	 * 返回起始下标不超过 from 的最后一个匹配（从 0 起），找不到返回 -1
+	 */
+	public int lastIndexIn(String s, int from) {
+		if (!textCompare) {
+			return s.lastIndexOf(find, from);
+		}
+		int m = folded.length;
+		int n = s.length();
+		int i = Math.min(from, n - m);
+		if (i < 0) {
+			return -1;
+		}
+		if (m == 0) {
+			return i;
+		}
+		if (m == 1 || i < HORSPOOL_MIN_LENGTH) {
+			char first = folded[0];
+			for (; i >= 0; i--) {
+				if (fold(s.charAt(i)) == first && matchAt(s, i)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		int[] skipBack = this.skipBack;
+		if (skipBack == null) {
+			skipBack = new int[TABLE_MASK + 1];
+			Arrays.fill(skipBack, m);
+			for (int k = m - 1; k > 0; k--) {
+				skipBack[folded[k] & TABLE_MASK] = k;
+			}
+			this.skipBack = skipBack;
+		}
+		char head = folded[0];
+		while (i >= 0) {
+			char c = fold(s.charAt(i));
+			if (c == head && matchAt(s, i)) {
+				return i;
+			}
+			i -= skipBack[c & TABLE_MASK];
+		}
+		return -1;
+	}
+
+	private boolean matchAt(String s, int i) {
+		for (int j = 1; j < folded.length; j++) {
+			if (fold(s.charAt(i + j)) != folded[j]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 与 String.equalsIgnoreCase 相同的逐字符大小写折叠
+	 */
+	public static char fold(char c) {
+		if (c < 128) {
+			return c >= 'A' && c <= 'Z' ? (char) (c + 32) : c;
+		}
+		return Character.toLowerCase(Character.toUpperCase(c));
+	}
+}
@@ -21,11 +21,11 @@
  ******************************************************************************/
 package org.siphon.visualbasic.runtime;
 
+import org.siphon.visualbasic.OverflowException;
 import org.siphon.visualbasic.SourceLocation;
 import org.siphon.visualbasic.runtime.ArrayDef.Rank;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.AbstractList;
 import java.util.Iterator;
 import java.util.List;
 
@@ -37,7 +37,7 @@ public class VbArray extends VbValue {
 		return arrayDef;
 	}
 
-	private List<VbValue> values;
+	private Storage storage;		// 按 baseType 选择的存储，数值、字符串数组直接存放 Java 基本类型，取值时才生成 VbValue
 	
 	private boolean controlArray;		// 是否为控件数组
 	// TODO 控件数组应单独实现为一种数据类型
@@ -47,25 +47,17 @@ public class VbArray extends VbValue {
 	}
 
 	public List<VbValue> toList(){
-		return Collections.unmodifiableList(values);
+		return (ElementList) this.value;
 	}
 
 	public VbArray(VbVarType varType) {
-		super(varType, new ArrayList<VbValue>());
+		super(varType, null);
 		
 		this.arrayDef = varType.arrayDef;
 		
-		this.values = (List<VbValue>)this.value;
+		this.value = new ElementList();		// ElementList 要引用本数组，不能经由 super 传入
 		
-		if(arrayDef.ranks != null && arrayDef.ranks.length > 0){		// 动态数组声明时没有长度
-			int length = 1;
-			for(Rank rank : arrayDef.ranks){
-				length *= rank.length();
-			}
-			for(int i=0; i<length; i++){
-				values.add(this.arrayDef.baseType.crateDefaultValue());
-			}
-		}
+		this.storage = createStorage(arrayDef.baseType, lengthOf(arrayDef.ranks));		// 动态数组声明时没有长度
 	}
 	
 	public boolean isInited(){
@@ -73,58 +65,46 @@ public class VbArray extends VbValue {
 	}
 	
 	public Iterator<VbValue> iterator(){
-		return values.iterator();
+		return toList().iterator();
 	}
 	
 	public void redim(Rank[] ranks, boolean preserve, SourceLocation sourceLocation) throws VbRuntimeException{
-		List<VbValue> newValues = new ArrayList<>();
+		Storage newStorage = createStorage(this.arrayDef.baseType, lengthOf(ranks));
 		
-		if(ranks != null && ranks.length > 0){		// 动态数组声明时没有长度
-			int length = 1;
-			for(Rank rank : ranks){
-				length *= rank.length();
-			}
-			for(int i=0; i<length; i++){
-				newValues.add(preserve ? null : this.arrayDef.baseType.crateDefaultValue());
-			}
-		}
-		
-		if(preserve){
-			Integer[] indexes = new Integer[ranks.length];
-			for(int i = 0; i < ranks.length; i++){
-				Rank oldRank = this.arrayDef.ranks[i];
-				Rank newRank = ranks[i];
-				for(int j = Math.max(oldRank.lBound, newRank.lBound) ; j <= Math.min(oldRank.rBound, newRank.rBound); j ++){
-					indexes[i] = j; 
-
-					if(i == ranks.length -1){
-						int idx = this.findIndex(indexes, sourceLocation);
-						newValues.set(idx, this.get(indexes, sourceLocation));
+		if(preserve && this.isInited() && ranks != null && ranks.length == this.arrayDef.ranks.length){
+			Rank[] oldRanks = this.arrayDef.ranks;
+			for(int i = 0; i < newStorage.length(); i++){
+				// 由新数组中的位置还原各维下标，落在原数组范围内的元素复制过来
+				int rest = i;
+				int oldIndex = 0;
+				int oldRankSize = 1;
+				boolean inRange = true;
+				for(int r = ranks.length - 1; r >= 0; r--){
+					int d = ranks[r].lBound + rest % ranks[r].length();
+					rest /= ranks[r].length();
+					if(d < oldRanks[r].lBound || d > oldRanks[r].rBound){
+						inRange = false;
+						break;
 					}
+					oldIndex += (d - oldRanks[r].lBound) * oldRankSize;
+					oldRankSize *= oldRanks[r].length();
 				}
-			}
-			for(int i=0;i<newValues.size(); i++){
-				if(newValues.get(i) == null){
-					newValues.set(i, this.arrayDef.baseType.crateDefaultValue());
+				if(inRange){
+					newStorage.copy(this.storage, oldIndex, i);
 				}
 			}
 		}
 		this.arrayDef = this.arrayDef.baseType.toArrayType(ranks).arrayDef;
-		this.values = newValues;
+		this.storage = newStorage;
 	}
 
 	public VbValue get(Integer[] indexes, SourceLocation sourceLocation) throws VbRuntimeException{
-		int index = findIndex(indexes, sourceLocation);
-		VbValue result = this.values.get(index);
-		if(result == null){
-			this.values.set(index, result = arrayDef.baseType.crateDefaultValue());
-		}
-		return result;
+		return this.storage.get(findIndex(indexes, sourceLocation));
 	}
 	
 	public void set(Integer[] indexes, VbValue value, SourceLocation sourceLocation) throws VbRuntimeException{
 		int index = findIndex(indexes, sourceLocation);
-		this.values.set(index, value);
+		this.storage.set(index, value, sourceLocation);
 	}
 
 	private int findIndex(Integer[] indexes, SourceLocation sourceLocation) throws VbRuntimeException {
@@ -142,19 +122,27 @@ public class VbArray extends VbValue {
 		}
 		return index;
 	}
+
+	private static int lengthOf(Rank[] ranks) {
+		if(ranks == null || ranks.length == 0){
+			return 0;
+		}
+		int length = 1;
+		for(Rank rank : ranks){
+			length *= rank.length();
+		}
+		return length;
+	}
 	
 	@Override
 	public String toString() {
-		if(this.values.size() <= 20){			
-			return this.values.toString();
+		List<VbValue> values = toList();
+		if(values.size() <= 20){			
+			return values.toString();
 		} else {
 			String s = "[";
-			int i = 0;
-			for(VbValue v : this.values){
-				if(i < 20){
-					s += v + ", ";
-				}
-				i ++;
+			for(int i = 0; i < 20; i++){
+				s += values.get(i) + ", ";
 			}
 			s += "...]";
 			return s;
@@ -168,7 +156,340 @@ public class VbArray extends VbValue {
 		return new VbArray(arrType);
 	}
 
+	/**
+	 * 复制数组，数组赋值时使用。UDT、数组元素也复制，对象元素仍是同一个引用
+	 * @return
+	 */
+	public VbArray copy() {
+		VbArray result = new VbArray(this.arrayDef.baseType.toArrayType(this.arrayDef.ranks));
+		if (storage instanceof ObjectStorage) {
+			((ObjectStorage) result.storage).copyValues((ObjectStorage) this.storage);
+		} else {
+			for (int i = 0; i < storage.length(); i++) {
+				result.storage.copy(this.storage, i, i);
+			}
+		}
+		return result;
+	}
+
+	// 按值复制一个元素，Variant 中的数组、UDT 也复制
+	private static VbValue copyValue(VbValue value) {
+		if (value == null) {
+			return null;
+		}
+		switch (value.varType.vbType) {
+		case VbVarType.vbArray:
+			VbArray arr = (VbArray) value;
+			return arr.isInited() ? arr.copy() : arr.clone();
+		case VbVarType.vbUserDefinedType:
+			return value.clone();
+		case VbVarType.vbVariant:
+			VbValue v = (VbValue) value.value;
+			VbValue c = copyValue(v);
+			return c == v ? value : new VbValue(VbVarType.VbVariant, c);
+		default:
+			return value;
+		}
+	}
+
+	/**
+	 * 创建下界为 0 的 String 数组，直接以 values 为存储，不逐个生成 VbValue
+	 * @param values 元素，null 即 ""
+	 * @return
+	 */
+	public static VbArray ofStrings(String[] values) {
+		VbArray result = create(VbVarType.VbString, 0, values.length - 1);
+		result.storage = new StringStorage(values);
+		return result;
+	}
+
+	/**
+	 * 按存储顺序取第 index 个元素的字符串值，String 数组直接取出存储的字符串
+	 * @param index
+	 * @return
+	 */
+	public String getString(int index) {
+		if (storage instanceof StringStorage) {
+			String v = ((StringStorage) storage).values[index];
+			return v == null ? "" : v;
+		}
+		return (String) VbValue.CStr(storage.get(index)).value;
+	}
+
 	public void setControlArray(boolean controlArray) {
 		this.controlArray = controlArray;
 	}
+
+	/**
+	 * 元素列表，只读，元素按需生成 VbValue。VbArray.value 即为该列表
+	 */
+	private class ElementList extends AbstractList<VbValue> {
+
+		@Override
+		public VbValue get(int index) {
+			return storage.get(index);
+		}
+
+		@Override
+		public int size() {
+			return storage.length();
+		}
+	}
+
+	private static Storage createStorage(VbVarType baseType, int length) {
+		if(baseType.typeDecl != null || baseType.javaClass != null){		// 枚举等带类型声明的值保留原 VbValue
+			return new ObjectStorage(baseType, length);
+		}
+		switch (baseType.vbType) {
+		case VbVarType.vbInteger:
+		case VbVarType.vbBoolean:
+			return new IntStorage(baseType.vbType, length);
+		case VbVarType.vbByte:
+			return new ByteStorage(length);
+		case VbVarType.vbLong:
+		case VbVarType.vbCurrency:
+			return new LongStorage(baseType.vbType, length);
+		case VbVarType.vbSingle:
+			return new FloatStorage(length);
+		case VbVarType.vbDouble:
+		case VbVarType.vbDate:
+			return new DoubleStorage(baseType.vbType, length);
+		case VbVarType.vbString:
+			return new StringStorage(length);
+		default:
+			return new ObjectStorage(baseType, length);
+		}
+	}
+
+	private static abstract class Storage {
+
+		abstract int length();
+
+		abstract VbValue get(int index);
+
+		abstract void set(int index, VbValue value, SourceLocation sourceLocation) throws VbRuntimeException;
+
+		/**
+		 * 从同类存储复制一个元素，用于 ReDim Preserve
+		 */
+		abstract void copy(Storage from, int fromIndex, int toIndex);
+
+		// 与变量赋值一样，存入前转为数组的元素类型
+		static VbValue cast(VbValue value, int vbType, SourceLocation sourceLocation) throws VbRuntimeException {
+			try {
+				return VbValue.cast(value, vbType);
+			} catch (OverflowException e) {
+				throw new VbRuntimeException(VbRuntimeException.溢出, sourceLocation);
+			} catch (ClassCastException e) {
+				throw new VbRuntimeException(VbRuntimeException.类型不匹配, sourceLocation);
+			} catch (NullValueException e) {
+				throw new VbRuntimeException(VbRuntimeException.Null的使用无效, sourceLocation);
+			}
+		}
+	}
+
+	private static class IntStorage extends Storage {
+		private final int vbType;		// Integer, Boolean
+		private final int[] values;
+
+		IntStorage(int vbType, int length) {
+			this.vbType = vbType;
+			this.values = new int[length];
+		}
+
+		int length() {
+			return values.length;
+		}
+
+		VbValue get(int index) {
+			int v = values[index];
+			if (vbType == VbVarType.vbInteger) {
+				return VbValue.ofInteger(v);
+			}
+			return v == 0 ? VbValue.FALSE : v == -1 ? VbValue.TRUE : new VbValue(VbVarType.VbBoolean, v);
+		}
+
+		void set(int index, VbValue value, SourceLocation sourceLocation) throws VbRuntimeException {
+			values[index] = (Integer) cast(value, vbType, sourceLocation).value;
+		}
+
+		void copy(Storage from, int fromIndex, int toIndex) {
+			values[toIndex] = ((IntStorage) from).values[fromIndex];
+		}
+	}
+
+	private static class ByteStorage extends Storage {
+		private final byte[] values;
+
+		ByteStorage(int length) {
+			this.values = new byte[length];
+		}
+
+		int length() {
+			return values.length;
+		}
+
+		VbValue get(int index) {
+			return VbValue.ofByte(Byte.toUnsignedInt(values[index]));
+		}
+
+		void set(int index, VbValue value, SourceLocation sourceLocation) throws VbRuntimeException {
+			values[index] = ((Integer) cast(value, VbVarType.vbByte, sourceLocation).value).byteValue();
+		}
+
+		void copy(Storage from, int fromIndex, int toIndex) {
+			values[toIndex] = ((ByteStorage) from).values[fromIndex];
+		}
+	}
+
+	private static class LongStorage extends Storage {
+		private final int vbType;		// Long, Currency
+		private final long[] values;
+
+		LongStorage(int vbType, int length) {
+			this.vbType = vbType;
+			this.values = new long[length];
+		}
+
+		int length() {
+			return values.length;
+		}
+
+		VbValue get(int index) {
+			long v = values[index];
+			if (vbType == VbVarType.vbLong) {
+				return VbValue.ofLong(v);
+			}
+			return v == 0 ? VbValue.ZeroCurrency : new VbValue(VbVarType.VbCurrency, v);
+		}
+
+		void set(int index, VbValue value, SourceLocation sourceLocation) throws VbRuntimeException {
+			values[index] = (Long) cast(value, vbType, sourceLocation).value;
+		}
+
+		void copy(Storage from, int fromIndex, int toIndex) {
+			values[toIndex] = ((LongStorage) from).values[fromIndex];
+		}
+	}
+
+	private static class FloatStorage extends Storage {
+		private final float[] values;
+
+		FloatStorage(int length) {
+			this.values = new float[length];
+		}
+
+		int length() {
+			return values.length;
+		}
+
+		VbValue get(int index) {
+			float v = values[index];
+			return v == 0 ? VbValue.ZeroSingle : new VbValue(VbVarType.VbSingle, v);
+		}
+
+		void set(int index, VbValue value, SourceLocation sourceLocation) throws VbRuntimeException {
+			values[index] = (Float) cast(value, VbVarType.vbSingle, sourceLocation).value;
+		}
+
+		void copy(Storage from, int fromIndex, int toIndex) {
+			values[toIndex] = ((FloatStorage) from).values[fromIndex];
+		}
+	}
+
+	private static class DoubleStorage extends Storage {
+		private final int vbType;		// Double, Date
+		private final double[] values;
+
+		DoubleStorage(int vbType, int length) {
+			this.vbType = vbType;
+			this.values = new double[length];
+		}
+
+		int length() {
+			return values.length;
+		}
+
+		VbValue get(int index) {
+			double v = values[index];
+			if (vbType == VbVarType.vbDouble) {
+				return v == 0 ? VbValue.ZeroDouble : new VbValue(VbVarType.VbDouble, v);
+			}
+			return v == 0 ? VbValue.ZeroDate : new VbValue(VbVarType.VbDate, v);
+		}
+
+		void set(int index, VbValue value, SourceLocation sourceLocation) throws VbRuntimeException {
+			values[index] = (Double) cast(value, vbType, sourceLocation).value;
+		}
+
+		void copy(Storage from, int fromIndex, int toIndex) {
+			values[toIndex] = ((DoubleStorage) from).values[fromIndex];
+		}
+	}
+
+	private static class StringStorage extends Storage {
+		private final String[] values;		// null 即 ""
+
+		StringStorage(int length) {
+			this.values = new String[length];
+		}
+
+		StringStorage(String[] values) {
+			this.values = values;
+		}
+
+		int length() {
+			return values.length;
+		}
+
+		VbValue get(int index) {
+			String v = values[index];
+			return v == null ? VbValue.EmptyString : VbValue.ofString(v);
+		}
+
+		void set(int index, VbValue value, SourceLocation sourceLocation) throws VbRuntimeException {
+			values[index] = (String) cast(value, VbVarType.vbString, sourceLocation).value;
+		}
+
+		void copy(Storage from, int fromIndex, int toIndex) {
+			values[toIndex] = ((StringStorage) from).values[fromIndex];
+		}
+	}
+
+	private static class ObjectStorage extends Storage {		// Variant, Object, UDT 等
+		private final VbVarType baseType;
+		private final VbValue[] values;		// null 表示尚未访问，取值时生成缺省值
+
+		ObjectStorage(VbVarType baseType, int length) {
+			this.baseType = baseType;
+			this.values = new VbValue[length];
+		}
+
+		int length() {
+			return values.length;
+		}
+
+		VbValue get(int index) {
+			VbValue result = values[index];
+			if (result == null) {
+				values[index] = result = baseType.crateDefaultValue();
+			}
+			return result;
+		}
+
+		void set(int index, VbValue value, SourceLocation sourceLocation) {
+			values[index] = value;
+		}
+
+		void copy(Storage from, int fromIndex, int toIndex) {
+			values[toIndex] = ((ObjectStorage) from).values[fromIndex];
+		}
+
+		// 数组赋值时逐个按值复制；copy 只搬动元素，供 ReDim Preserve 使用
+		void copyValues(ObjectStorage from) {
+			for (int i = 0; i < values.length; i++) {
+				values[i] = copyValue(from.values[i]);
+			}
+		}
+	}
 }
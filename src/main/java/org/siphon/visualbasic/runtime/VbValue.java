@@ -24,8 +24,10 @@ package org.siphon.visualbasic.runtime;
 import org.apache.commons.lang3.ClassUtils;
 import org.siphon.visualbasic.*;
 import org.siphon.visualbasic.compile.ImpossibleException;
+import org.siphon.visualbasic.compile.JavaClassInfo;
 import org.siphon.visualbasic.compile.JavaClassModuleDecl;
 
+import java.io.Serializable;
 import java.lang.reflect.Array;
 import java.math.BigDecimal;
 import java.text.SimpleDateFormat;
@@ -43,7 +45,15 @@ import java.util.List;
 //import com.sun.glass.ui.Pixels.Format;
 //import com.sun.org.apache.bcel.internal.classfile.JavaClass;
 
-public class VbValue {
+/**
+ * VB 的值。
+ * <p>
+ * 标量值（数值、字符串、Boolean、Date 等）创建后不再修改，ofInteger、ofLong、ofByte、ofBoolean、ofString 以及 TRUE、FALSE、Empty
+ * 等常量返回的是共享的实例。变量赋值时由 VbVariable 换掉它持有的 VbValue，不改写 value。
+ * value 只在两处写入，写入的都不是共享实例：VbArray 构造时设置元素列表；As New 对象变量首次使用时在
+ * {@link #ensureInstanceInited} 中创建对象。其它代码不得写 value，否则所有共用该实例的地方都会被改掉。
+ */
+public class VbValue implements Serializable {
 
 	public final static VbValue Empty = new VbValue(VbVarType.VbVariant, new VbValue(VbVarType.VbEmpty, null));
 
@@ -57,9 +67,42 @@ public class VbValue {
 	
 	public static final VbValue FALSE = new VbValue(VbVarType.VbBoolean, 0);
 
+	// 标量 VbValue 创建后不再修改（变量赋值时由 VbVariable 换掉持有的 VbValue），因此常用的值可以共享同一实例
+	private static final VbValue[] IntegerCache = new VbValue[65536];		// -32768 ~ 32767
+
+	private static final int LongCacheLow = -128;
+
+	private static final VbValue[] LongCache = new VbValue[1024 - LongCacheLow + 1];	// -128 ~ 1024
+
+	private static final VbValue[] ByteCache = new VbValue[256];
+
+	static final VbValue EmptyString = new VbValue(VbVarType.VbString, "");
+
+	static final VbValue ZeroSingle = new VbValue(VbVarType.VbSingle, 0f);
+
+	static final VbValue ZeroDouble = new VbValue(VbVarType.VbDouble, 0.0);
+
+	static final VbValue ZeroCurrency = new VbValue(VbVarType.VbCurrency, 0L);
+
+	static final VbValue ZeroDate = new VbValue(VbVarType.VbDate, 0.0);
+
+	static final VbValue ZeroDecimal = new VbValue(VbVarType.VbDecimal, new BigDecimal(0));
+
+	static {
+		for (int i = 0; i < IntegerCache.length; i++) {
+			IntegerCache[i] = new VbValue(VbVarType.VbInteger, i - 32768);
+		}
+		for (int i = 0; i < LongCache.length; i++) {
+			LongCache[i] = new VbValue(VbVarType.VbLong, (long) (i + LongCacheLow));
+		}
+		for (int i = 0; i < ByteCache.length; i++) {
+			ByteCache[i] = new VbValue(VbVarType.VbByte, i);
+		}
+	}
+
 	public final VbVarType varType;
 
-	public Object value;
+	public Object value;		// 除构造外只允许本类说明中的两处写入
 
 	public VbValue(VbVarType varType, Object value) {
 		super();
@@ -76,6 +119,45 @@ public class VbValue {
 		}
 	}
 
+	/**
+	 * Integer 值，-32768 ~ 32767 之外抛出 OverflowException
+	 * @param i
+	 * @return
+	 */
+	public static VbValue ofInteger(int i) {
+		if (i >= -32768 && i <= 32767) {
+			return IntegerCache[i + 32768];
+		}
+		return new VbValue(VbVarType.VbInteger, i);
+	}
+
+	public static VbValue ofLong(long l) {
+		if (l >= LongCacheLow && l < LongCacheLow + LongCache.length) {
+			return LongCache[(int) l - LongCacheLow];
+		}
+		return new VbValue(VbVarType.VbLong, l);
+	}
+
+	/**
+	 * Byte 值，0 ~ 255 之外抛出 OverflowException
+	 * @param i
+	 * @return
+	 */
+	public static VbValue ofByte(int i) {
+		if (i >= 0 && i < 256) {
+			return ByteCache[i];
+		}
+		return new VbValue(VbVarType.VbByte, i);
+	}
+
+	public static VbValue ofBoolean(boolean b) {
+		return b ? TRUE : FALSE;
+	}
+
+	public static VbValue ofString(String s) {
+		return s.isEmpty() ? EmptyString : new VbValue(VbVarType.VbString, s);
+	}
+
 	public static VbValue cast(VbValue value, int varType) throws OverflowException {
 		if (value.varType.vbType == varType)
 			return value;
@@ -146,7 +228,7 @@ public class VbValue {
 		case VbVarType.vbString:
 			return value;
 		case VbVarType.vbBoolean:
-			return new VbValue(VbVarType.VbString, (Integer) value.value == 0 ? "False" : "True");
+			return ofString((Integer) value.value == 0 ? "False" : "True");
 
 		case VbVarType.vbDate:
 			double d = (Double)value.value;
@@ -162,7 +244,7 @@ public class VbValue {
 				return new VbValue(VbVarType.VbString, ld.format(formatter));
 			}
 		case VbVarType.vbEmpty:
-			return new VbValue(VbVarType.VbString, "");
+			return EmptyString;
 		
 		case VbVarType.vbNull:
 			return new VbValue(VbVarType.VbString, "Null");
@@ -209,8 +291,7 @@ public class VbValue {
 		if (i < 0 || i > 255) {
 			throw new OverflowException();
 		} else {
-			i = i & 0xff;
-			return new VbValue(VbVarType.VbByte, i);
+			return ofByte(i);
 		}
 	}
 
@@ -227,19 +308,19 @@ public class VbValue {
 
 		Object v = value.value;
 		if (v instanceof Number) {		// include date
-			return new VbValue(VbVarType.VbBoolean, ((Number) v).intValue() == 0 ? 0 : -1);
+			return ofBoolean(((Number) v).intValue() != 0);
 		} else if (value.varType.vbType == VbVarType.vbString) {
 			String s = (String) v;
 			if ("TRUE".equalsIgnoreCase(s)) {
-				return new VbValue(VbVarType.VbBoolean, -1);
+				return TRUE;
 			} else if ("FALSE".equalsIgnoreCase(s)) {
-				return new VbValue(VbVarType.VbBoolean, 0);
+				return FALSE;
 			} else {
 				value = CDbl(value);
 				return CBool(value);
 			}
 		} else if (value.varType.vbType == VbVarType.vbEmpty) {
-			return new VbValue(VbVarType.VbBoolean, 0);
+			return FALSE;
 		} else {
 			throw new ClassCastException("cannot cast to boolean");
 		}
@@ -410,12 +491,12 @@ public class VbValue {
 			Number n = (Number) value.value;
 			if (n instanceof Long) {
 				if(value.varType.vbType == VbVarType.vbCurrency){
-					return new VbValue(VbVarType.VbLong, (long)((Long)n / 10000));
+					return ofLong((Long)n / 10000);
 				} else {
-					return new VbValue(VbVarType.VbLong, n);
+					return ofLong((Long) n);
 				}
 			} else if (n instanceof Integer) {
-				return new VbValue(VbVarType.VbLong, n.longValue());
+				return ofLong(n.longValue());
 			} else {
 				double v = n.doubleValue();
 				double remain = Math.abs(v % 1);
@@ -427,10 +508,10 @@ public class VbValue {
 						i = (long) Math.round(v);
 					}
 				}
-				return new VbValue(VbVarType.VbLong, i);
+				return ofLong(i);
 			}
 		} else if (value.varType.vbType == VbVarType.vbEmpty) {
-			return new VbValue(VbVarType.VbLong, 0L);
+			return ofLong(0L);
 		} else {
 			throw new ClassCastException("cannot cast to long");
 		}
@@ -449,12 +530,12 @@ public class VbValue {
 		if (value.value instanceof Number) {	// include date, boolean
 			Number n = (Number) value.value;
 			if (n instanceof Integer) {
-				return new VbValue(VbVarType.VbInteger, n);
+				return ofInteger((Integer) n);
 			} else if (n instanceof Long) {
 				if(value.varType.vbType == VbVarType.vbCurrency){
-					return new VbValue(VbVarType.VbInteger, (int)((Long)n / 10000));
+					return ofInteger((int)((Long)n / 10000));
 				} else {
-					return new VbValue(VbVarType.VbInteger, n.intValue());
+					return ofInteger(n.intValue());
 				}
 			} else {
 				double v = n.doubleValue();
@@ -467,10 +548,10 @@ public class VbValue {
 						i = (int) Math.round(v);
 					}
 				}
-				return new VbValue(VbVarType.VbInteger, i);
+				return ofInteger(i);
 			}
 		} else if (value.varType.vbType == VbVarType.vbEmpty) {
-			return new VbValue(VbVarType.VbInteger, 0);
+			return ofInteger(0);
 		} else {
 			throw new ClassCastException("cannot cast to int");
 		}
@@ -532,9 +613,9 @@ public class VbValue {
 		}
 		
 		if (obj instanceof Integer) {
-			return new VbValue(VbVarType.VbInteger, obj);
+			return ofInteger((Integer) obj);
 		} else if (obj instanceof Long) {
-			return new VbValue(VbVarType.VbLong, obj);
+			return ofLong((Long) obj);
 		} else if (obj instanceof Float) {
 			return new VbValue(VbVarType.VbSingle, obj);
 		} else if (obj instanceof Double) {
@@ -544,11 +625,11 @@ public class VbValue {
 		} else if (obj instanceof Date) {
 			return new VbValue(VbVarType.VbDate, dateToDouble((Date) obj));
 		} else if (obj instanceof Byte) {
-			return new VbValue(VbVarType.VbByte, Byte.toUnsignedInt((Byte) obj));
+			return ofByte(Byte.toUnsignedInt((Byte) obj));
 		} else if (obj instanceof String) {
-			return new VbValue(VbVarType.VbString, obj);
+			return ofString((String) obj);
 		} else if (obj instanceof Boolean) {
-			return new VbValue(VbVarType.VbBoolean, (Boolean)obj ? -1 : 0);
+			return ofBoolean((Boolean) obj);
 
 		} else {
 			if(suggest != null 
@@ -559,14 +640,12 @@ public class VbValue {
 				VbValue val = new VbValue(suggest, instance);
 				return val;
 			} else if(autoCreateJavaModuleDecl){
-				JavaClassModuleDecl decl = new JavaClassModuleDecl(null, null, obj.getClass());
-				ClassTypeDecl ct = new ClassTypeDecl(null, decl);
-				VbVarType vt = new VbVarType(VbVarType.vbObject, ct, null, obj.getClass());
-				JavaModuleInstance instance = new JavaModuleInstance(decl, obj);
+				VbVarType vt = JavaClassInfo.of(obj.getClass()).getVbVarType();	// 每个类只反射一次
+				JavaModuleInstance instance = new JavaModuleInstance(vt.getClassModuleDecl(), obj);
 				VbValue val = new VbValue(vt, instance);
 				return val;
 			} else {
-				return new VbValue(new VbVarType(VbVarType.vbObject, ClassTypeDecl.JAVA_OBJECT_TYPE, null, obj.getClass()), obj);
+				return new VbValue(JavaClassInfo.of(obj.getClass()).getJavaObjectType(), obj);
 			}
 		}
 	}
@@ -641,27 +720,22 @@ public class VbValue {
 		}
 	}
 
+	/**
+	 * 复制值。标量值不可变，直接返回本身；未初始化的数组、UDT 才会生成新的实例
+	 */
 	public VbValue clone() {
 		switch (this.varType.vbType) {
 		case VbVarType.vbInteger:
-			return new VbValue(this.varType, ((Integer) this.value).intValue());
 		case VbVarType.vbLong:
-			return new VbValue(this.varType, ((Long) this.value).longValue());
 		case VbVarType.vbString:
-			return new VbValue(this.varType, ((String) this.value).substring(0));
 		case VbVarType.vbBoolean:
-			return new VbValue(this.varType, ((Integer)this.value).intValue());
 		case VbVarType.vbDouble:
-			return new VbValue(this.varType, ((Double) this.value).doubleValue());
 		case VbVarType.vbSingle:
-			return new VbValue(this.varType, ((Float) this.value).floatValue());
 		case VbVarType.vbByte:
-			return new VbValue(this.varType, ((Integer) this.value).intValue());
 		case VbVarType.vbDecimal:
 		case VbVarType.vbCurrency:
-			return new VbValue(this.varType, ((Long)this.value).longValue());
 		case VbVarType.vbDate:
-			return new VbValue(this.varType, ((Double)this.value).doubleValue());
+			return this;
 		case VbVarType.vbArray:
 			VbArray arr = (VbArray) this;
 			if(arr.isInited()){
@@ -678,7 +752,9 @@ public class VbValue {
 		case VbVarType.vbVariant:
 			VbValue v = (VbValue) this.value;
 			if(v != null){
-				v = v.clone();
+				VbValue c = v.clone();
+				if(c == v) return this;
+				v = c;
 			}
 			return new VbValue(VbVarType.VbVariant, v);
 		case VbVarType.vbUserDefinedType:
@@ -688,23 +764,26 @@ public class VbValue {
 		throw new ImpossibleException();
 	}
 
-	public void updateValue(Object value) { // 基本上 value 是不会被修改值的，除了 vb 的对象，vb 的对象为懒惰初始化
-		this.value = value;
-	}
-
 	public ModuleInstance ensureInstanceInited(Interpreter interpreter, CallFrame frame, SourceLocation sourceLocation)
 			throws VbRuntimeException {
 		ModuleInstance instance = (ModuleInstance) this.value;
 		if (instance == ModuleInstance.WAIT_NEW) {
-			ClassTypeDecl classDecl = (ClassTypeDecl) this.varType.typeDecl;
-			if(classDecl.classModule instanceof JavaClassModuleDecl){
-				JavaClassModuleDecl jcmd = (JavaClassModuleDecl) classDecl.classModule;
-				this.value = (instance = new JavaModuleInstance(jcmd, jcmd.newInstance(interpreter, frame, sourceLocation)));
-			} else {
-				this.value = (instance = new ModuleInstance(classDecl.classModule));
-				instance.initializeClass(interpreter, frame);
+			// As New 变量可能被多个线程同时首次访问，只创建一个实例
+			synchronized (this) {
+				instance = (ModuleInstance) this.value;
+				if (instance != ModuleInstance.WAIT_NEW) {
+					return instance;
+				}
+				ClassTypeDecl classDecl = (ClassTypeDecl) this.varType.typeDecl;
+				if(classDecl.classModule instanceof JavaClassModuleDecl){
+					JavaClassModuleDecl jcmd = (JavaClassModuleDecl) classDecl.classModule;
+					this.value = (instance = new JavaModuleInstance(jcmd, jcmd.newInstance(interpreter, frame, sourceLocation)));
+				} else {
+					this.value = (instance = new ModuleInstance(classDecl.classModule));
+					instance.initializeClass(interpreter, frame);
+				}
+				return instance;
 			}
-			return instance;
 		} else if (instance == null) {
 			throw new VbRuntimeException(VbRuntimeException.尚未设置对象变量或With区块变量, sourceLocation);
 		} else {
@@ -24,6 +24,7 @@ package org.siphon.visualbasic.runtime;
 import org.siphon.visualbasic.*;
 import org.siphon.visualbasic.compile.JavaClassModuleDecl;
 
+import java.io.Serializable;
 import java.math.BigDecimal;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -32,7 +33,7 @@ import java.util.List;
 
 //import com.sun.xml.internal.bind.v2.runtime.unmarshaller.XsiNilLoader.Single;
 
-public class VbVarType {
+public class VbVarType implements Serializable {
 
 	public static long DATE_OFFSET;
 	static {
@@ -233,6 +234,30 @@ public class VbVarType {
 	}
 
 	public VbValue crateDefaultValue() {
+		if (this.typeDecl == null && this.javaClass == null) {	// 基本类型的缺省值不可变，共享同一实例
+			switch (this.vbType) {
+			case VbVarType.vbInteger:
+				return VbValue.ofInteger(0);
+			case VbVarType.vbLong:
+				return VbValue.ofLong(0L);
+			case VbVarType.vbSingle:
+				return VbValue.ZeroSingle;
+			case VbVarType.vbDouble:
+				return VbValue.ZeroDouble;
+			case VbVarType.vbCurrency:
+				return VbValue.ZeroCurrency;
+			case VbVarType.vbDecimal:
+				return VbValue.ZeroDecimal;
+			case VbVarType.vbDate:
+				return VbValue.ZeroDate;
+			case VbVarType.vbString:
+				return VbValue.EmptyString;
+			case VbVarType.vbBoolean:
+				return VbValue.FALSE;
+			case VbVarType.vbByte:
+				return VbValue.ofByte(0);
+			}
+		}
 		switch (this.vbType) {
 		case VbVarType.vbInteger:
 			return new VbValue(this, 0);
@@ -35,6 +35,15 @@ public class VbVariable {
 	public VarDecl varDecl;
 
 	private boolean readonly = false;
+
+	// 自追加（s = s & x）的缓冲，见 AppendStatement。appendPending 时 value 尚不含缓冲中的内容，
+	// 由 CallFrame.locateVbVariable 取用变量时以 flushAppend 合并；appendedValue 为上次合并出的值，
+	// value 不再是它时说明变量已被另行赋值，缓冲作废
+	private StringBuilder appendBuffer;
+
+	private VbValue appendedValue;
+
+	private boolean appendPending;
 	
 	public boolean isReadonly() {
 		return readonly;
@@ -58,6 +67,47 @@ public class VbVariable {
 		return String.format("(VAR %s type:%s value: %s)", varDecl.name, varType.vbType, value);
 	}
 
+	/**
+	 * 当前值是否为字符串、可以直接追加（String 变量，或值为字符串的 Variant 变量）
+	 */
+	public boolean isAppendable() {
+		if (readonly || value == null) {
+			return false;
+		}
+		if (varType.vbType == VbVarType.vbString) {
+			return value.varType.vbType == VbVarType.vbString;
+		} else if (varType.vbType == VbVarType.vbVariant) {
+			return value.varType.vbType == VbVarType.vbVariant && value.value instanceof VbValue
+					&& ((VbValue) value.value).varType.vbType == VbVarType.vbString;
+		}
+		return false;
+	}
+
+	/**
+	 * 在字符串末尾追加 s，调用前须确认 {@link #isAppendable()}。
+	 * 追加的内容留在缓冲中，直到变量被其它语句取用时才生成新的字符串值，连续追加的开销与追加的长度成正比
+	 */
+	public void append(String s) {
+		if (appendPending == false && (appendBuffer == null || value != appendedValue)) {
+			VbValue str = varType.vbType == VbVarType.vbVariant ? (VbValue) value.value : value;
+			appendBuffer = new StringBuilder((String) str.value);
+		}
+		appendBuffer.append(s);
+		appendPending = true;
+	}
+
+	/**
+	 * 把追加缓冲中的内容合并进 value
+	 */
+	public void flushAppend() {
+		if (appendPending) {
+			VbValue str = new VbValue(VbVarType.VbString, appendBuffer.toString());
+			value = varType.vbType == VbVarType.vbVariant ? new VbValue(VbVarType.VbVariant, str) : str;
+			appendedValue = value;
+			appendPending = false;
+		}
+	}
+
 	public void assign(VbValue value, Interpreter interpreter, CallFrame frame, SourceLocation sourceLocation) throws VbRuntimeException {
 		if(this.varType.vbType == VbVarType.vbObject && value != null && !value.isObject()) {
 			VbDecl defaultMember = this.varType.getDefaultMember(VbCallType.VbLet);
@@ -89,27 +139,16 @@ public class VbVariable {
 			if(this.varType.vbType == VbVarType.vbObject){
 				throw new VbRuntimeException(VbRuntimeException.类型不匹配, sourceLocation);
 			}
+			if(this.varType.vbType == VbVarType.vbArray){
+				this.value = copyArray(value, sourceLocation);
+				return;
+			}
 			try {
-				if(this.varDecl instanceof ArgumentDecl){
-					ArgumentDecl argDecl = (ArgumentDecl) this.varDecl;
-					if(argDecl.mode == ArgumentMode.ByRef){	// TODO ByRef 不一定是这样实现的
-						VbValue val = VbValue.cast(value, this.varType.vbType);
-//						if(value.varType.vbType != this.varType.vbType){
-//							throw new VbRuntimeException(VbRuntimeException.类型不匹配, sourceLocation);
-//						}
-						this.value.updateValue(val.value);
-					} else {
-						if(value.isObject() && this.varType.isBaseType()){
-							value = interpreter.evalDefaultMember(value, frame, sourceLocation);
-						}
-						this.value = VbValue.cast(value, this.varType.vbType);
-					}
-				} else {
-					if(value.isObject() && this.varType.isBaseType()){
-						value = interpreter.evalDefaultMember(value, frame, sourceLocation);
-					}
-					this.value = VbValue.cast(value, this.varType.vbType);
+				// ByRef 参数在调用帧中就是实参的 VbVariable（见 Interpreter.bindArguments），赋值即可
+				if(value.isObject() && this.varType.isBaseType()){
+					value = interpreter.evalDefaultMember(value, frame, sourceLocation);
 				}
+				this.value = VbValue.cast(value, this.varType.vbType);
 			} catch (OverflowException e) {
 				throw new VbRuntimeException(VbRuntimeException.溢出, sourceLocation);
 			} catch (ClassCastException e) {
@@ -120,6 +159,18 @@ public class VbVariable {
 		}
 	}
 	
+	// 给数组变量赋值，元素类型须相同，得到的是副本
+	private VbValue copyArray(VbValue value, SourceLocation sourceLocation) throws VbRuntimeException {
+		if(value.varType.vbType == VbVarType.vbVariant){
+			value = (VbValue) value.value;
+		}
+		if(value.varType.vbType != VbVarType.vbArray
+				|| ((VbArray) value).getArrayDef().baseType.vbType != this.varType.arrayDef.baseType.vbType){
+			throw new VbRuntimeException(VbRuntimeException.类型不匹配, sourceLocation);
+		}
+		return ((VbArray) value).copy();
+	}
+
 	private void setObjectValue(VbValue value, SourceLocation sourceLocation) throws VbRuntimeException {
 		if(value.varType.vbType == VbVarType.vbVariant){
 			value = (VbValue) value.value;
@@ -130,6 +130,7 @@ public class Enums {
 	}
 
 	public class VbCompareMethod {
+		public static final int vbUseCompareOption = -1;
 		public static final int vbBinaryCompare = 0;
 		public static final int vbTextCompare = 1;
 		public static final int vbDatabaseCompare = 2;
@@ -22,8 +22,11 @@
 package org.siphon.visualbasic.runtime.framework.vba;
 
 import org.siphon.visualbasic.Interpreter;
+import org.siphon.visualbasic.runtime.ArrayDef.Rank;
 import org.siphon.visualbasic.runtime.CallFrame;
 import org.siphon.visualbasic.runtime.ErrObject;
+import org.siphon.visualbasic.runtime.VbArray;
+import org.siphon.visualbasic.runtime.VbRuntimeException;
 import org.siphon.visualbasic.runtime.VbValue;
 import org.siphon.visualbasic.runtime.VbVarType;
 import org.siphon.visualbasic.runtime.framework.Enums.VbIMEStatus;
@@ -50,6 +53,30 @@ public class Information {
 		}
 	}
 
+	@VbMethod("Function LBound(ArrayName, Optional Dimension As Long = 1) As Long")
+	public static long LBound(VbValue arrayName, long dimension) throws VbRuntimeException {
+		return findRank(arrayName, dimension).lBound;
+	}
+
+	@VbMethod("Function UBound(ArrayName, Optional Dimension As Long = 1) As Long")
+	public static long UBound(VbValue arrayName, long dimension) throws VbRuntimeException {
+		return findRank(arrayName, dimension).rBound;
+	}
+
+	private static Rank findRank(VbValue arrayName, long dimension) throws VbRuntimeException {
+		if (arrayName.isVariant()) {
+			arrayName = (VbValue) arrayName.value;
+		}
+		if (arrayName.varType.vbType != VbVarType.vbArray) {
+			throw new VbRuntimeException(VbRuntimeException.类型不匹配);
+		}
+		VbArray arr = (VbArray) arrayName;
+		if (!arr.isInited() || dimension < 1 || dimension > arr.getArrayDef().ranks.length) {	// 未 ReDim 的动态数组也是下标越界
+			throw new VbRuntimeException(VbRuntimeException.下标越界);
+		}
+		return arr.getArrayDef().ranks[(int) dimension - 1];
+	}
+
 	@VbMethod("Function IsDate(Expression) As Boolean")
 	public static boolean isDate(VbValue expression) {
 		if (expression.isVariant())
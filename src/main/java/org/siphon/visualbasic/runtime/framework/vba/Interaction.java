@@ -22,6 +22,7 @@
 package org.siphon.visualbasic.runtime.framework.vba;
 
 import org.siphon.visualbasic.*;
+import org.siphon.visualbasic.compile.JavaClassInfo;
 import org.siphon.visualbasic.runtime.*;
 import org.siphon.visualbasic.runtime.VbVarType.TypeEnum;
 import org.siphon.visualbasic.runtime.framework.Enums.VbCallType;
@@ -73,7 +74,7 @@ public class Interaction {
 				obj = constructor.newInstance();
 			} else {
 				List<VbValue> lsArgsCall = ((VbArray) arguments).toList();
-				constructor = findMatchConstructor(cls.getConstructors(), lsArgsCall);
+				constructor = findMatchConstructor(JavaClassInfo.of(cls).getConstructors(), lsArgsCall);
 				if(constructor == null){
 					throw new NoSuchMethodException("<Constructor>");
 				}
@@ -22,6 +22,7 @@
 package org.siphon.visualbasic.runtime.framework.vba;
 
 import org.apache.commons.lang3.StringUtils;
+import org.siphon.visualbasic.Interpreter;
 import org.siphon.visualbasic.runtime.*;
 import org.siphon.visualbasic.runtime.VbVarType.TypeEnum;
 import org.siphon.visualbasic.runtime.framework.Enums;
@@ -38,17 +39,24 @@ public class Strings {
 	@VbMethod
 	public static VbValue Mid(@VbParam(name = "String") VbValue string,
 			@VbParam(name = "Start", type = TypeEnum.vbLong) VbValue start,
-			@VbParam(name = "Length", optional = true) VbValue length) {
+			@VbParam(name = "Length", optional = true) VbValue length) throws VbRuntimeException {
 
 		String s = (String) string.toJava();
 
-		Long from = (Long) start.toJava() - 1;
-		String result = null;
-		if (length.isMissing()) {
-			result = s.substring(from.intValue());
-		} else {
-			result = s.substring(from.intValue(), from.intValue() + ((Number) length.toJava()).intValue());
+		long from = (Long) start.toJava() - 1;
+		if (from < 0)
+			throw new VbRuntimeException(VbRuntimeException.无效的过程调用);
+		if (from > s.length())		// Start 超出长度返回空串
+			from = s.length();
+		long to = s.length();
+		if (length.isMissing() == false) {
+			long n = ((Number) length.toJava()).longValue();
+			if (n < 0)
+				throw new VbRuntimeException(VbRuntimeException.无效的过程调用);
+			if (n < to - from)
+				to = from + n;
 		}
+		String result = s.substring((int) from, (int) to);
 
 		return new VbValue(VbVarType.VbVariant, new VbValue(VbVarType.VbString, result));
 	}
@@ -113,89 +121,80 @@ public class Strings {
 		return Chr(Char);
 	}
 
-	@VbMethod("Function InStr(Optional Start, Optional String1, Optional String2, Optional Compare As VbCompareMethod = vbBinaryCompare)")
-	public static VbValue InStr(VbValue Start, VbValue String1, VbValue String2, VbValue Compare) throws VbRuntimeException {
-		int start = 1;
-		String string1 = null, string2 = null;
-		int compare = Enums.VbCompareMethod.vbBinaryCompare;
+	@VbMethod(value = "Function InStr(Optional Start, Optional String1, Optional String2, Optional Compare As VbCompareMethod = vbUseCompareOption)", withIntepreter = true)
+	public static VbValue InStr(Interpreter interpreter, CallFrame frame, VbValue Start, VbValue String1, VbValue String2, int compare) throws VbRuntimeException {
+		long start = 1;
+		VbValue string1, string2;
 
-		if (Compare.isMissing() && String2.isMissing()) {
-			string1 = (String) VbValue.CStr(Start).value;
-			string2 = (String) VbValue.CStr(String1).value;
+		if (String2.isMissing()) { // InStr(String1, String2)
+			string1 = Start;
+			string2 = String1;
 		} else {
-			start = (int) VbValue.CInt(Start).value;
-			string1 = (String) VbValue.CStr(String1).value;
-			string2 = (String) VbValue.CStr(String2).value;
+			if (Start.isNull()) {
+				throw new VbRuntimeException(VbRuntimeException.Null的使用无效);
+			}
+			start = (Long) VbValue.CLng(Start).value;
+			string1 = String1;
+			string2 = String2;
 		}
 
 		if (start < 1) {
 			throw new VbRuntimeException(VbRuntimeException.无效的过程调用);
 		}
 
-		if (StringUtils.isEmpty(string1)) {
-			return VbValue.Empty.clone();
-		}
-
-		if (StringUtils.isEmpty(string2)) {
-			return VbValue.Empty.clone();
+		if (string1.isNull() || string2.isNull()) {
+			return VbValue.Null.clone();
 		}
 
-		if (start > string1.length()) {
-			return VbValue.Empty.clone();
+		String s1 = (String) VbValue.CStr(string1).value;
+		String s2 = (String) VbValue.CStr(string2).value;
+		int i = -1;
+		if (!s1.isEmpty() && start <= s1.length()) {
+			i = TextSearch.indexOf(s1, s2, (int) start - 1, isTextCompare(compare, frame));
 		}
-
-		if (compare == Enums.VbCompareMethod.vbTextCompare) {
-			string1 = string1.toLowerCase();
-			string2 = string2.toLowerCase();
-		}
-
-		int i = string1.indexOf(string2, start - 1);
-
-		return new VbValue(VbVarType.VbVariant, VbValue.fromJava(i + 1));
-
+		return new VbValue(VbVarType.VbVariant, VbValue.ofLong(i + 1));
 	}
-	
-	
-	@VbMethod("Function InStrRev(Optional Start, Optional String1, Optional String2, Optional Compare As VbCompareMethod = vbBinaryCompare) As Long")
-	public static VbValue InStrRev(VbValue Start, VbValue String1, VbValue String2, VbValue Compare) throws VbRuntimeException {
-		int start = 1;
-		String string1 = null, string2 = null;
-		int compare = Enums.VbCompareMethod.vbBinaryCompare;
-
-		if (Compare.isMissing() && String2.isMissing()) {
-			string1 = (String) VbValue.CStr(Start).value;
-			string2 = (String) VbValue.CStr(String1).value;
-		} else {
-			start = (int) VbValue.CInt(Start).value;
-			string1 = (String) VbValue.CStr(String1).value;
-			string2 = (String) VbValue.CStr(String2).value;
-		}
 
-		if (start < 1) {
+	@VbMethod("Function InStrRev(StringCheck As String, StringMatch As String, Optional Start As Long = -1, Optional Compare As VbCompareMethod = vbBinaryCompare) As Long")
+	public static long InStrRev(String stringCheck, String stringMatch, long start, int compare) throws VbRuntimeException {
+		if (start == 0 || start < -1) {
 			throw new VbRuntimeException(VbRuntimeException.无效的过程调用);
 		}
-
-		if (StringUtils.isEmpty(string1)) {
-			return VbValue.Empty.clone();
+		boolean textCompare = isTextCompare(compare);
+		int n = stringCheck.length();
+		if (start == -1) {
+			start = n;
 		}
-
-		if (StringUtils.isEmpty(string2)) {
-			return VbValue.Empty.clone();
+		if (n == 0 || start > n) {
+			return 0;
 		}
-
-		if (start > string1.length()) {
-			return VbValue.Empty.clone();
+		if (stringMatch.isEmpty()) {
+			return start;
 		}
-
-		if (compare == Enums.VbCompareMethod.vbTextCompare) {
-			string1 = string1.toLowerCase();
-			string2 = string2.toLowerCase();
+		// 匹配须在 Start 处或之前结束
+		int from = (int) start - stringMatch.length();
+		return TextSearch.lastIndexOf(stringCheck, stringMatch, from, textCompare) + 1;
+	}
+
+	static boolean isTextCompare(int compare) throws VbRuntimeException {
+		switch (compare) {
+		case Enums.VbCompareMethod.vbBinaryCompare:
+			return false;
+		case Enums.VbCompareMethod.vbTextCompare:
+		case Enums.VbCompareMethod.vbDatabaseCompare:
+			return true;
+		default:
+			throw new VbRuntimeException(VbRuntimeException.无效的过程调用);
 		}
+	}
 
-		int i = string1.lastIndexOf(string2, start - 1);
-
-		return VbValue.fromJava(i + 1);
-
+	/**
+	 * vbUseCompareOption 取调用方模块的 Option Compare 设置
+	 */
+	static boolean isTextCompare(int compare, CallFrame frame) throws VbRuntimeException {
+		if (compare == Enums.VbCompareMethod.vbUseCompareOption)
+			return frame.module.getModuleDecl().isTextCompare();
+		return isTextCompare(compare);
 	}
 
 	@VbMethod("Function Join(SourceArray, Optional Delimiter) As String")
@@ -213,13 +212,20 @@ public class Strings {
 		if (!delimiter.isMissing()) {
 			d = (String) VbValue.CStr(delimiter).value;
 		}
-		StringBuffer sb = new StringBuffer();
-		for (Iterator<VbValue> it = a.iterator(); it.hasNext();) {
-			VbValue v = it.next();
-			sb.append(VbValue.CStr(v).value);
-			if (it.hasNext()) {
-				sb.append(d);
-			}
+		int n = a.toList().size();
+		if (n == 0) {
+			return "";
+		}
+		String[] parts = new String[n];
+		int length = d.length() * (n - 1);
+		for (int i = 0; i < n; i++) {
+			parts[i] = a.getString(i);
+			length += parts[i].length();
+		}
+		StringBuilder sb = new StringBuilder(length);
+		sb.append(parts[0]);
+		for (int i = 1; i < n; i++) {
+			sb.append(d).append(parts[i]);
 		}
 		return sb.toString();
 	}
@@ -244,7 +250,7 @@ public class Strings {
 		String s = (String) VbValue.CStr(string).value;
 		if (length > s.length())
 			length = s.length();
-		s = s.substring(0, (int) length - 1);
+		s = s.substring(0, (int) length);
 		return new VbValue(VbVarType.VbVariant, new VbValue(VbVarType.VbString, s));
 	}
 
@@ -256,7 +262,7 @@ public class Strings {
 			return "";
 		if (length > string.length())
 			length = string.length();
-		return string.substring(0, (int) length - 1);
+		return string.substring(0, (int) length);
 	}
 
 	@VbMethod("Function Right(String, Length As Long)")
@@ -268,7 +274,7 @@ public class Strings {
 		String s = (String) VbValue.CStr(string).value;
 		if (length > s.length())
 			return new VbValue(VbVarType.VbVariant, new VbValue(VbVarType.VbString, s));
-		s = s.substring((int) length - 1);
+		s = s.substring(s.length() - (int) length);
 		return new VbValue(VbVarType.VbVariant, new VbValue(VbVarType.VbString, s));
 	}
 
@@ -280,11 +286,11 @@ public class Strings {
 			return "";
 		if (length > string.length())
 			return string;
-		return string.substring((int) length - 1);
+		return string.substring(string.length() - (int) length);
 	}
 
-	@VbMethod("Function Len(Expression)")
-	public static int len(VbValue expression) {
+	@VbMethod("Function Len(Expression) As Long")
+	public static long len(VbValue expression) {
 		if(expression.isVariant()) expression = (VbValue) expression.value;
 		switch(expression.varType.vbType){
 		case VbVarType.vbString:
@@ -368,19 +374,19 @@ public class Strings {
 		return new VbValue(VbVarType.VbVariant, result);
 	}
 
-	@VbMethod("Function Format$(Expression, Optional Format, Optional FirstDayOfWeek As VbDayOfWeek = vbSunday, Optional FirstWeekOfYear As VbFirstWeekOfYear = vbFirstJan1) As String")
+	@VbMethod("Function Format$(Expression, Optional Style, Optional FirstDayOfWeek As VbDayOfWeek = vbSunday, Optional FirstWeekOfYear As VbFirstWeekOfYear = vbFirstJan1) As String")
 	public static String Format(VbValue Expression, VbValue Format, int firstDayOfWeek, int firstWeekOfYear) {
 		//TODO
 		throw new UnsupportedOperationException("TODO");
 	}
 	
-	@VbMethod("Function FormatDateTime(Expression, Optioanl NamedFormat As VbDateTimeFormat = vbGeneralDate) As String")
+	@VbMethod("Function FormatDateTime(Expression, Optional NamedFormat As VbDateTimeFormat = vbGeneralDate) As String")
 	public static String formatDateTime(VbValue expression, int namedFormat){
 		//TODO
 		throw new UnsupportedOperationException("TODO");
 	}
 	
-	@VbMethod("Function FormatNumber(Expression, Optional NumDigitsAfterDecimal As Long = -1, Optional IncludeLeadingDigit As VbTriState = vbUseDefault, Optional UseParensForNegativeNumbers As VbTriState = vbUseDefault], [GroupDigits As VbTriState = vbUseDefault) As String")
+	@VbMethod("Function FormatNumber(Expression, Optional NumDigitsAfterDecimal As Long = -1, Optional IncludeLeadingDigit As VbTriState = vbUseDefault, Optional UseParensForNegativeNumbers As VbTriState = vbUseDefault, Optional GroupDigits As VbTriState = vbUseDefault) As String")
 	public static String FormatNumber(VbValue expression, int NumDigitsAfterDecimal, int IncludeLeadingDigit, int UseParensForNegativeNumbers, int GroupDigits){
 		//TODO
 		throw new UnsupportedOperationException("TODO");
@@ -424,10 +430,40 @@ public class Strings {
 		return new VbValue(VbVarType.VbVariant, new VbValue(VbVarType.VbString, s));
 	}
 	
-	@VbMethod("Function Replace(Expression As String, Find As String, Replace As String, Optional Start As Long = 1, Optional Count As Long = -1, Optional Compare As VbCompareMethod = vbBinaryCompare) As String")
-	public String replace(String expression, String find, String replace, long start, long count, int compare){
-		//TODO
-		throw new UnsupportedOperationException("TODO");
+	/**
+	 * 返回值从 Start 处开始，Start 之前的部分不在结果中；Count 为 -1 时替换全部
+	 */
+	@VbMethod("Function Replace(Expression As String, Find As String, Replacement As String, Optional Start As Long = 1, Optional Count As Long = -1, Optional Compare As VbCompareMethod = vbBinaryCompare) As String")
+	public static String replace(String expression, String find, String replacement, long start, long count, int compare) throws VbRuntimeException {
+		if (start < 1 || count < -1) {
+			throw new VbRuntimeException(VbRuntimeException.无效的过程调用);
+		}
+		boolean textCompare = isTextCompare(compare);
+		int n = expression.length();
+		if (start > n) {
+			return "";
+		}
+		int pos = (int) start - 1;
+		if (find.isEmpty() || count == 0) {
+			return expression.substring(pos);
+		}
+		TextSearch search = new TextSearch(find, textCompare);
+		int i = search.indexIn(expression, pos);
+		if (i < 0) {
+			return expression.substring(pos);
+		}
+
+		StringBuilder sb = new StringBuilder(n - pos + java.lang.Math.max(0, replacement.length() - find.length()) * 4);
+		do {
+			sb.append(expression, pos, i).append(replacement);
+			pos = i + find.length();
+			if (--count == 0) {
+				break;
+			}
+			i = search.indexIn(expression, pos);
+		} while (i >= 0);
+		sb.append(expression, pos, n);
+		return sb.toString();
 	}
 	
 	@VbMethod("Function Space$(Number As Long) As String")
@@ -441,24 +477,114 @@ public class Strings {
 		return new VbValue(VbVarType.VbVariant, new VbValue(VbVarType.VbString, s));
 	}
 	
+	/**
+	 * 返回下界为 0 的 String 数组。Expression 为 "" 时返回空数组，Delimiter 为 "" 时返回只含 Expression 的数组；
+	 * Limit 为返回的子串个数上限，最后一个子串包含余下的全部内容
+	 */
 	@VbMethod("Function Split(Expression As String, Optional Delimiter, Optional Limit As Long = -1, Optional Compare As VbCompareMethod = vbBinaryCompare)")
-	public static VbValue split(String expression, VbValue delimiter, long limit, int compare){
-		//TODO
-		throw new UnsupportedOperationException("TODO");
+	public static VbValue split(String expression, VbValue delimiter, long limit, int compare) throws VbRuntimeException {
+		if (limit < -1) {
+			throw new VbRuntimeException(VbRuntimeException.无效的过程调用);
+		}
+		boolean textCompare = isTextCompare(compare);
+		String d = " ";
+		if (!delimiter.isMissing()) {
+			d = (String) VbValue.CStr(delimiter).value;
+		}
+
+		String[] result;
+		if (expression.isEmpty() || limit == 0) {
+			result = new String[0];
+		} else if (d.isEmpty() || limit == 1) {
+			result = new String[] { expression };
+		} else {
+			TextSearch search = new TextSearch(d, textCompare);
+			List<String> ls = new ArrayList<>();
+			int pos = 0;
+			int i;
+			while ((limit == -1 || ls.size() < limit - 1) && (i = search.indexIn(expression, pos)) >= 0) {
+				ls.add(expression.substring(pos, i));
+				pos = i + d.length();
+			}
+			ls.add(expression.substring(pos));
+			result = ls.toArray(new String[ls.size()]);
+		}
+		return new VbValue(VbVarType.VbVariant, VbArray.ofStrings(result));
 	}
-	
-	@VbMethod("Function StrComp(String1, String2, Optional Compare As VbCompareMethod = vbBinaryCompare)")
-	public static VbValue split(VbValue String1, VbValue String2, int compare){
-		//TODO
-		throw new UnsupportedOperationException("TODO");
+
+	@VbMethod(value = "Function StrComp(String1, String2, Optional Compare As VbCompareMethod = vbUseCompareOption)", withIntepreter = true)
+	public static VbValue StrComp(Interpreter interpreter, CallFrame frame, VbValue String1, VbValue String2, int compare) throws VbRuntimeException {
+		boolean textCompare = isTextCompare(compare, frame);
+		if (String1.isNull() || String2.isNull()) {
+			return VbValue.Null.clone();
+		}
+		String s1 = (String) VbValue.CStr(String1).value;
+		String s2 = (String) VbValue.CStr(String2).value;
+		int r = textCompare ? String.CASE_INSENSITIVE_ORDER.compare(s1, s2) : s1.compareTo(s2);
+		return new VbValue(VbVarType.VbVariant, VbValue.fromJava(Integer.signum(r)));
 	}
-	
+
+	/**
+	 * 支持大小写、全角半角（ASCII 字符与空格）、平假名片假名的转换。
+	 * 本解释器的字符串均为 Unicode，没有 ANSI 字节串，vbUnicode、vbFromUnicode 视为无效的过程调用
+	 */
 	@VbMethod("Function StrConv(String, Conversion As VbStrConv, Optional LocaleID As Long)")
-	public static VbValue StrConv(VbValue string, int conversion, long localeId){
-		//TODO
-		throw new UnsupportedOperationException("TODO");
+	public static VbValue StrConv(VbValue string, int conversion, long localeId) throws VbRuntimeException {
+		int caseConv = conversion & 3;
+		if ((conversion & ~(3 | Enums.VbStrConv.vbWide | Enums.VbStrConv.vbNarrow | Enums.VbStrConv.vbKatakana | Enums.VbStrConv.vbHiragana)) != 0
+				|| (conversion & (Enums.VbStrConv.vbWide | Enums.VbStrConv.vbNarrow)) == (Enums.VbStrConv.vbWide | Enums.VbStrConv.vbNarrow)
+				|| (conversion & (Enums.VbStrConv.vbKatakana | Enums.VbStrConv.vbHiragana)) == (Enums.VbStrConv.vbKatakana | Enums.VbStrConv.vbHiragana)) {
+			throw new VbRuntimeException(VbRuntimeException.无效的过程调用);
+		}
+		if (string.isNull()) {
+			return VbValue.Null.clone();
+		}
+		String s = (String) VbValue.CStr(string).value;
+		char[] cs = new char[s.length()];
+		boolean wordStart = true;
+		for (int i = 0; i < cs.length; i++) {
+			char c = s.charAt(i);
+			char r = c;
+			switch (caseConv) {
+			case Enums.VbStrConv.vbUpperCase:
+				r = Character.toUpperCase(c);
+				break;
+			case Enums.VbStrConv.vbLowerCase:
+				r = Character.toLowerCase(c);
+				break;
+			case Enums.VbStrConv.vbProperCase:
+				r = wordStart ? Character.toUpperCase(c) : Character.toLowerCase(c);
+				// 单词以 Null、Tab、换行、垂直制表、换页、回车、空格分隔
+				wordStart = c == ' ' || c == '\0' || (c >= '\t' && c <= '\r');
+				break;
+			}
+			if ((conversion & Enums.VbStrConv.vbWide) != 0) {
+				if (r > ' ' && r <= '~') {
+					r = (char) (r - '!' + '\uFF01');
+				} else if (r == ' ') {
+					r = '\u3000';
+				}
+			} else if ((conversion & Enums.VbStrConv.vbNarrow) != 0) {
+				if (r >= '\uFF01' && r <= '\uFF5E') {
+					r = (char) (r - '\uFF01' + '!');
+				} else if (r == '\u3000') {
+					r = ' ';
+				}
+			}
+			if ((conversion & Enums.VbStrConv.vbKatakana) != 0) {
+				if (r >= '\u3041' && r <= '\u3096') {
+					r = (char) (r + 0x60);
+				}
+			} else if ((conversion & Enums.VbStrConv.vbHiragana) != 0) {
+				if (r >= '\u30A1' && r <= '\u30F6') {
+					r = (char) (r - 0x60);
+				}
+			}
+			cs[i] = r;
+		}
+		return new VbValue(VbVarType.VbVariant, VbValue.ofString(new String(cs)));
 	}
-	
+
 	@VbMethod("Function String$(Number As Long, Character) As String")
 	public String string$(long number, VbValue c){
 		String s = (String) VbValue.CStr(c).value;
@@ -61,7 +61,7 @@ public class VBALibrary extends Library {
 		this.addModule(new JavaModuleDecl(this, compiler, Conversion.class));
 //		this.addModule(new JavaModuleDecl(this, compiler, Math.class));
 		this.addModule(new JavaModuleDecl(this, compiler, DateTime.class));
-//		this.addModule(new JavaModuleDecl(this, compiler, Strings.class));
+		this.addModule(new JavaModuleDecl(this, compiler, Strings.class));
 		this.addModule(new JavaModuleDecl(this, compiler, Interaction.class));
 		this.addModule(new JavaModuleDecl(this, compiler, Information.class));
 
@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Inshua<inshua@gmail.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.siphon.visualbasic.runtime.statements;
+
+import org.siphon.visualbasic.Interpreter;
+import org.siphon.visualbasic.OverflowException;
+import org.siphon.visualbasic.SourceLocation;
+import org.siphon.visualbasic.VarDecl;
+import org.siphon.visualbasic.compile.ImpossibleException;
+import org.siphon.visualbasic.runtime.*;
+
+import java.util.List;
+
+/**
+ * 过程内 String、Variant 变量的自追加 s = s & a & b ...
+ * <p>
+ * 变量当前值为字符串时，各片段追加到变量的缓冲中（见 {@link VbVariable#append}），不再每次复制整个字符串；
+ * 否则按原来的赋值语句执行。编译器只在片段中不出现该变量时生成本语句，因此求值片段时变量不会被读写。
+ */
+public class AppendStatement extends Statement {
+
+	private final VarDecl varDecl;
+
+	private final List<Statement> pieces;
+
+	private final SourceLocation concatLocation;
+
+	private final AssignStatement assign;
+
+	/**
+	 * @param pieces 变量之后依次连接的各项
+	 * @param concatLocation 连接表达式的位置，类型不符等错误报告在此处
+	 * @param assign 原来的赋值语句，变量当前值不是字符串时执行
+	 */
+	public AppendStatement(SourceLocation sourceLocation, VarDecl varDecl, List<Statement> pieces,
+			SourceLocation concatLocation, AssignStatement assign) {
+		super(sourceLocation);
+		this.varDecl = varDecl;
+		this.pieces = pieces;
+		this.concatLocation = concatLocation;
+		this.assign = assign;
+	}
+
+	public VarDecl getVarDecl() {
+		return varDecl;
+	}
+
+	public List<Statement> getPieces() {
+		return pieces;
+	}
+
+	@Override
+	public VbValue eval(Interpreter interpreter, CallFrame frame) throws VbRuntimeException {
+		VbVariable var = frame.local[varDecl.slot];
+		if (var == null || var.isAppendable() == false) {
+			return assign.eval(interpreter, frame);
+		}
+
+		String s;
+		if (pieces.size() == 1) {
+			s = evalPiece(pieces.get(0), interpreter, frame);
+		} else {
+			StringBuilder sb = new StringBuilder();
+			for (Statement piece : pieces) {
+				sb.append(evalPiece(piece, interpreter, frame));
+			}
+			s = sb.toString();
+		}
+		var.append(s);
+		return null;
+	}
+
+	// 与 ConcatStatement 相同的转换和错误
+	private String evalPiece(Statement piece, Interpreter interpreter, CallFrame frame) throws VbRuntimeException {
+		VbValue value = piece.eval(interpreter, frame);
+		if (value.isObject()) {
+			value = interpreter.evalDefaultMember(value, frame, concatLocation);
+		}
+		try {
+			return (String) VbValue.CStr(value).value;
+		} catch (ClassCastException e) {
+			throw new VbRuntimeException(VbRuntimeException.类型不匹配, concatLocation);
+		} catch (OverflowException e) {
+			throw new ImpossibleException();
+		} catch (NullValueException e) {
+			throw new VbRuntimeException(VbRuntimeException.Null的使用无效, concatLocation);
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("Append ").append(varDecl.name);
+		for (Statement piece : pieces) {
+			sb.append(" & ").append(piece);
+		}
+		return sb.toString();
+	}
+
+}
@@ -39,6 +39,14 @@ public class AssignStatement extends Statement {
 		this.valueStatement = valueStatement;
 		assert valueStatement != null;
 	}
+
+	public EvalAssignableStatement getAssignee() {
+		return evalAssignableStatement;
+	}
+
+	public Statement getValueStatement() {
+		return valueStatement;
+	}
 	
 	@Override
 	public VbValue eval(Interpreter interpreter, CallFrame frame) throws VbRuntimeException {
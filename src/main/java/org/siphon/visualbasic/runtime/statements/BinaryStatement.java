@@ -38,6 +38,14 @@ public abstract class BinaryStatement extends Statement {
 		this.v1 = v1;
 		this.v2 = v2;
 	}
+
+	public Statement getLeft() {
+		return v1;
+	}
+
+	public Statement getRight() {
+		return v2;
+	}
 	
 	@Override
 	public VbValue eval(Interpreter interpreter, CallFrame frame) throws VbRuntimeException {
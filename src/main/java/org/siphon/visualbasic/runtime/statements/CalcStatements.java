@@ -38,6 +38,10 @@ public class CalcStatements{
 			this.statement = statement;
 		}
 
+		public Statement getStatement() {
+			return statement;
+		}
+
 		@Override
 		public VbValue eval(Interpreter interpreter, CallFrame frame) throws VbRuntimeException {
 			VbValue value = this.statement.eval(interpreter, frame);
@@ -71,6 +75,10 @@ public class CalcStatements{
 			this.statement = statement;
 		}
 
+		public Statement getStatement() {
+			return statement;
+		}
+
 		@Override
 		public VbValue eval(Interpreter interpreter, CallFrame frame) throws VbRuntimeException {
 			VbValue value = this.statement.eval(interpreter, frame);
@@ -28,9 +28,22 @@ import org.siphon.visualbasic.runtime.*;
 public class CompareStatements {
 
 	public static class LikeStatement extends BinaryStatement {
+
+		private final boolean textCompare;
+
+		// 本处上次用到的模式，模式为字面量时始终命中；不命中时取自 LikePattern 的缓存
+		private transient volatile LikePattern lastPattern;
 		
 		public LikeStatement(SourceLocation sourceLocation, Statement v1, Statement v2) {
+			this(sourceLocation, v1, v2, false);
+		}
+
+		/**
+		 * @param textCompare 所在模块是否声明了 Option Compare Text
+		 */
+		public LikeStatement(SourceLocation sourceLocation, Statement v1, Statement v2, boolean textCompare) {
 			super(sourceLocation, v1, v2);
+			this.textCompare = textCompare;
 		}
 
 		@Override
@@ -42,74 +55,130 @@ public class CompareStatements {
 		protected VbValue eval(VbValue value1, VbValue value2, Interpreter interpreter, CallFrame frame)
 				throws VbRuntimeException {
 			try {
-				VbValue result = StringExpr.like(value1, value2);
-				return result;
+				String s = (String) VbValue.CStr(value1).value;
+				String pattern = (String) VbValue.CStr(value2).value;
+				LikePattern like = lastPattern;
+				if (like == null || like.getPattern().equals(pattern) == false) {
+					like = lastPattern = LikePattern.of(pattern, textCompare);
+				}
+				return VbValue.ofBoolean(like.matches(s));
 			} catch (ClassCastException e) {
 				throw new VbRuntimeException(VbRuntimeException.类型不匹配, sourceLocation);
 			} catch(NullValueException e){
 				throw new VbRuntimeException(VbRuntimeException.Null的使用无效, sourceLocation);
+			} catch (InvalidPatternException e) {
+				throw new VbRuntimeException(VbRuntimeException.无效的模式字符串, sourceLocation);
 			}
 		}
 
 
 	}
 
-	public static class GeqStatement extends BinaryStatement {
+	/**
+	 * 比较运算。所在模块声明了 Option Compare Text 且两边都是字符串时按 Comparision.TextKey 比较，
+	 * 每边记住上次的键，字面量和未改变的变量不必每次重新折叠大小写
+	 */
+	public static abstract class ComparisonStatement extends BinaryStatement {
 
-		public GeqStatement(SourceLocation sourceLocation, Statement v1, Statement v2) {
+		private final boolean textCompare;
+
+		private transient volatile Comparision.TextKey key1;
+
+		private transient volatile Comparision.TextKey key2;
+
+		protected ComparisonStatement(SourceLocation sourceLocation, Statement v1, Statement v2, boolean textCompare) {
 			super(sourceLocation, v1, v2);
+			this.textCompare = textCompare;
 		}
 
-		@Override
-		public String toString() {
-			return v1 + " >= " + v2;
-		}
+		/**
+		 * @param c 左边与右边比较的结果
+		 */
+		protected abstract boolean test(int c);
+
+		protected abstract VbValue compare(VbValue value1, VbValue value2);
 
 		@Override
 		protected VbValue eval(VbValue value1, VbValue value2, Interpreter interpreter, CallFrame frame)
 				throws VbRuntimeException {
 			try {
-				VbValue result = Comparision.geq(value1, value2);
-				return result;
+				if (textCompare && value1.isString() && value2.isString()) {
+					Comparision.TextKey k1 = Comparision.TextKey.of((String) value1.getExactValue(), key1);
+					Comparision.TextKey k2 = Comparision.TextKey.of((String) value2.getExactValue(), key2);
+					key1 = k1;
+					key2 = k2;
+					VbValue r = VbValue.ofBoolean(test(k1.key.compareTo(k2.key)));
+					return value1.isVariant() || value2.isVariant() ? new VbValue(VbVarType.VbVariant, r) : r;
+				}
+				return compare(value1, value2);
 			} catch (ClassCastException e) {
 				throw new VbRuntimeException(VbRuntimeException.类型不匹配, sourceLocation);
 			} catch(NullValueException e){
 				throw new VbRuntimeException(VbRuntimeException.Null的使用无效, sourceLocation);
 			}
 		}
+	}
+
+	public static class GeqStatement extends ComparisonStatement {
+
+		public GeqStatement(SourceLocation sourceLocation, Statement v1, Statement v2) {
+			this(sourceLocation, v1, v2, false);
+		}
+
+		public GeqStatement(SourceLocation sourceLocation, Statement v1, Statement v2, boolean textCompare) {
+			super(sourceLocation, v1, v2, textCompare);
+		}
+
+		@Override
+		public String toString() {
+			return v1 + " >= " + v2;
+		}
 
+		@Override
+		protected boolean test(int c) {
+			return c >= 0;
+		}
+
+		@Override
+		protected VbValue compare(VbValue value1, VbValue value2) {
+			return Comparision.geq(value1, value2);
+		}
 	}
-	
-	public static class LeqStatement extends BinaryStatement {
+
+	public static class LeqStatement extends ComparisonStatement {
 
 		public LeqStatement(SourceLocation sourceLocation, Statement v1, Statement v2) {
-			super(sourceLocation, v1, v2);
+			this(sourceLocation, v1, v2, false);
 		}
-		
+
+		public LeqStatement(SourceLocation sourceLocation, Statement v1, Statement v2, boolean textCompare) {
+			super(sourceLocation, v1, v2, textCompare);
+		}
+
 		@Override
 		public String toString() {
 			return v1 + " <= " + v2;
 		}
 
 		@Override
-		protected VbValue eval(VbValue value1, VbValue value2, Interpreter interpreter, CallFrame frame)
-				throws VbRuntimeException {
-			try {
-				VbValue result = Comparision.leq(value1, value2);
-				return result;
-			} catch (ClassCastException e) {
-				throw new VbRuntimeException(VbRuntimeException.类型不匹配, sourceLocation);
-			} catch(NullValueException e){
-				throw new VbRuntimeException(VbRuntimeException.Null的使用无效, sourceLocation);
-			}
+		protected boolean test(int c) {
+			return c <= 0;
 		}
 
+		@Override
+		protected VbValue compare(VbValue value1, VbValue value2) {
+			return Comparision.leq(value1, value2);
+		}
 	}
 
-	public static class EqStatement extends BinaryStatement {
+	public static class EqStatement extends ComparisonStatement {
 
 		public EqStatement(SourceLocation sourceLocation, Statement v1, Statement v2) {
-			super(sourceLocation, v1, v2);
+			this(sourceLocation, v1, v2, false);
+		}
+
+		public EqStatement(SourceLocation sourceLocation, Statement v1, Statement v2, boolean textCompare) {
+			super(sourceLocation, v1, v2, textCompare);
 		}
 
 		@Override
@@ -118,23 +187,24 @@ public class CompareStatements {
 		}
 
 		@Override
-		protected VbValue eval(VbValue value1, VbValue value2, Interpreter interpreter, CallFrame frame)
-				throws VbRuntimeException {
-			try {
-				VbValue result = Comparision.eq(value1, value2);
-				return result;
-			} catch (ClassCastException e) {
-				throw new VbRuntimeException(VbRuntimeException.类型不匹配, sourceLocation);
-			} catch(NullValueException e){
-				throw new VbRuntimeException(VbRuntimeException.Null的使用无效, sourceLocation);
-			}
+		protected boolean test(int c) {
+			return c == 0;
+		}
+
+		@Override
+		protected VbValue compare(VbValue value1, VbValue value2) {
+			return Comparision.eq(value1, value2);
 		}
 	}
 
-	public static class NeqStatement extends BinaryStatement {
+	public static class NeqStatement extends ComparisonStatement {
 
 		public NeqStatement(SourceLocation sourceLocation, Statement v1, Statement v2) {
-			super(sourceLocation, v1, v2);
+			this(sourceLocation, v1, v2, false);
+		}
+
+		public NeqStatement(SourceLocation sourceLocation, Statement v1, Statement v2, boolean textCompare) {
+			super(sourceLocation, v1, v2, textCompare);
 		}
 
 		@Override
@@ -143,24 +213,24 @@ public class CompareStatements {
 		}
 
 		@Override
-		protected VbValue eval(VbValue value1, VbValue value2, Interpreter interpreter, CallFrame frame)
-				throws VbRuntimeException {
-			try {
-				VbValue result = Comparision.neq(value1, value2);
-				return result;
-			} catch (ClassCastException e) {
-				throw new VbRuntimeException(VbRuntimeException.类型不匹配, sourceLocation);
-			} catch(NullValueException e){
-				throw new VbRuntimeException(VbRuntimeException.Null的使用无效, sourceLocation);
-			}
+		protected boolean test(int c) {
+			return c != 0;
 		}
 
+		@Override
+		protected VbValue compare(VbValue value1, VbValue value2) {
+			return Comparision.neq(value1, value2);
+		}
 	}
 
-	public static class LtStatement extends BinaryStatement {
+	public static class LtStatement extends ComparisonStatement {
 
 		public LtStatement(SourceLocation sourceLocation, Statement v1, Statement v2) {
-			super(sourceLocation, v1, v2);
+			this(sourceLocation, v1, v2, false);
+		}
+
+		public LtStatement(SourceLocation sourceLocation, Statement v1, Statement v2, boolean textCompare) {
+			super(sourceLocation, v1, v2, textCompare);
 		}
 
 		@Override
@@ -169,24 +239,24 @@ public class CompareStatements {
 		}
 
 		@Override
-		protected VbValue eval(VbValue value1, VbValue value2, Interpreter interpreter, CallFrame frame)
-				throws VbRuntimeException {
-			try {
-				VbValue result = Comparision.lt(value1, value2);
-				return result;
-			} catch (ClassCastException e) {
-				throw new VbRuntimeException(VbRuntimeException.类型不匹配, sourceLocation);
-			} catch(NullValueException e){
-				throw new VbRuntimeException(VbRuntimeException.Null的使用无效, sourceLocation);
-			}
+		protected boolean test(int c) {
+			return c < 0;
 		}
 
+		@Override
+		protected VbValue compare(VbValue value1, VbValue value2) {
+			return Comparision.lt(value1, value2);
+		}
 	}
 
-	public static class GtStatement extends BinaryStatement {
+	public static class GtStatement extends ComparisonStatement {
 
 		public GtStatement(SourceLocation sourceLocation, Statement v1, Statement v2) {
-			super(sourceLocation, v1, v2);
+			this(sourceLocation, v1, v2, false);
+		}
+
+		public GtStatement(SourceLocation sourceLocation, Statement v1, Statement v2, boolean textCompare) {
+			super(sourceLocation, v1, v2, textCompare);
 		}
 
 		@Override
@@ -195,16 +265,13 @@ public class CompareStatements {
 		}
 
 		@Override
-		protected VbValue eval(VbValue value1, VbValue value2, Interpreter interpreter, CallFrame frame)
-				throws VbRuntimeException {
-			try {
-				VbValue result = Comparision.gt(value1, value2);
-				return result;
-			} catch (ClassCastException e) {
-				throw new VbRuntimeException(VbRuntimeException.类型不匹配, sourceLocation);
-			} catch(NullValueException e){
-				throw new VbRuntimeException(VbRuntimeException.Null的使用无效, sourceLocation);
-			}
+		protected boolean test(int c) {
+			return c > 0;
+		}
+
+		@Override
+		protected VbValue compare(VbValue value1, VbValue value2) {
+			return Comparision.gt(value1, value2);
 		}
 	}
 
@@ -26,10 +26,12 @@ import org.siphon.visualbasic.runtime.CallFrame;
 import org.siphon.visualbasic.runtime.VbRuntimeException;
 import org.siphon.visualbasic.runtime.VbValue;
 
+import java.io.Serializable;
+
 /*
  * 可求值，可赋值的对象结构
  */
-public abstract class EvalAssignableObject {
+public abstract class EvalAssignableObject implements Serializable {
 
 	public abstract VbValue apply(Interpreter interpreter, CallFrame frame) throws VbRuntimeException;
 	
@@ -21,18 +21,22 @@
  ******************************************************************************/
 package org.siphon.visualbasic.runtime.statements;
 
-import org.apache.commons.collections.CollectionUtils;
-import org.apache.commons.collections.Predicate;
 import org.siphon.visualbasic.*;
 import org.siphon.visualbasic.compile.ImplementorClassModuleDecl;
 import org.siphon.visualbasic.compile.ImpossibleException;
+import org.siphon.visualbasic.compile.JavaClassInfo;
+import org.siphon.visualbasic.compile.JavaInvoker;
 import org.siphon.visualbasic.runtime.*;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 /**
  * 生成 EvalAssignable 对象，支持 apply 和 assign 操作，对应用于求值和赋值
  * 
@@ -196,8 +200,7 @@ public class EvalAssignableStatement extends Statement {
 				throw new VbRuntimeException(VbRuntimeException.对象不支持此属性或方法, sourceLocation);
 			}
 			try {
-				Object result = method.invoke(instance);
-				return VbValue.fromJava(result, false);
+				return JavaInvoker.of(method).invoke(instance, Collections.emptyList());
 			} catch (Exception e) {
 				throw new VbRuntimeException(VbRuntimeException.无效的过程调用, sourceLocation, e);
 			}
@@ -209,12 +212,9 @@ public class EvalAssignableStatement extends Statement {
 			if(method == null){
 				throw new VbRuntimeException(VbRuntimeException.对象不支持此属性或方法, sourceLocation);
 			}
-			Parameter[] params = method.getParameters();
-			Object[] args = new Object[params.length];
-			assert params.length  == 1;
-			args[0] = value.toJava(params[0].getType());
+			assert method.getParameterCount() == 1;
 			try {
-				method.invoke(instance, args);
+				JavaInvoker.of(method).invoke(instance, Collections.singletonList(value));
 			} catch (Exception e) {
 				throw new VbRuntimeException(VbRuntimeException.无效的过程调用, sourceLocation, e);
 			}
@@ -225,13 +225,13 @@ public class EvalAssignableStatement extends Statement {
 	private static class JavaMethodCaller extends EvalAssignableObject {
 
 		private Object instance;
-		private Method method;
+		private JavaInvoker invoker;
 		private SourceLocation sourceLocation;
 		private List<VbValue> argCalls;
 
-		public JavaMethodCaller(Object instance, Method method, SourceLocation currSourceLocation, List<VbValue> argCalls) {
+		public JavaMethodCaller(Object instance, JavaInvoker invoker, SourceLocation currSourceLocation, List<VbValue> argCalls) {
 			this.instance = instance;
-			this.method = method;
+			this.invoker = invoker;
 			sourceLocation = currSourceLocation;
 			this.argCalls = argCalls;
 		}
@@ -239,24 +239,7 @@ public class EvalAssignableStatement extends Statement {
 		@Override
 		public VbValue apply(Interpreter interpreter, CallFrame frame) throws VbRuntimeException {
 			try {
-				List<Object> lsArgs = new ArrayList<>();
-				Parameter[] params = method.getParameters();
-				for (int i = 0; i < params.length; i++) {
-					Parameter param = params[i];
-					if (param.isVarArgs()) {
-						Object[] objects = new Object[argCalls.size() - i];
-						Class<?> ctype = param.getType().getComponentType();
-						for (int j = i; j < argCalls.size(); j++) {
-							objects[j - i] = argCalls.get(j).toJava(ctype);
-						}
-						lsArgs.add(objects);
-					} else {
-						lsArgs.add(argCalls.get(i).toJava(param.getType()));
-					}
-				}
-				Object[] args = lsArgs.toArray();
-				Object result = method.invoke(instance, args);
-				return VbValue.fromJava(result, false);
+				return invoker.invoke(instance, argCalls);
 			} catch (Exception e) {
 				throw new VbRuntimeException(VbRuntimeException.无效的过程调用, sourceLocation, e);
 			}
@@ -294,7 +277,7 @@ public class EvalAssignableStatement extends Statement {
 		@Override
 		public void assign(VbValue value, Interpreter interpreter, CallFrame frame) throws VbRuntimeException {
 			try {
-				field.set(instance, value.toJava(field.getClass()));
+				field.set(instance, value.toJava(field.getType()));
 			} catch (Exception e) {
 				throw new VbRuntimeException(VbRuntimeException.无效的过程调用, sourceLocation, e);
 			}
@@ -302,7 +285,7 @@ public class EvalAssignableStatement extends Statement {
 
 	}
 
-	public static class JavaBeanProperty {
+	public static class JavaBeanProperty implements Serializable {
 
 		public Method get;
 		public Method set;
@@ -333,17 +316,69 @@ public class EvalAssignableStatement extends Statement {
 
 	}
 
-	public static class MemberAtLocation {
+	public static class MemberAtLocation implements Serializable {
 
 		public SourceLocation sourceLocation;
 		public Object member;
 
+		// 内联缓存：按接收者的类模块（及 Implements 时请求的接口类）记住解析出的成员，最多记 INLINE_CACHE_SIZE 种
+		private transient volatile CachedMember[] inlineCache = NO_CACHED_MEMBERS;
+
+		// Java 对象成员的解析结果，按接收者的 Java 类记
+		private transient volatile JavaCallSite[] javaCallSites = NO_JAVA_CALL_SITES;
+
 		public MemberAtLocation(Object member, SourceLocation sourceLocation) {
 			assert member != null;
 			this.member = member;
 			this.sourceLocation = sourceLocation;
 		}
 
+		// 内联缓存不进入编译缓存，读取后从空开始
+		private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+			in.defaultReadObject();
+			inlineCache = NO_CACHED_MEMBERS;
+			javaCallSites = NO_JAVA_CALL_SITES;
+		}
+
+		CachedMember lookup(ModuleDecl receiver, ClassModuleDecl requestClass) {
+			for (CachedMember cached : inlineCache) {
+				if (cached.receiver == receiver && cached.requestClass == requestClass) {
+					return cached;
+				}
+			}
+			return null;
+		}
+
+		CachedMember remember(ModuleDecl receiver, ClassModuleDecl requestClass, Object member) {
+			CachedMember cached = new CachedMember(receiver, requestClass, member);
+			CachedMember[] entries = inlineCache;
+			if (entries.length < INLINE_CACHE_SIZE) { // 超过后不再缓存新的接收者，照常解析
+				entries = Arrays.copyOf(entries, entries.length + 1);
+				entries[entries.length - 1] = cached;
+				inlineCache = entries;
+			}
+			return cached;
+		}
+
+		JavaCallSite lookupJava(Class<?> receiver) {
+			for (JavaCallSite site : javaCallSites) {
+				if (site.receiver == receiver) {
+					return site;
+				}
+			}
+			return null;
+		}
+
+		JavaCallSite rememberJava(JavaCallSite site) {
+			JavaCallSite[] sites = javaCallSites;
+			if (sites.length < INLINE_CACHE_SIZE) {
+				sites = Arrays.copyOf(sites, sites.length + 1);
+				sites[sites.length - 1] = site;
+				javaCallSites = sites;
+			}
+			return site;
+		}
+
 		@Override
 		public String toString() {
 			return member.toString();
@@ -351,7 +386,31 @@ public class EvalAssignableStatement extends Statement {
 
 	}
 
-	public static class DictionaryCall {
+	private static final int INLINE_CACHE_SIZE = 4;
+
+	private static final JavaCallSite[] NO_JAVA_CALL_SITES = new JavaCallSite[0];
+
+	private static final CachedMember[] NO_CACHED_MEMBERS = new CachedMember[0];
+
+	private static final byte SHAPE_UNKNOWN = 0;
+	private static final byte SHAPE_WITH_ARGS = 1;
+	private static final byte SHAPE_NO_ARGS = 2;
+
+	private static class CachedMember {
+		final ModuleDecl receiver;
+		final ClassModuleDecl requestClass;
+		final Object member;
+		// 调用形式（后面的括号是否为参数）只取决于成员和语句本身，首次判断后记下。并发时重复判断结果相同
+		byte shape = SHAPE_UNKNOWN;
+
+		CachedMember(ModuleDecl receiver, ClassModuleDecl requestClass, Object member) {
+			this.receiver = receiver;
+			this.requestClass = requestClass;
+			this.member = member;
+		}
+	}
+
+	public static class DictionaryCall implements Serializable {
 
 		private String key;
 
@@ -378,7 +437,7 @@ public class EvalAssignableStatement extends Statement {
 			this.sourceLocation = ml.sourceLocation;
 		}
 
-		public VbValue apply(Interpreter interpreter, CallFrame frame) throws VbRuntimeException {
+		private Integer[] evalIndexes(Interpreter interpreter, CallFrame frame) throws VbRuntimeException {
 			Integer[] indexes = new Integer[subscripts.size()];
 			int i = 0;
 			for (Statement arg : subscripts) {
@@ -390,23 +449,39 @@ public class EvalAssignableStatement extends Statement {
 				}
 				indexes[i++] = (Integer) v.value;
 			}
-			return array.get(indexes, sourceLocation);
+			return indexes;
+		}
+
+		public VbValue apply(Interpreter interpreter, CallFrame frame) throws VbRuntimeException {
+			return array.get(evalIndexes(interpreter, frame), sourceLocation);
 		}
 
 		@Override
 		public void assign(VbValue value, Interpreter interpreter, CallFrame frame) throws VbRuntimeException {
-			Integer[] indexes = new Integer[subscripts.size()];
-			int i = 0;
-			for (Statement arg : subscripts) {
-				Object v;
-				try {
-					v = VbValue.cast((VbValue) (arg.eval(interpreter, frame)), VbVarType.vbInteger).value;
-				} catch (OverflowException e) {
-					throw new VbRuntimeException(VbRuntimeException.溢出, arg.getSourceLocation());
+			array.set(evalIndexes(interpreter, frame), value.clone(), sourceLocation);			
+		}
+
+		/**
+		 * 数组元素作为 ByRef 实参时的引用。下标只求值一次，对引用的赋值写回数组元素
+		 * 
+		 * @param argDecl
+		 * @param interpreter
+		 * @param frame
+		 * @return
+		 * @throws VbRuntimeException
+		 */
+		public VbVariable reference(ArgumentDecl argDecl, Interpreter interpreter, CallFrame frame) throws VbRuntimeException {
+			final Integer[] indexes = evalIndexes(interpreter, frame);
+			VbVariable var = new VbVariable(argDecl, array.get(indexes, sourceLocation)) {
+				@Override
+				public void assign(VbValue value, Interpreter interpreter, CallFrame frame,
+						SourceLocation sourceLocation) throws VbRuntimeException {
+					super.assign(value, interpreter, frame, sourceLocation);
+					array.set(indexes, this.value, sourceLocation);
 				}
-				indexes[i++] = (Integer) v;
-			}
-			array.set(indexes, value.clone(), sourceLocation);			
+			};
+			var.varType = array.varType.arrayDef.baseType;
+			return var;
 		}
 
 		@Override
@@ -490,7 +565,7 @@ public class EvalAssignableStatement extends Statement {
 
 	}
 
-	public static class Member {
+	public static class Member implements Serializable {
 
 		final String name;
 
@@ -535,7 +610,8 @@ public class EvalAssignableStatement extends Statement {
 				for (int i = 0; i < args.size(); i++) {
 					if (args.get(i) == null)
 						continue; // optional
-					arr[i] = args.get(i).eval(interpreter, frame);
+					arr[i] = evalArgument(i < method.arguments.size() ? method.arguments.get(i) : null, args.get(i),
+							interpreter, frame);
 				}
 				VbValue r = interpreter.callMethod(moduleInstance, args, method, arr);
 				return r;
@@ -663,6 +739,10 @@ public class EvalAssignableStatement extends Statement {
 			this.base = base;
 		}
 
+		public EvalAssignableStatement getBase() {
+			return base;
+		}
+
 		@Override
 		public VbValue eval(Interpreter interpreter, CallFrame frame) throws VbRuntimeException {
 			Object o = base.evalIt(interpreter, frame);
@@ -675,8 +755,20 @@ public class EvalAssignableStatement extends Statement {
 		}
 	}
 
+	// evalIt 遍历 thrumb 时的当前位置。语句对象可能被多个线程同时执行，不能放在字段里
+	private static class Cursor {
+		SourceLocation sourceLocation;
+
+		MemberAtLocation processToNext(Iterator<MemberAtLocation> it, MemberAtLocation next) {
+			if (next == null)
+				return next;
+			sourceLocation = next.sourceLocation;
+			next = it.hasNext() ? it.next() : null;
+			return next;
+		}
+	}
+
 	private final List<MemberAtLocation> thrumb = new ArrayList<>();
-	private SourceLocation currSourceLocation;
 
 	public EvalAssignableStatement(SourceLocation sourceLocation, Object start) {
 		super(sourceLocation);
@@ -691,11 +783,12 @@ public class EvalAssignableStatement extends Statement {
 	public Object evalIt(Interpreter interpreter, CallFrame frame) throws VbRuntimeException { // return EvalAssignObject|VbValue
 
 		Iterator<MemberAtLocation> it = thrumb.iterator();
+		Cursor cursor = new Cursor();
 		MemberAtLocation ml = it.next();
 		Object base = ml.member;
 
 		MemberAtLocation next = it.hasNext() ? it.next() : null;
-		this.currSourceLocation = ml.sourceLocation;
+		cursor.sourceLocation = ml.sourceLocation;
 
 		if (base instanceof ConstDecl) {
 			base = ((ConstDecl) base).constValue;
@@ -703,22 +796,22 @@ public class EvalAssignableStatement extends Statement {
 		}
 		if (base instanceof VarDecl) {
 			base = frame.locateVbVariable((VarDecl) base);
-			base = new VariableEA((VbVariable) base, this.currSourceLocation);
+			base = new VariableEA((VbVariable) base, cursor.sourceLocation);
 		} else if (base instanceof MethodDecl) {
 			if (next != null && next.member instanceof List<?>) {
-				base = new MethodCaller(frame.module, (MethodDecl) base, this.currSourceLocation,
+				base = new MethodCaller(frame.module, (MethodDecl) base, cursor.sourceLocation,
 						(List<Statement>) next.member);
-				next = processToNext(it, next);
+				next = cursor.processToNext(it, next);
 			} else {
-				base = new MethodCaller(frame.module, (MethodDecl) base, this.currSourceLocation);
+				base = new MethodCaller(frame.module, (MethodDecl) base, cursor.sourceLocation);
 			}
 		} else if (base instanceof PropertyCaller) {
 			if (next != null && next.member instanceof List<?>) {
-				base = new PropertyCaller(frame.module, (PropertyDecl) base, this.currSourceLocation,
+				base = new PropertyCaller(frame.module, (PropertyDecl) base, cursor.sourceLocation,
 						(List<Statement>) next.member);
-				next = processToNext(it, next);
+				next = cursor.processToNext(it, next);
 			} else {
-				base = new PropertyCaller(frame.module, (PropertyDecl) base, this.currSourceLocation);
+				base = new PropertyCaller(frame.module, (PropertyDecl) base, cursor.sourceLocation);
 			}
 
 		} else if (base instanceof VbValue) {
@@ -747,7 +840,7 @@ public class EvalAssignableStatement extends Statement {
 			if (b instanceof VbArray) {
 				if (next != null && next.member instanceof List) {
 					base = new ArrayElement((VbArray) b, next);
-					next = processToNext(it, next);
+					next = cursor.processToNext(it, next);
 				} else {
 					throw new VbRuntimeException(VbRuntimeException.对象不支持此属性或方法, next.sourceLocation);
 				}
@@ -757,21 +850,21 @@ public class EvalAssignableStatement extends Statement {
 					base = udt.getVar(((VarDecl) next.member).upperCaseName());
 					if (base == null)
 						throw new VbRuntimeException(VbRuntimeException.对象不支持此属性或方法, next.sourceLocation);
-					next = processToNext(it, next);
+					next = cursor.processToNext(it, next);
 
 				} else if (next != null && next.member instanceof Member) {
 					base = udt.getVar(((Member) next.member).name);
 					if (base == null)
 						throw new VbRuntimeException(VbRuntimeException.对象不支持此属性或方法, next.sourceLocation);
-					next = processToNext(it, next);
+					next = cursor.processToNext(it, next);
 				} else if (next != null) {
 					throw new VbRuntimeException(VbRuntimeException.对象不支持此属性或方法, next.sourceLocation);
 				}
-				base = new VariableEA((VbVariable) base, this.currSourceLocation);
+				base = new VariableEA((VbVariable) base, cursor.sourceLocation);
 
 			} else if (b.varType.vbType == VbVarType.vbObject) {
 				if (b.value instanceof ModuleInstance) {
-					ModuleInstance instance = b.ensureInstanceInited(interpreter, frame, this.currSourceLocation);
+					ModuleInstance instance = b.ensureInstanceInited(interpreter, frame, cursor.sourceLocation);
 					if(instance.getModuleDecl() instanceof FormModuleDecl) {
 						try {
 							interpreter.ensureFormLoaded(instance);
@@ -785,11 +878,17 @@ public class EvalAssignableStatement extends Statement {
 					ClassModuleDecl instanceClass = (ClassModuleDecl) instance.getModuleDecl();
 					ClassModuleDecl requestClass = b.varType.getClassModuleDecl();
 					boolean overrided = requestClass != instanceClass;
+					CachedMember cached = null;
 					if (member instanceof Member) {
-						Member m = (Member) next.member;
-						member = instance.getMember(m.name, overrided ? requestClass : null); // 对于 implement 其它接口的 module instance，varType.typeDecl 绑定到其它 module
-						if (member == null)
-							throw new VbRuntimeException(VbRuntimeException.对象不支持此属性或方法, next.sourceLocation);
+						cached = next.lookup(instanceClass, overrided ? requestClass : null);
+						if (cached == null) {
+							Member m = (Member) next.member;
+							member = instance.getMember(m.name, overrided ? requestClass : null); // 对于 implement 其它接口的 module instance，varType.typeDecl 绑定到其它 module
+							if (member == null)
+								throw new VbRuntimeException(VbRuntimeException.对象不支持此属性或方法, next.sourceLocation);
+							cached = next.remember(instanceClass, overrided ? requestClass : null, member);
+						}
+						member = cached.member;
 					} else if (member instanceof List<?>) {
 						member = b.varType.getDefaultMember();
 						if (member == null)
@@ -797,43 +896,48 @@ public class EvalAssignableStatement extends Statement {
 						stay = true;
 					} else if (next != null && next.member instanceof DictionaryCall) {
 						base = new DictionaryElement(b, ((DictionaryCall) next.member).key, next.sourceLocation);
-						next = processToNext(it, next);
+						next = cursor.processToNext(it, next);
 						continue;
 					} else if (overrided && member instanceof VbDecl) { // include vardecl and method decl and ...
-						member = ((ImplementorClassModuleDecl) requestClass).getMirrorMember((VbDecl) member);
-						if (member == null)
-							throw new VbRuntimeException(VbRuntimeException.对象不支持此属性或方法, next.sourceLocation);
+						cached = next.lookup(instanceClass, requestClass);
+						if (cached == null) {
+							member = ((ImplementorClassModuleDecl) requestClass).getMirrorMember((VbDecl) member);
+							if (member == null)
+								throw new VbRuntimeException(VbRuntimeException.对象不支持此属性或方法, next.sourceLocation);
+							cached = next.remember(instanceClass, requestClass, member);
+						}
+						member = cached.member;
 					}
 
 					if (member instanceof MethodDecl) { // TODO 测试一下返回对象的函数
 						MethodDecl method = (MethodDecl) member;
 						if (!stay)
-							next = processToNext(it, next);
-						if (nextIsArgs(method.arguments, method.returnType, next)) {
-							base = new MethodCaller(instance, method, currSourceLocation, (List<Statement>) next.member);
-							next = processToNext(it, next);
+							next = cursor.processToNext(it, next);
+						if (nextIsArgs(cached, method.arguments, method.returnType, next)) {
+							base = new MethodCaller(instance, method, cursor.sourceLocation, (List<Statement>) next.member);
+							next = cursor.processToNext(it, next);
 						} else {
-							base = new MethodCaller(instance, method, currSourceLocation);
+							base = new MethodCaller(instance, method, cursor.sourceLocation);
 						}
 
 					} else if (member instanceof VbVariable) {
-						base = new VariableEA((VbVariable) member, currSourceLocation);
-						next = processToNext(it, next);
+						base = new VariableEA((VbVariable) member, cursor.sourceLocation);
+						next = cursor.processToNext(it, next);
 
 					} else if (member instanceof VarDecl) {
 						VbVariable var = frame.locateVbVariable((VarDecl) member, instance);
-						base = new VariableEA(var, this.currSourceLocation);
-						next = processToNext(it, next);
+						base = new VariableEA(var, cursor.sourceLocation);
+						next = cursor.processToNext(it, next);
 
 					} else if (member instanceof PropertyDecl) {
 						PropertyDecl property = (PropertyDecl) member;
 						if (!stay)
-							next = processToNext(it, next);
-						if (nextIsArgs(property.getArguments(), property.getReturnType(), ml)) {
-							base = new PropertyCaller(instance, property, currSourceLocation, (List<Statement>) next.member);
-							next = processToNext(it, next);
+							next = cursor.processToNext(it, next);
+						if (nextIsArgs(cached, property.getArguments(), property.getReturnType(), ml)) {
+							base = new PropertyCaller(instance, property, cursor.sourceLocation, (List<Statement>) next.member);
+							next = cursor.processToNext(it, next);
 						} else {
-							base = new PropertyCaller(instance, property, currSourceLocation);
+							base = new PropertyCaller(instance, property, cursor.sourceLocation);
 						}
 
 					} else { // maybe Nothing
@@ -842,19 +946,26 @@ public class EvalAssignableStatement extends Statement {
 				} else if (b.varType.typeDecl == ClassTypeDecl.JAVA_OBJECT_TYPE) {
 					Object instance = b.value;
 
-					boolean stay = false;
 					Object member = next.member;
 					Class<? extends Object> clazz = instance.getClass();
 					int argCount = 0;
+					JavaCallSite callSite = null;
 					if (member instanceof Member) {
 						Member m = (Member) next.member;
-						next = processToNext(it, next);
-						if (next != null && next.member instanceof List) {
-							argCount = ((List) next.member).size();
+						MemberAtLocation site = next;
+						next = cursor.processToNext(it, next);
+						callSite = site.lookupJava(clazz);
+						if (callSite == null) {
+							if (next != null && next.member instanceof List) {
+								argCount = ((List) next.member).size();
+							}
+							member = findNearestJavaMember(clazz, m.name, argCount); // 对于 implement 其它接口的 module instance，varType.typeDecl 绑定到其它 module
+							if (member == null)
+								throw new VbRuntimeException(VbRuntimeException.对象不支持此属性或方法, next.sourceLocation);
+							callSite = site.rememberJava(new JavaCallSite(clazz, member, argCount));
 						}
-						member = findNearestJavaMember(clazz, m.name, argCount); // 对于 implement 其它接口的 module instance，varType.typeDecl 绑定到其它 module
-						if (member == null)
-							throw new VbRuntimeException(VbRuntimeException.对象不支持此属性或方法, next.sourceLocation);
+						member = callSite.resolved;
+						argCount = callSite.argCount;
 					} else if (member instanceof List<?>) {
 						 if(b.value instanceof List){
 							 List<Statement> ls = (List<Statement>)member;
@@ -862,7 +973,7 @@ public class EvalAssignableStatement extends Statement {
 								 throw new VbRuntimeException(VbRuntimeException.无效的过程调用, next.sourceLocation);
 							 }
 							 base = new JavaListCaller((List)b.value, ls.get(0), next.sourceLocation);
-							 next = processToNext(it, next);
+							 next = cursor.processToNext(it, next);
 							 continue;
 						 } else if(b.value.getClass().isArray()){
 							 List<Statement> ls = (List<Statement>)member;
@@ -870,7 +981,7 @@ public class EvalAssignableStatement extends Statement {
 								 throw new VbRuntimeException(VbRuntimeException.无效的过程调用, next.sourceLocation);
 							 }
 							 base = new JavaArrayCaller(b.value, ls.get(0), next.sourceLocation);
-							 next = processToNext(it, next);
+							 next = cursor.processToNext(it, next);
 							 continue;
 						 } else{
 							 throw new VbRuntimeException(VbRuntimeException.无效的过程调用, next.sourceLocation);
@@ -878,83 +989,54 @@ public class EvalAssignableStatement extends Statement {
 					} else if (next != null && next.member instanceof DictionaryCall) {
 						if(b.value instanceof Map){
 							base = new JavaMapCaller((Map)b.value, ((DictionaryCall) next.member).key, next.sourceLocation);
-							next = processToNext(it, next);
+							next = cursor.processToNext(it, next);
 							continue;
 						 } else{
 							 throw new VbRuntimeException(VbRuntimeException.无效的过程调用, next.sourceLocation);
 						 }
 					}
 
-					boolean nextIsArgs = false;
+					if (callSite == null) {
+						throw new ImpossibleException();
+					}
+
+					JavaTarget target;
 					List<VbValue> argCalls = null;
 					if (member instanceof List) { // matched many methods
 						if (argCount == 0) {
 							throw new VbRuntimeException(VbRuntimeException.对象不支持此属性或方法, next.sourceLocation);
 						}
-						List<FindNearestJavaMemberResult> ls = (List<FindNearestJavaMemberResult>) member;
-						boolean evalArgsFirst = CollectionUtils.exists(ls, new Predicate() {
-							public boolean evaluate(Object arg0) {
-								FindNearestJavaMemberResult r = (FindNearestJavaMemberResult) arg0;
-								return r.isArg;
-							}
-						});
-						if (evalArgsFirst) {
-							argCalls = new ArrayList<VbValue>();
-							for (Statement stmt : (List<Statement>) next.member) {
-								argCalls.add(stmt.eval(interpreter, frame));
-							}
-						}
-						for (FindNearestJavaMemberResult n : ls) {
-							Parameter[] params = ((Method) n.result).getParameters();
-							n.similarity = getSimilarity(params, argCalls);
-						}
-						ls.sort(new Comparator<FindNearestJavaMemberResult>() {
-							public int compare(FindNearestJavaMemberResult o1, FindNearestJavaMemberResult o2) {
-								return o2.similarity - o1.similarity;
-							}
-						});
-						if (ls.get(0).similarity > 0) {
-							if (ls.get(1).similarity > 0  && ls.get(0).similarity >= ls.get(1).similarity * 1.2) {	// 匹配的方法区分度够大 
-								member = ls.get(0).result;
-								nextIsArgs = ls.get(0).isArg && (next != null && next.member instanceof List);
-							} else {
-								throw new VbRuntimeException(VbRuntimeException.对象不支持此属性或方法, next.sourceLocation); // TODO 应抛出二义性名称之类
-							}
-						}
-					} else if (member instanceof FindNearestJavaMemberResult) {
-						FindNearestJavaMemberResult r = (FindNearestJavaMemberResult) member;
-						nextIsArgs = r.isArg && (next != null && next.member instanceof List);
-						member = r.result;
-						if (nextIsArgs) {
-							argCalls = new ArrayList<VbValue>();
-							for (Statement stmt : (List<Statement>) next.member) {
-								argCalls.add(stmt.eval(interpreter, frame));
-							}
+						if (callSite.evalArgsFirst) {
+							argCalls = evalArgs((List<Statement>) next.member, interpreter, frame);
 						}
+						target = callSite.selectOverload(argCalls, next);
 					} else {
-						throw new ImpossibleException();
+						target = callSite.single(next);
+						if (target.nextIsArgs) {
+							argCalls = evalArgs((List<Statement>) next.member, interpreter, frame);
+						}
 					}
 
-					if (member instanceof Method) {
-						Method method = (Method) member;
-						if (nextIsArgs) {
-							base = new JavaMethodCaller(instance, method, currSourceLocation, (List<VbValue>) argCalls);
-							next = processToNext(it, next);
+					if (target.member instanceof JavaInvoker) {
+						JavaInvoker invoker = (JavaInvoker) target.member;
+						if (target.nextIsArgs) {
+							base = new JavaMethodCaller(instance, invoker, cursor.sourceLocation, argCalls);
+							next = cursor.processToNext(it, next);
 						} else {
-							base = new JavaMethodCaller(instance, method, currSourceLocation, Collections.emptyList());
+							base = new JavaMethodCaller(instance, invoker, cursor.sourceLocation, Collections.emptyList());
 						}
 
-					} else if (member instanceof Field) {
-						base = new JavaFieldCaller(instance, (Field) member, currSourceLocation);
+					} else if (target.member instanceof Field) {
+						base = new JavaFieldCaller(instance, (Field) target.member, cursor.sourceLocation);
 
-					} else if (member instanceof JavaBeanProperty) {
-						JavaBeanProperty property = (JavaBeanProperty) member;
-						if (nextIsArgs(property.getParameters(), property.getReturnType(), next)) {
-							base = new JavaPropertyCaller(instance, property, currSourceLocation,
+					} else if (target.member instanceof JavaBeanProperty) {
+						JavaBeanProperty property = (JavaBeanProperty) target.member;
+						if (target.nextIsArgs) {
+							base = new JavaPropertyCaller(instance, property, cursor.sourceLocation,
 									(List<Statement>) next.member);
-							next = processToNext(it, next);
+							next = cursor.processToNext(it, next);
 						} else {
-							base = new JavaPropertyCaller(instance, property, currSourceLocation, Collections.emptyList());
+							base = new JavaPropertyCaller(instance, property, cursor.sourceLocation, Collections.emptyList());
 						}
 					} else { // no match
 						throw new VbRuntimeException(VbRuntimeException.对象不支持此属性或方法, next.sourceLocation);
@@ -970,12 +1052,15 @@ public class EvalAssignableStatement extends Statement {
 		return base;
 	}
 
-	private MemberAtLocation processToNext(Iterator<MemberAtLocation> it, MemberAtLocation next) {
-		if (next == null)
-			return next;
-		currSourceLocation = next.sourceLocation;
-		next = it.hasNext() ? it.next() : null;
-		return next;
+
+	private boolean nextIsArgs(CachedMember cached, List<ArgumentDecl> arguments, VbVarType returnType, MemberAtLocation ml) {
+		if (cached == null) {
+			return nextIsArgs(arguments, returnType, ml);
+		}
+		if (cached.shape == SHAPE_UNKNOWN) {
+			cached.shape = nextIsArgs(arguments, returnType, ml) ? SHAPE_WITH_ARGS : SHAPE_NO_ARGS;
+		}
+		return cached.shape == SHAPE_WITH_ARGS;
 	}
 
 	private boolean nextIsArgs(List<ArgumentDecl> arguments, VbVarType returnType, MemberAtLocation ml) {
@@ -998,7 +1083,7 @@ public class EvalAssignableStatement extends Statement {
 		return result;
 	}
 
-	private boolean nextIsArgs(Parameter[] parameters, Class<?> returnType, MemberAtLocation ml) {
+	private static boolean nextIsArgs(Parameter[] parameters, Class<?> returnType, MemberAtLocation ml) {
 		boolean result = true;
 		Object next = (ml == null ? null : ml.member);
 		if (next instanceof List) {
@@ -1021,7 +1106,6 @@ public class EvalAssignableStatement extends Statement {
 	private static class FindNearestJavaMemberResult {
 		boolean isArg;
 		Object result;
-		int similarity;
 
 		public FindNearestJavaMemberResult(boolean isArg, Object result) {
 			this.isArg = isArg;
@@ -1029,27 +1113,173 @@ public class EvalAssignableStatement extends Statement {
 		}
 	}
 
+	// Java 对象成员在一个调用点、一种接收者类上的解析结果
+	private static class JavaCallSite {
+		final Class<?> receiver;
+		final Object resolved;	// findNearestJavaMember 的结果，多个重载时为 List，只读
+		final int argCount;
+		final boolean evalArgsFirst;	// 有重载需要实参时，先求实参再按类型选重载
+
+		private volatile JavaTarget single;
+		// 重载按实参类型签名选定后记下，签名种类有限，超过 MAX_OVERLOAD_SIGNATURES 不再记
+		private final Map<ArgSignature, JavaTarget> overloads = new ConcurrentHashMap<>();
+
+		JavaCallSite(Class<?> receiver, Object resolved, int argCount) {
+			this.receiver = receiver;
+			this.resolved = resolved;
+			this.argCount = argCount;
+			boolean evalArgsFirst = false;
+			if (resolved instanceof List) {
+				for (FindNearestJavaMemberResult r : (List<FindNearestJavaMemberResult>) resolved) {
+					evalArgsFirst |= r.isArg;
+				}
+			}
+			this.evalArgsFirst = evalArgsFirst;
+		}
+
+		JavaTarget single(MemberAtLocation next) {
+			JavaTarget target = this.single;
+			if (target == null) {
+				FindNearestJavaMemberResult r = (FindNearestJavaMemberResult) resolved;
+				target = this.single = JavaTarget.of(r.result, r.isArg && (next != null && next.member instanceof List), next);
+			}
+			return target;
+		}
+
+		JavaTarget selectOverload(List<VbValue> argCalls, MemberAtLocation next) throws VbRuntimeException {
+			ArgSignature signature = argCalls == null ? null : new ArgSignature(argCalls);
+			JavaTarget target = signature == null ? null : overloads.get(signature);
+			if (target != null) {
+				return target;
+			}
+			List<FindNearestJavaMemberResult> ls = (List<FindNearestJavaMemberResult>) resolved;
+			// 相当于按相似度稳定降序排序后比较前两名
+			int best = -1, bestSimilarity = 0, secondSimilarity = 0;
+			for (int i = 0; i < ls.size(); i++) {
+				int similarity = getSimilarity(((Method) ls.get(i).result).getParameters(), argCalls);
+				if (best == -1 || similarity > bestSimilarity) {
+					if (best != -1)
+						secondSimilarity = bestSimilarity;
+					best = i;
+					bestSimilarity = similarity;
+				} else if (i == 1 || similarity > secondSimilarity) {
+					secondSimilarity = similarity;
+				}
+			}
+			if (bestSimilarity > 0) {
+				if (secondSimilarity > 0 && bestSimilarity >= secondSimilarity * 1.2) {	// 匹配的方法区分度够大 
+					FindNearestJavaMemberResult r = ls.get(best);
+					target = JavaTarget.of(r.result, r.isArg && (next != null && next.member instanceof List), next);
+				} else {
+					throw new VbRuntimeException(VbRuntimeException.对象不支持此属性或方法, next.sourceLocation); // TODO 应抛出二义性名称之类
+				}
+			} else {
+				target = JavaTarget.NO_MATCH;
+			}
+			if (signature != null && overloads.size() < MAX_OVERLOAD_SIGNATURES) {
+				overloads.put(signature, target);
+			}
+			return target;
+		}
+	}
+
+	private static final int MAX_OVERLOAD_SIGNATURES = 8;
+
+	// 选定的 Java 成员：JavaInvoker|Field|JavaBeanProperty，null 为无匹配
+	private static class JavaTarget {
+		static final JavaTarget NO_MATCH = new JavaTarget(null, false);
+
+		final Object member;
+		final boolean nextIsArgs;
+
+		private JavaTarget(Object member, boolean nextIsArgs) {
+			this.member = member;
+			this.nextIsArgs = nextIsArgs;
+		}
+
+		static JavaTarget of(Object member, boolean nextIsArgs, MemberAtLocation next) {
+			if (member instanceof Method) {
+				return new JavaTarget(JavaInvoker.of((Method) member), nextIsArgs);
+			} else if (member instanceof JavaBeanProperty) {
+				JavaBeanProperty property = (JavaBeanProperty) member;
+				return new JavaTarget(property, nextIsArgs(property.getParameters(), property.getReturnType(), next));
+			} else {
+				return new JavaTarget(member, nextIsArgs);
+			}
+		}
+	}
+
+	// 决定 getSimilarity 结果的实参类型：Java 对象取其类，Nothing 取 null，其余取 VbVarType 本身（按引用比较）
+	private static class ArgSignature {
+		private final Object[] types;
+		private final int hash;
+
+		ArgSignature(List<VbValue> argCalls) {
+			types = new Object[argCalls.size()];
+			int h = 1;
+			for (int i = 0; i < types.length; i++) {
+				VbValue v = argCalls.get(i);
+				Object t;
+				if (v == null || v.varType.vbType == VbVarType.vbObject && v.value == null) {
+					t = null;
+				} else if (v.varType.vbType == VbVarType.vbObject && v.varType.getClassTypeDecl() == ClassTypeDecl.JAVA_OBJECT_TYPE) {
+					t = v.value.getClass();
+				} else {
+					t = v.varType;
+				}
+				types[i] = t;
+				h = 31 * h + System.identityHashCode(t);
+			}
+			hash = h;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj instanceof ArgSignature == false)
+				return false;
+			Object[] other = ((ArgSignature) obj).types;
+			if (other.length != types.length)
+				return false;
+			for (int i = 0; i < types.length; i++) {
+				if (other[i] != types[i])
+					return false;
+			}
+			return true;
+		}
+	}
+
+	private static List<VbValue> evalArgs(List<Statement> args, Interpreter interpreter, CallFrame frame) throws VbRuntimeException {
+		List<VbValue> result = new ArrayList<VbValue>(args.size());
+		for (Statement stmt : args) {
+			result.add(stmt.eval(interpreter, frame));
+		}
+		return result;
+	}
+
 	private Object findNearestJavaMember(Class<? extends Object> clazz, String member, int argCallCount)
 			throws VbRuntimeException {
 		try {
-			for (Field fld : clazz.getFields()) {
-				if (fld.getName().equalsIgnoreCase(member)) {
-					return new FindNearestJavaMemberResult(false, fld);
-				}
+			JavaClassInfo info = JavaClassInfo.of(clazz);
+			Field fld = info.findField(member);
+			if (fld != null) {
+				return new FindNearestJavaMemberResult(false, fld);
 			}
 			List<FindNearestJavaMemberResult> maybe = new ArrayList<>();
-			for (Method method : clazz.getMethods()) {
-				if (method.getName().equalsIgnoreCase(member)) {
-					Parameter[] params = method.getParameters();
-					if (params.length == argCallCount) {
+			for (Method method : info.findMethods(member)) {
+				Parameter[] params = method.getParameters();
+				if (params.length == argCallCount) {
+					maybe.add(new FindNearestJavaMemberResult(true, method));
+				} else if (params.length < argCallCount && params.length > 0) {
+					if (params[params.length - 1].isVarArgs()) {
 						maybe.add(new FindNearestJavaMemberResult(true, method));
-					} else if (params.length < argCallCount && params.length > 0) {
-						if (params[params.length - 1].isVarArgs()) {
-							maybe.add(new FindNearestJavaMemberResult(true, method));
-						} else if (method.getReturnType().isArray() || List.class.isAssignableFrom(method.getReturnType())) {
-							if (argCallCount == 1) {
-								maybe.add(new FindNearestJavaMemberResult(false, method));
-							}
+					} else if (method.getReturnType().isArray() || List.class.isAssignableFrom(method.getReturnType())) {
+						if (argCallCount == 1) {
+							maybe.add(new FindNearestJavaMemberResult(false, method));
 						}
 					}
 				}
@@ -1061,18 +1291,15 @@ public class EvalAssignableStatement extends Statement {
 			}
 
 			JavaBeanProperty pd = null; // 先不管 getXxx(param1, param2, param3, ...) 的情形
-			String get = "get" + member;
-			String set = "set" + member;
-			for (Method method : clazz.getMethods()) {
-				if (method.getName().equalsIgnoreCase(get)) {
-					if (pd == null)
-						pd = new JavaBeanProperty();
-					pd.get = method;
-				} else if (method.getName().equalsIgnoreCase(set)) {
-					if (pd == null)
-						pd = new JavaBeanProperty();
-					pd.set = method;
-				}
+			for (Method method : info.findMethods("get" + member)) {
+				if (pd == null)
+					pd = new JavaBeanProperty();
+				pd.get = method;
+			}
+			for (Method method : info.findMethods("set" + member)) {
+				if (pd == null)
+					pd = new JavaBeanProperty();
+				pd.set = method;
 			}
 			return new FindNearestJavaMemberResult(false, pd);
 		} catch (SecurityException | IllegalArgumentException e) {
@@ -1102,6 +1329,38 @@ public class EvalAssignableStatement extends Statement {
 		return result;
 	}
 
+	/**
+	 * 求实参。形参为 ByRef 且实参为变量、数组元素时返回 VbVariable，被调过程直接对其赋值；其余情况返回 VbValue（传值）
+	 * 
+	 * @param argDecl 形参，ParamArray 部分为 null
+	 * @param arg
+	 * @param interpreter
+	 * @param frame
+	 * @return VbVariable|VbValue
+	 * @throws VbRuntimeException
+	 */
+	public static Object evalArgument(ArgumentDecl argDecl, Statement arg, Interpreter interpreter, CallFrame frame)
+			throws VbRuntimeException {
+		if (argDecl == null || argDecl.mode != ArgumentMode.ByRef || argDecl.isParamArray) {
+			return arg.eval(interpreter, frame);
+		}
+		Statement stmt = arg instanceof NamedArgumentStatement ? ((NamedArgumentStatement) arg).getStatement() : arg;
+		if (stmt instanceof ApplyStatement == false) {
+			return arg.eval(interpreter, frame);
+		}
+		EvalAssignableStatement base = ((ApplyStatement) stmt).base;
+		Object o = base.evalIt(interpreter, frame);
+		if (o instanceof VariableEA) {
+			VbVariable var = ((VariableEA) o).variable;
+			if (var.isReadonly() == false) {
+				return var;
+			}
+		} else if (o instanceof ArrayElement) {
+			return ((ArrayElement) o).reference(argDecl, interpreter, frame);
+		}
+		return base.apply(o, interpreter, frame);
+	}
+
 	private VbValue apply(Object base, Interpreter interpreter, CallFrame frame) throws VbRuntimeException {
 		if (base instanceof VbValue)
 			return (VbValue) base;
@@ -1132,6 +1391,10 @@ public class EvalAssignableStatement extends Statement {
 		return this;
 	}
 
+	public List<MemberAtLocation> getThrumb() {
+		return Collections.unmodifiableList(thrumb);
+	}
+
 	public MemberAtLocation peek() {
 		return thrumb.get(thrumb.size() - 1);
 	}
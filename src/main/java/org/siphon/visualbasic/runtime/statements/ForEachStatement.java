@@ -35,7 +35,6 @@ public class ForEachStatement extends Statement {
 
 	private VarDecl varDecl;
 	private Statement collection;
-	protected Iterator<VbValue> iterator;
 
 	public ForEachStatement(SourceLocation sourceLocation, VarDecl var, Statement collection) {
 		super(sourceLocation);
@@ -53,6 +52,7 @@ public class ForEachStatement extends Statement {
 
 			@Override
 			public VbValue eval(Interpreter interpreter, CallFrame frame) throws VbRuntimeException {
+				Iterator<VbValue> iterator = null;
 				VbValue col = collection.eval(interpreter, frame);
 				if (col.varType.vbType == VbVarType.vbVariant) {
 					col = (VbValue) col.value;
@@ -112,6 +112,7 @@ public class ForEachStatement extends Statement {
 						// no arguments
 					}
 				}
+				frame.setStatementState(ForEachStatement.this, iterator);		// 迭代器属于本帧
 				return null;
 			}
 
@@ -128,6 +129,7 @@ public class ForEachStatement extends Statement {
 			@Override
 			public VbValue eval(Interpreter interpreter, CallFrame frame) throws VbRuntimeException {
 				VbVariable variable = frame.locateVbVariable(varDecl);
+				Iterator<VbValue> iterator = (Iterator<VbValue>) frame.getStatementState(ForEachStatement.this);
 				variable.assign(iterator.next(), interpreter, frame, sourceLocation);
 				return null;
 			}
@@ -144,6 +146,7 @@ public class ForEachStatement extends Statement {
 
 			@Override
 			public VbValue eval(Interpreter interpreter, CallFrame frame) throws VbRuntimeException {
+				Iterator<VbValue> iterator = (Iterator<VbValue>) frame.getStatementState(ForEachStatement.this);
 				return VbValue.fromJava(iterator.hasNext());
 			}
 
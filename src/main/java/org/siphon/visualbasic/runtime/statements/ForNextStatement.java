@@ -22,18 +22,34 @@
 package org.siphon.visualbasic.runtime.statements;
 
 import org.siphon.visualbasic.Interpreter;
+import org.siphon.visualbasic.OverflowException;
 import org.siphon.visualbasic.SourceLocation;
 import org.siphon.visualbasic.VarDecl;
 import org.siphon.visualbasic.runtime.*;
 
-public class ForNextStatement {
+import java.io.Serializable;
+
+public class ForNextStatement implements Serializable {
 
 	private VarDecl var;
 	private Statement init;
 	private Statement step;
 	private Statement end;
-	protected VbValue stepValue;
-	protected VbValue endValue;
+	private Init initStatement;		// 循环状态以 Init 语句为键保存在帧中
+
+	// 一次循环的终值和步长，保存在 CallFrame 中，递归或并发执行同一过程时互不影响
+	private static class LoopState {
+		VbValue endValue;
+		VbValue stepValue;
+		boolean descending;
+
+		// 计数变量为 Integer/Long 且终值、步长为整数时，用整数直接累加
+		boolean counted;
+		long end;
+		long step;
+		long min;		// 计数变量类型的取值范围，越界即溢出
+		long max;
+	}
 
 	public ForNextStatement(VarDecl var, Statement init, Statement step, Statement end) {
 		this.var = var;
@@ -42,56 +58,141 @@ public class ForNextStatement {
 		this.end = end;
 	}
 
+	public VarDecl getVar() {
+		return var;
+	}
+
+	public Statement getInit() {
+		return init;
+	}
+
+	public Statement getStep() {
+		return step;
+	}
+
+	public Statement getEnd() {
+		return end;
+	}
+
 	public Statement initStatement(SourceLocation sourceLocation) {
-		return new Statement(sourceLocation){
-
-			@Override
-			public VbValue eval(Interpreter interpreter, CallFrame frame) throws VbRuntimeException {
-				VbVariable variable = frame.locateVbVariable(var);
-				assert variable != null;
-				// TODO must be number type
-				variable.assign(init.eval(interpreter, frame), interpreter, frame, sourceLocation);
-				ForNextStatement.this.endValue = end.eval(interpreter, frame);
-				ForNextStatement.this.stepValue = step.eval(interpreter, frame);
-				return variable.value;
+		return this.initStatement = new Init(sourceLocation);
+	}
+
+	public Statement nextStatement(SourceLocation sourceLocation, final int beginLine) {
+		return new Next(sourceLocation, beginLine);
+	}
+
+	public class Init extends Statement {
+
+		private Init(SourceLocation sourceLocation) {
+			super(sourceLocation);
+		}
+
+		public ForNextStatement getForNext() {
+			return ForNextStatement.this;
+		}
+
+		@Override
+		public VbValue eval(Interpreter interpreter, CallFrame frame) throws VbRuntimeException {
+			VbVariable variable = frame.locateVbVariable(var);
+			assert variable != null;
+			// TODO must be number type
+			variable.assign(init.eval(interpreter, frame), interpreter, frame, sourceLocation);
+			LoopState state = new LoopState();
+			state.endValue = end.eval(interpreter, frame);
+			state.stepValue = step.eval(interpreter, frame);
+			if (state.stepValue.isObject()) {
+				state.stepValue = interpreter.evalDefaultMember(state.stepValue, frame, sourceLocation);
 			}
-			
-			@Override
-			public String toString() {
-				return String.format("For %s = %s To %s", var, init, end);
+			state.descending = Comparision.compare(state.stepValue, VbValue.ofInteger(0)) < 0;
+			int vbType = variable.varType.vbType;
+			if ((vbType == VbVarType.vbInteger || vbType == VbVarType.vbLong) && isIntegral(state.endValue)
+					&& isIntegral(state.stepValue)) {
+				state.counted = true;
+				state.end = ((Number) state.endValue.value).longValue();
+				state.step = ((Number) state.stepValue.value).longValue();
+				if (vbType == VbVarType.vbInteger) {
+					state.min = Short.MIN_VALUE;
+					state.max = Short.MAX_VALUE;
+				} else {
+					state.min = Long.MIN_VALUE;		// Long 与 MathExpr、CLng 一致按 64 位处理
+					state.max = Long.MAX_VALUE;
+				}
 			}
-		};
+			frame.setStatementState(this, state);
+			return variable.value;
+		}
+
+		private boolean isIntegral(VbValue value) {
+			int vbType = value.varType.vbType;
+			return vbType == VbVarType.vbInteger || vbType == VbVarType.vbLong || vbType == VbVarType.vbByte;
+		}
+		
+		@Override
+		public String toString() {
+			return String.format("For %s = %s To %s", var, init, end);
+		}
 	}
 
-	public Statement nextStatement(SourceLocation sourceLocation, final int beginLine) {
-		return new Statement(sourceLocation) {
-			
-			@Override
-			public VbValue eval(Interpreter interpreter, CallFrame frame) throws VbRuntimeException {
-				VbVariable variable = frame.locateVbVariable(var);
-				VbValue step = stepValue;
-				if(stepValue.isObject()){
-					step = interpreter.evalDefaultMember(step, frame, sourceLocation);
+	public class Next extends Statement {
+
+		private final int beginLine;
+
+		private Next(SourceLocation sourceLocation, int beginLine) {
+			super(sourceLocation);
+			this.beginLine = beginLine;
+		}
+
+		public ForNextStatement getForNext() {
+			return ForNextStatement.this;
+		}
+
+		public int getBeginLine() {
+			return beginLine;
+		}
+
+		@Override
+		public VbValue eval(Interpreter interpreter, CallFrame frame) throws VbRuntimeException {
+			VbVariable variable = frame.locateVbVariable(var);
+			LoopState state = (LoopState) frame.getStatementState(initStatement);
+			if (state == null) {
+				throw new VbRuntimeException(VbRuntimeException.For循环没有被初始化, sourceLocation);
+			}
+			boolean finished;
+			if (state.counted) {
+				long i;
+				try {
+					i = Math.addExact(((Number) variable.value.value).longValue(), state.step);
+				} catch (ArithmeticException e) {
+					throw new VbRuntimeException(VbRuntimeException.溢出, sourceLocation);
 				}
-				variable.assign(MathExpr.add(variable.value, step), interpreter, frame, sourceLocation);
-				int c = Comparision.compare(variable.value, endValue);
-				int expect = 1;
-				if(Comparision.compare(stepValue, new VbValue(VbVarType.VbInteger, 0)) < 0){
-					expect = -1;
+				if (i < state.min || i > state.max) {
+					throw new VbRuntimeException(VbRuntimeException.溢出, sourceLocation);
 				}
-				if(Math.signum(c) == Math.signum(expect)){
-					// FOR NEXT END
-				} else {
-					frame.nextStatement = beginLine;
+				// 计数变量已由 Init 赋值过，类型固定，直接写回
+				variable.value = variable.varType.vbType == VbVarType.vbInteger ? VbValue.ofInteger((int) i) : VbValue.ofLong(i);
+				finished = state.descending ? i < state.end : i > state.end;
+			} else {
+				VbValue value;
+				try {
+					value = MathExpr.add(variable.value, state.stepValue);
+				} catch (OverflowException e) {
+					throw new VbRuntimeException(VbRuntimeException.溢出, sourceLocation);
 				}
-				return null;
+				variable.assign(value, interpreter, frame, sourceLocation);
+				int c = Comparision.compare(variable.value, state.endValue);
+				finished = state.descending ? c < 0 : c > 0;
 			}
-			
-			@Override
-			public String toString() {
-				return "Next " + var;
+			if (finished == false) {
+				frame.nextStatement = beginLine;
 			}
-		};
+			return null;
+		}
+		
+		@Override
+		public String toString() {
+			return "Next " + var;
+		}
 	}
 	
 }
@@ -34,6 +34,10 @@ public class IfNotGotoStatement extends GotoStatement {
 		this.condition = condition;
 	}
 
+	public Statement getCondition() {
+		return condition;
+	}
+
 	@Override
 	public VbValue eval(Interpreter interpreter, CallFrame frame)  throws VbRuntimeException {
 		VbValue value = condition.eval(interpreter, frame);
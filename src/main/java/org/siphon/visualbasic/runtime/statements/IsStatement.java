@@ -48,9 +48,9 @@ public class IsStatement extends BinaryStatement {
 			throw new VbRuntimeException(VbRuntimeException.类型不匹配, this.v2.getSourceLocation());
 		
 		if(value1.value == value2.value){
-			return new VbValue(VbVarType.VbBoolean, -1);
+			return VbValue.TRUE;
 		} else {
-			return new VbValue(VbVarType.VbBoolean, 0);
+			return VbValue.FALSE;
 		}
 	}
 
@@ -37,6 +37,10 @@ public class LiteralStatement extends Statement {
 		this.literal = literal;
 	}
 
+	public VbValue getLiteral() {
+		return literal;
+	}
+
 	@Override
 	public VbValue eval(Interpreter interpreter, CallFrame frame) {
 		return literal;
@@ -36,6 +36,10 @@ public class LogicalStatements {
 			this.statement = statement;
 		}
 
+		public Statement getStatement() {
+			return statement;
+		}
+
 		@Override
 		public VbValue eval(Interpreter interpreter, CallFrame frame) throws VbRuntimeException {
 			VbValue value = statement.eval(interpreter, frame);
@@ -96,7 +96,7 @@ public class MidStatment extends Statement {
 			}
 		}
 		
-		value.value = sb.toString();
+		var.assign(VbValue.ofString(sb.toString()), interpreter, frame, sourceLocation);
 		
 		return null;
 	}
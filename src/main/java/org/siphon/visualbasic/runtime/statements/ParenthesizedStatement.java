@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright (C) 2017 Inshua<inshua@gmail.com>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ ******************************************************************************/
+package org.siphon.visualbasic.runtime.statements;
+
+import org.siphon.visualbasic.Interpreter;
+import org.siphon.visualbasic.runtime.CallFrame;
+import org.siphon.visualbasic.runtime.Statement;
+import org.siphon.visualbasic.runtime.VbRuntimeException;
+import org.siphon.visualbasic.runtime.VbValue;
+
+/**
+ * 用括号包起来的实参，如 <code>Inc (x)</code>。括号使变量成为表达式，即使形参为 ByRef 也按值传递
+ */
+public class ParenthesizedStatement extends Statement {
+
+	private Statement statement;
+
+	public ParenthesizedStatement(Statement statement) {
+		super(statement.getSourceLocation());
+		this.statement = statement;
+	}
+
+	public Statement getStatement() {
+		return statement;
+	}
+
+	@Override
+	public VbValue eval(Interpreter interpreter, CallFrame frame) throws VbRuntimeException {
+		return statement.eval(interpreter, frame);
+	}
+
+}
@@ -25,10 +25,12 @@ import org.apache.commons.lang3.StringUtils;
 import org.siphon.visualbasic.EventDecl;
 import org.siphon.visualbasic.Interpreter;
 import org.siphon.visualbasic.SourceLocation;
+import org.siphon.visualbasic.runtime.ArgumentDecl;
 import org.siphon.visualbasic.runtime.CallFrame;
 import org.siphon.visualbasic.runtime.Statement;
 import org.siphon.visualbasic.runtime.VbRuntimeException;
 import org.siphon.visualbasic.runtime.VbValue;
+import org.siphon.visualbasic.runtime.VbVariable;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -46,10 +48,13 @@ public class RaiseEventStatement extends Statement {
 
 	@Override
 	public VbValue eval(Interpreter interpreter, CallFrame frame) throws VbRuntimeException {
-		List<VbValue> values = new ArrayList<>();
+		List<Object> values = new ArrayList<>();
 		if(arguments != null){
-			for(Statement arg : arguments){
-				values.add(VbValue.fromJava(arg.eval(interpreter, frame)));
+			for(int i = 0; i < arguments.size(); i++){
+				ArgumentDecl argDecl = eventDecl.arguments != null && i < eventDecl.arguments.size()
+						? eventDecl.arguments.get(i) : null;
+				Object value = EvalAssignableStatement.evalArgument(argDecl, arguments.get(i), interpreter, frame);
+				values.add(value instanceof VbVariable ? value : VbValue.fromJava(value));
 			}
 		}
 		frame.module.raiseEvent(eventDecl, arguments, values, interpreter, frame);
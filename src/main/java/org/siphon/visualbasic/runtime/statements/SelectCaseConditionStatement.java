@@ -23,11 +23,16 @@ package org.siphon.visualbasic.runtime.statements;
 
 import org.siphon.visualbasic.Interpreter;
 import org.siphon.visualbasic.runtime.CallFrame;
+import org.siphon.visualbasic.runtime.Comparision;
 import org.siphon.visualbasic.runtime.VbRuntimeException;
 import org.siphon.visualbasic.runtime.VbValue;
 
 public abstract class SelectCaseConditionStatement{
 	
-	public abstract boolean test(Interpreter interpreter, CallFrame frame, VbValue value) throws VbRuntimeException;
+	/**
+	 * @param value Select Case 表达式的值
+	 * @param valueKey Option Compare Text 且 value 为字符串时 value 的比较键，由 SelectCaseStatement 算一次供各个 Case 共用，否则为 null
+	 */
+	public abstract boolean test(Interpreter interpreter, CallFrame frame, VbValue value, Comparision.TextKey valueKey) throws VbRuntimeException;
 	
 }
@@ -26,6 +26,7 @@ import org.siphon.visualbasic.Interpreter;
 import org.siphon.visualbasic.SourceLocation;
 import org.siphon.visualbasic.runtime.*;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -35,19 +36,33 @@ public class SelectCaseStatement extends Statement {
 
 		public final Statement valueStatement;
 
+		private final boolean textCompare;
+
+		private transient volatile Comparision.TextKey key;
+
 		public SingleValueCondition(Statement valueStatement) {
+			this(valueStatement, false);
+		}
+
+		public SingleValueCondition(Statement valueStatement, boolean textCompare) {
 			this.valueStatement = valueStatement;
+			this.textCompare = textCompare;
 		}
 
 		@Override
-		public boolean test(Interpreter interpreter, CallFrame frame, VbValue value) throws VbRuntimeException {
+		public boolean test(Interpreter interpreter, CallFrame frame, VbValue value, Comparision.TextKey valueKey) throws VbRuntimeException {
 			VbValue v = valueStatement.eval(interpreter, frame);
+			if(valueKey != null && v.isString()) {
+				Comparision.TextKey k = Comparision.TextKey.of((String) v.getExactValue(), key);
+				key = k;
+				return valueKey.key.equals(k.key);
+			}
 			if(v.isString()) {
 				value = VbValue.CStr(value);
 			} else if( value.isString()) {
 				v = VbValue.CStr(v);
 			}
-			return Comparision.compare(v, value) == 0;
+			return Comparision.compare(v, value, textCompare) == 0;
 		}
 
 		@Override
@@ -63,20 +78,36 @@ public class SelectCaseStatement extends Statement {
 
 		public final Statement valueStatement;
 
+		private final boolean textCompare;
+
+		private transient volatile Comparision.TextKey key;
+
 		public ComparisonCondition(Statement valueStatement, String comparison) {
+			this(valueStatement, comparison, false);
+		}
+
+		public ComparisonCondition(Statement valueStatement, String comparison, boolean textCompare) {
 			this.valueStatement = valueStatement;
 			this.comparison = comparison;
+			this.textCompare = textCompare;
 		}
 
 		@Override
-		public boolean test(Interpreter interpreter, CallFrame frame, VbValue value) throws VbRuntimeException {
+		public boolean test(Interpreter interpreter, CallFrame frame, VbValue value, Comparision.TextKey valueKey) throws VbRuntimeException {
 			VbValue pattern = valueStatement.eval(interpreter, frame);
-			if(pattern.isString()) {
-				value = VbValue.CStr(value);
-			} else if(value.isString()) {
-				pattern = VbValue.CStr(pattern);
+			double c;
+			if(valueKey != null && pattern.isString()) {
+				Comparision.TextKey k = Comparision.TextKey.of((String) pattern.getExactValue(), key);
+				key = k;
+				c = valueKey.key.compareTo(k.key);
+			} else {
+				if(pattern.isString()) {
+					value = VbValue.CStr(value);
+				} else if(value.isString()) {
+					pattern = VbValue.CStr(pattern);
+				}
+				c = Comparision.compare(value, pattern, textCompare);
 			}
-			double c = Comparision.compare(value, pattern);
 			switch (comparison) {
 			case "=":
 				return c == 0;
@@ -102,28 +133,55 @@ public class SelectCaseStatement extends Statement {
 
 		private final Statement from;
 		private final Statement to;
+		private final boolean textCompare;
+
+		private transient volatile Comparision.TextKey fromKey;
+
+		private transient volatile Comparision.TextKey toKey;
 
 		public BetweenCondition(Statement from, Statement to) {
+			this(from, to, false);
+		}
+
+		public BetweenCondition(Statement from, Statement to, boolean textCompare) {
 			this.from = from;
 			this.to = to;
+			this.textCompare = textCompare;
 		}
 
 		@Override
-		public boolean test(Interpreter interpreter, CallFrame frame, VbValue value) throws VbRuntimeException {
+		public boolean test(Interpreter interpreter, CallFrame frame, VbValue value, Comparision.TextKey valueKey) throws VbRuntimeException {
 			VbValue f = from.eval(interpreter, frame);
 			VbValue t = to.eval(interpreter, frame);
-			VbValue v1 = value, v2 = value;
-			if(f.isString()) {
-				v1 = VbValue.CStr(v1);
-			} else if(v1.isString()) {
-				f = VbValue.CStr(f);						
+			double cf;
+			if(valueKey != null && f.isString()) {
+				Comparision.TextKey k = Comparision.TextKey.of((String) f.getExactValue(), fromKey);
+				fromKey = k;
+				cf = valueKey.key.compareTo(k.key);
+			} else {
+				VbValue v = value;
+				if(f.isString()) {
+					v = VbValue.CStr(v);
+				} else if(v.isString()) {
+					f = VbValue.CStr(f);
+				}
+				cf = Comparision.compare(v, f, textCompare);
+			}
+			if(cf < 0) {
+				return false;
+			}
+			if(valueKey != null && t.isString()) {
+				Comparision.TextKey k = Comparision.TextKey.of((String) t.getExactValue(), toKey);
+				toKey = k;
+				return valueKey.key.compareTo(k.key) <= 0;
 			}
+			VbValue v = value;
 			if(t.isString()) {
-				v2 = VbValue.CStr(v2);
-			} else if(v2.isString()) {
-				t = VbValue.CStr(t);						
+				v = VbValue.CStr(v);
+			} else if(v.isString()) {
+				t = VbValue.CStr(t);
 			}
-			return Comparision.compare(v1, f) >= 0 && Comparision.compare(v2, t) <= 0;
+			return Comparision.compare(v, t, textCompare) <= 0;
 		}
 
 		@Override
@@ -133,7 +191,7 @@ public class SelectCaseStatement extends Statement {
 
 	}
 
-	public static class Switcher {
+	public static class Switcher implements Serializable {
 		public SelectCaseConditionStatement[] conditionStatements;
 		public int nextStatementIndex;
 	}
@@ -146,17 +204,34 @@ public class SelectCaseStatement extends Statement {
 
 	private Object conditionStatements;
 
+	private final boolean textCompare;
+
+	private transient volatile Comparision.TextKey valueKey;
+
 	public SelectCaseStatement(SourceLocation sourceLocation, Statement condition) {
+		this(sourceLocation, condition, false);
+	}
+
+	/**
+	 * @param textCompare 所在模块是否声明了 Option Compare Text
+	 */
+	public SelectCaseStatement(SourceLocation sourceLocation, Statement condition, boolean textCompare) {
 		super(sourceLocation);
 		this.condition = condition;
+		this.textCompare = textCompare;
 	}
 
 	@Override
 	public VbValue eval(Interpreter interpreter, CallFrame frame) throws VbRuntimeException {
 		VbValue value = this.condition.eval(interpreter, frame);
+		Comparision.TextKey key = null;
+		if (textCompare && value.isString()) {
+			key = Comparision.TextKey.of((String) value.getExactValue(), valueKey);
+			valueKey = key;
+		}
 		for (Switcher switcher : switchers) {
 			for (SelectCaseConditionStatement cond : switcher.conditionStatements) {
-				if (cond.test(interpreter, frame, value)) {
+				if (cond.test(interpreter, frame, value, key)) {
 					frame.nextStatement = switcher.nextStatementIndex;
 					return null;
 				}
@@ -52,9 +52,9 @@ public class TypeOfIsStatement extends Statement {
 		
 		ClassModuleDecl valueCls = value.varType.getClassModuleDecl();
 		if(patternClass == null || valueCls == patternClass || valueCls.isImplementFrom(patternClass)){
-			return new VbValue(VbVarType.VbBoolean, -1);
+			return VbValue.TRUE;
 		} else {
-			return new VbValue(VbVarType.VbBoolean, 0);
+			return VbValue.FALSE;
 		}
 	}
 
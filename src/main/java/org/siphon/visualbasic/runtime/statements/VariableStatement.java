@@ -37,9 +37,13 @@ public class VariableStatement extends Statement {
 		this.varDecl = varDecl;
 	}
 
+	public VarDecl getVarDecl() {
+		return varDecl;
+	}
+
 	@Override
 	public VbValue eval(Interpreter interpreter, CallFrame frame) {
-		frame.local.put(varDecl, varDecl.createVar());
+		frame.local[varDecl.slot] = varDecl.createVar();
 		return null;
 	}
 
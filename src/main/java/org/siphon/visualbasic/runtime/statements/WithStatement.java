@@ -31,7 +31,6 @@ import org.siphon.visualbasic.runtime.VbValue;
 public class WithStatement extends Statement {
 
 	private Statement bindObj;
-	private VbValue prevWith;
 
 	public WithStatement(SourceLocation sourceLocation, Statement bindObj) {
 		super(sourceLocation);
@@ -40,7 +39,7 @@ public class WithStatement extends Statement {
 
 	@Override
 	public VbValue eval(Interpreter interpreter, CallFrame frame) throws VbRuntimeException {
-		this.prevWith = frame.withObject;
+		frame.setStatementState(this, frame.withObject);	// End With 时恢复
 		frame.withObject = this.bindObj.eval(interpreter, frame);
 		return null;
 	}
@@ -50,7 +49,7 @@ public class WithStatement extends Statement {
 			
 			@Override
 			public VbValue eval(Interpreter interpreter, CallFrame frame) throws VbRuntimeException {
-				frame.withObject = prevWith;
+				frame.withObject = (VbValue) frame.getStatementState(WithStatement.this);
 				return null;
 			}
 			
@@ -0,0 +1,30 @@
+Attribute VB_Name = "ArrayAssignUdt"
+
+' 数组赋值按值复制元素：UDT 元素和 Variant 中的数组不与原数组共用
+' 期望输出：
+' 1 20 10 2
+' 7 8
+
+Type Point
+	X As Integer
+	Y As Integer
+End Type
+
+Sub Main()
+	Dim a(0 To 1) As Point
+	Dim b() As Point
+	a(0).X = 1: a(1).X = 2
+	b = a
+	b(0).X = 10
+	a(1).X = 20
+	Debug.Print a(0).X & " " & a(1).X & " " & b(0).X & " " & b(1).X
+
+	Dim inner(0 To 1) As Integer
+	Dim v(0 To 1) As Variant
+	Dim w() As Variant
+	inner(0) = 7
+	v(0) = inner
+	w = v
+	w(0)(0) = 8
+	Debug.Print v(0)(0) & " " & w(0)(0)
+End Sub
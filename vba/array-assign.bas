@@ -0,0 +1,28 @@
+Attribute VB_Name = "ArrayAssign"
+
+' 数组赋值：目标得到副本，元素类型不同时报类型不匹配
+' 期望输出：
+' 20 10 99 30
+' xy
+' 13 类型不匹配
+
+Sub Main()
+	Dim a(1 To 3) As Integer
+	Dim b() As Integer
+	Dim s() As String
+	Dim t(0 To 1) As String
+	Dim d() As Double
+	a(1) = 10: a(2) = 20: a(3) = 30
+	b = a
+	b(2) = 99
+	Debug.Print a(2) & " " & b(1) & " " & b(2) & " " & b(3)
+	t(0) = "x": t(1) = "y"
+	s = t
+	t(1) = "z"
+	Debug.Print s(0) & s(1)
+	On Error GoTo ErrHandler
+	d = a
+	Exit Sub
+ErrHandler:
+	Debug.Print Err.Number & " " & Err.Description
+End Sub
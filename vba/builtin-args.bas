@@ -0,0 +1,19 @@
+Attribute VB_Name = "BuiltinArgs"
+
+' 调用 Java 实现的内置函数：常量实参、表达式实参，以及 Java 形参为 int 的转换
+' 期望输出：
+' 1
+' 512
+' 2
+' 3
+
+Const Green As Long = 2
+
+Sub Main()
+	Dim r As Integer
+	r = 1
+	Debug.Print RGB(0, 0, r)
+	Debug.Print RGB(0, Green, 0)
+	Debug.Print RGB(0, 0, r + r)
+	Debug.Print RGB(0, 0, Green + 1)
+End Sub
@@ -0,0 +1,64 @@
+Attribute VB_Name = "ByRefArgs"
+
+' ByRef 参数把调用者的变量传进去：不带括号的调用、Call、带括号（按值）、数组元素、函数中修改，
+' 共享的常用值（如 1）不会因为被调过程修改而改变
+' 期望输出：
+' 2
+' 3
+' 3
+' 11 20
+' 1 1
+' 5 6
+' 7
+
+Sub Main()
+	Dim x As Integer
+	Dim y As Integer
+	Dim a(1 To 2) As Integer
+	Dim s As String
+
+	x = 1
+	Inc x
+	Debug.Print x
+
+	Call Inc(x)
+	Debug.Print x
+
+	Inc (x)
+	Debug.Print x
+
+	a(1) = 10: a(2) = 20
+	Inc a(1)
+	Debug.Print a(1) & " " & a(2)
+
+	x = 1
+	y = 1
+	Twice x, 1
+	y = y
+	Debug.Print y & " " & 1
+
+	x = 5
+	Debug.Print x & " " & IncAndGet(x)
+
+	s = "7"
+	Touch s
+	Debug.Print s
+End Sub
+
+Sub Inc(ByRef n As Integer)
+	n = n + 1
+End Sub
+
+Sub Twice(ByRef n As Integer, ByRef m As Integer)
+	n = n * 2
+	m = m * 2
+End Sub
+
+Function IncAndGet(n As Integer) As Integer
+	n = n + 1
+	IncAndGet = n
+End Function
+
+Sub Touch(ByVal t As String)
+	t = t & "!"
+End Sub
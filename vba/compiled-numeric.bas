@@ -0,0 +1,106 @@
+Attribute VB_Name = "CompiledNumeric"
+
+' 数值过程调用次数超过 Interpreter.DEFAULT_COMPILE_THRESHOLD（1000）后进入第二层，
+' 结果及溢出、除零错误须与解释执行一致；Long 计数变量越过 2^31 不溢出
+' 期望输出：
+' 5050 338350 12.5
+' 1 0 -1
+' 5 2147483665
+' 6 溢出 32767
+' 11 除以零
+' 6 溢出
+
+Sub Main()
+	Dim i As Integer
+	Dim k As Long
+	Dim s As Long
+
+	' 先以不出错的参数调用，使各过程越过编译阈值
+	For i = 1 To 1100
+		k = i
+		s = SumTo(100) + SumSquares(10) + Half(4) + Sign(k) + AddInt(i, 1) + IntDiv(k, 2) + IntMul(i, 2) + CountFrom(0) + LastFrom(k)
+	Next
+
+	Debug.Print SumTo(100) & " " & SumSquares(100) & " " & Half(25)
+	Debug.Print Sign(3) & " " & Sign(0) & " " & Sign(-7)
+	Debug.Print CountFrom(2147483640) & " " & LastFrom(2147483640)
+
+	On Error GoTo h1
+	s = AddInt(32000, 800)
+	Debug.Print "no overflow"
+	Exit Sub
+h1:
+	Debug.Print Err.Number & " " & Err.Description & " " & AddInt(32000, 767)
+	On Error GoTo h2
+	s = IntDiv(1, 0)
+	Debug.Print "no error"
+	Exit Sub
+h2:
+	Debug.Print Err.Number & " " & Err.Description
+	On Error GoTo h3
+	s = IntMul(200, 200)
+	Debug.Print "no overflow"
+	Exit Sub
+h3:
+	Debug.Print Err.Number & " " & Err.Description
+End Sub
+
+Function SumTo(n As Long) As Long
+	Dim i As Long
+	Dim r As Long
+	For i = 1 To n
+		r = r + i
+	Next
+	SumTo = r
+End Function
+
+Function SumSquares(n As Long) As Long
+	Dim i As Long
+	Dim r As Long
+	For i = 1 To n
+		r = r + i * i
+	Next
+	SumSquares = r
+End Function
+
+Function Half(n As Long) As Double
+	Half = n / 2
+End Function
+
+Function Sign(n As Long) As Integer
+	If n > 0 Then
+		Sign = 1
+	ElseIf n < 0 Then
+		Sign = -1
+	Else
+		Sign = 0
+	End If
+End Function
+
+Function AddInt(a As Integer, b As Integer) As Integer
+	AddInt = a + b
+End Function
+
+Function IntDiv(a As Long, b As Long) As Long
+	IntDiv = a \ b
+End Function
+
+Function IntMul(a As Integer, b As Integer) As Integer
+	IntMul = a * b
+End Function
+
+Function CountFrom(t As Long) As Long
+	Dim j As Long
+	Dim n As Long
+	For j = t To t + 20 Step 5
+		n = n + 1
+	Next
+	CountFrom = n
+End Function
+
+Function LastFrom(t As Long) As Long
+	Dim j As Long
+	For j = t To t + 20 Step 5
+	Next
+	LastFrom = j
+End Function
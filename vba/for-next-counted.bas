@@ -0,0 +1,71 @@
+Attribute VB_Name = "ForNextCounted"
+
+' For...Next 的计数循环：递归调用各自保存循环状态，计数变量越过其类型范围时报溢出
+' 期望输出：
+' 1 3 5 7 9 10
+' 10 7 4 1
+' 0.5 1 1.5
+' 6 8 32767
+' 6 32767 32767
+' 5 2147483665
+
+Sub Main()
+	Dim s As String
+	Dim i As Integer
+	Dim n As Long
+	Dim j As Long
+	Dim t As Long
+	Dim d As Double
+
+	Debug.Print Nested(1)
+
+	For i = 10 To 1 Step -3
+		s = s & " " & i
+	Next
+	Debug.Print Mid(s, 2)
+
+	s = ""
+	For d = 0.5 To 1.5 Step 0.5
+		s = s & " " & d
+	Next
+	Debug.Print Mid(s, 2)
+
+	On Error GoTo H1
+	For i = 32760 To 32767
+		n = n + 1
+	Next
+	Debug.Print "no overflow " & i
+	GoTo Part2
+H1:
+	Debug.Print Err.Number & " " & n & " " & i
+Part2:
+	On Error GoTo H2
+	n = 0
+	For i = 1 To 40000
+		n = n + 1
+	Next
+	Debug.Print "no overflow " & i
+	GoTo Part3
+H2:
+	Debug.Print Err.Number & " " & n & " " & i
+Part3:
+	n = 0
+	t = 2147483640
+	For j = t To t + 20 Step 5
+		n = n + 1
+	Next
+	Debug.Print n & " " & j
+End Sub
+
+' 同一个 For 语句在递归中嵌套执行
+Function Nested(ByVal k As Integer) As String
+	Dim i As Integer
+	For i = k To k + 1
+		If i = k + 1 And k < 9 Then
+			Nested = Nested & Nested(k + 2)
+		Else
+			Nested = Nested & " " & i
+		End If
+	Next
+	If k = 1 Then Nested = Mid(Nested, 2)
+End Function
@@ -0,0 +1,27 @@
+Attribute VB_Name = "InStrReplace"
+
+' InStr、InStrRev、Replace 的 Start、Count 与 Compare 参数，以及空串、找不到等边界
+' 期望输出：
+' 3 6 0 1
+' 6 0 3
+' 7 3 0 4
+' xx-b-xx
+' a-B-A
+' a-b-a xx-b-a b-xx
+' -b-xx
+' aba
+' abc
+
+Sub Main()
+	Debug.Print InStr("abcabc", "ca") & " " & InStr(4, "abcabc", "c") & " " & InStr("abc", "x") & " " & InStr("abc", "")
+	Debug.Print InStr(1, "xxxxxHello", "hello", vbTextCompare) & " " & InStr(1, "xxxxxHello", "hello") & " " & InStr(2, "abCabc", "c", vbTextCompare)
+
+	Debug.Print InStrRev("abcabca", "a") & " " & InStrRev("abcabc", "c", 5) & " " & InStrRev("abc", "x") & " " & InStrRev("abcABC", "a", -1, vbTextCompare)
+
+	Debug.Print Replace("a-b-a", "a", "xx")
+	Debug.Print Replace("a-B-A", "b", "x")
+	Debug.Print Replace("a-b-a", "A", "xx", 1, -1, vbBinaryCompare) & " " & Replace("a-b-a", "A", "xx", 1, 1, vbTextCompare) & " " & Replace("a-b-a", "A", "xx", 3, 1, vbTextCompare)
+	Debug.Print Replace("a-b-a", "a", "xx", 2)
+	Debug.Print Replace("a-b-a", "-", "", 1, -1)
+	Debug.Print Replace("abc", "", "x")
+End Sub
@@ -0,0 +1,19 @@
+Attribute VB_Name = "LenLong"
+
+' Len 返回 Long，超过 32767 个字符的字符串不溢出
+' 期望输出：
+' 3
+' 5
+' 65536
+
+Sub Main()
+	Dim s As String
+	Dim i As Integer
+	Debug.Print VarType(Len("x"))
+	Debug.Print Len("Hello")
+	s = "a"
+	For i = 1 To 16
+		s = s & s
+	Next
+	Debug.Print Len(s)
+End Sub
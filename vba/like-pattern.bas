@@ -0,0 +1,26 @@
+Attribute VB_Name = "LikePattern"
+
+' Like 的通配符：* ? # [...] [!...]、范围、[] 匹配空串；未闭合的 [ 引发错误 93
+' 期望输出：
+' True True False
+' True False True
+' True False
+' True True False
+' True True
+' True False
+' 93
+
+Sub Main()
+	Debug.Print ("abcab" Like "*ab") & " " & ("aXb" Like "a?b") & " " & ("ab" Like "a?b")
+	Debug.Print ("a1b" Like "a#b") & " " & ("aXb" Like "a#b") & " " & ("" Like "*")
+	Debug.Print ("F" Like "[A-Z]") & " " & ("f" Like "[A-Z]")
+	Debug.Print ("x" Like "[!0-9]") & " " & ("a-b" Like "a[-]b") & " " & ("7" Like "[!0-9]")
+	Debug.Print ("ab" Like "a[]b") & " " & ("a*b" Like "a[*]b")
+	Debug.Print ("xaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaay" Like "x*a*a*a*a*a*a*a*a*a*a*a*a*a*a*a*a*a*a*a*a*a*a*a*a*a*a*a*a*a*a*a*a*a*y") & " " & ("ab" Like "a*a*a*a*a*a*a*a*a*a*a*a*a*a*a*a*a*a*a*a*a*a*a*a*a*a*a*a*a*a*a*a*a*b")
+
+	On Error GoTo h
+	Debug.Print "abc" Like "a[bc"
+	Exit Sub
+h:
+	Debug.Print Err.Number
+End Sub
@@ -0,0 +1,43 @@
+Attribute VB_Name = "OptionCompareText"
+Option Compare Text
+
+' Option Compare Text 下比较运算符、Select Case（单值、Is、To）、Like 以及
+' InStr/StrComp 的缺省比较方式都不区分大小写
+' 期望输出：
+' True True False
+' True True
+' equal
+' less
+' range
+' other
+' True False
+' 3 0
+' 0 1
+
+Sub Main()
+	Debug.Print ("abc" = "ABC") & " " & ("abc" < "ABD") & " " & ("abc" <> "ABC")
+	Debug.Print ("b" > "A") & " " & ("a" <= "A")
+
+	Debug.Print Classify("HELLO")
+	Debug.Print Classify("Apple")
+	Debug.Print Classify("Kiwi")
+	Debug.Print Classify("zebra")
+
+	Debug.Print ("HELLO" Like "h*o") & " " & ("HELLO" Like "h?o")
+
+	Debug.Print InStr("xxABc", "abc") & " " & InStr(1, "xxABc", "abc", vbBinaryCompare)
+	Debug.Print StrComp("abc", "ABC") & " " & StrComp("abc", "ABC", vbBinaryCompare)
+End Sub
+
+Function Classify(s As String) As String
+	Select Case s
+	Case "hello"
+		Classify = "equal"
+	Case Is < "b"
+		Classify = "less"
+	Case "j" To "L"
+		Classify = "range"
+	Case Else
+		Classify = "other"
+	End Select
+End Function
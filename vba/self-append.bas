@@ -0,0 +1,65 @@
+Attribute VB_Name = "SelfAppend"
+
+' s = s & x 形式的自身追加：追加中途读取、重新赋值、ByRef 传递、Variant 变量与函数返回值
+' 期望输出：
+' 1:a 2:ab 3:abc
+' xyz
+' 12345
+' [v]!!
+' 6
+' abc-d-e
+' 0123
+
+Sub Main()
+	Dim s As String
+	Dim t As String
+	Dim i As Integer
+	Dim v As Variant
+
+	For i = 1 To 3
+		s = s & Chr(96 + i)
+		t = t & " " & i & ":" & s
+	Next
+	Debug.Print Mid(t, 2)
+
+	s = s & "123"
+	s = "x"
+	s = s & "y"
+	s = s & "z"
+	Debug.Print s
+
+	s = ""
+	For i = 1 To 5
+		AppendTo s, CStr(i)
+	Next
+	Debug.Print s
+
+	v = "[v]"
+	v = v & "!"
+	v = v & "!"
+	Debug.Print v
+
+	s = "abc"
+	s = s & "def"
+	Debug.Print Len(s)
+
+	Debug.Print Joined()
+	Debug.Print Digits(3)
+End Sub
+
+Sub AppendTo(ByRef target As String, ByVal x As String)
+	target = target & x
+End Sub
+
+Function Joined() As String
+	Joined = "abc"
+	Joined = Joined & "-d"
+	Joined = Joined & "-e"
+End Function
+
+Function Digits(ByVal n As Integer) As String
+	Dim i As Integer
+	For i = 0 To n
+		Digits = Digits & i
+	Next
+End Function
@@ -0,0 +1,30 @@
+Attribute VB_Name = "SplitJoin"
+
+' Split 的 Delimiter、Limit、Compare 及空串，Join 还原；StrComp 的三种结果与 Null；StrConv 大小写转换
+' 期望输出：
+' 2 a|b|c
+' 1 a|b,c
+' -1
+' 0 a b c
+' 2 1XAX2
+' -1 0 1 1
+' True
+' ABC abc Hello World
+
+Sub Main()
+	Dim p
+	p = Split("a,b,c", ",")
+	Debug.Print UBound(p) & " " & Join(p, "|")
+	p = Split("a,b,c", ",", 2)
+	Debug.Print UBound(p) & " " & Join(p, "|")
+	p = Split("")
+	Debug.Print UBound(p)
+	p = Split("a b c")
+	Debug.Print LBound(p) & " " & Join(p)
+	p = Split("1xAx2", "X", -1, vbTextCompare)
+	Debug.Print UBound(p) & " " & Join(p, "X")
+
+	Debug.Print StrComp("a", "b") & " " & StrComp("a", "a") & " " & StrComp("b", "a") & " " & StrComp("a", "A", vbBinaryCompare)
+	Debug.Print IsNull(StrComp(Null, "a"))
+	Debug.Print StrConv("abc", vbUpperCase) & " " & StrConv("ABC", vbLowerCase) & " " & StrConv("hello wORLD", vbProperCase)
+End Sub
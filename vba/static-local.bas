@@ -0,0 +1,55 @@
+Attribute VB_Name = "StaticLocal"
+
+' Static 局部变量跨调用保留值；普通局部变量每次调用重新初始化，递归时各层互不干扰
+' 期望输出：
+' 11 1
+' 21 1
+' 31 1
+' 120
+' 6 3
+
+Sub Main()
+	Dim i As Integer
+	For i = 1 To 3
+		Debug.Print Counter() & " " & Fresh()
+	Next
+	Debug.Print Fact(5)
+	Debug.Print SumTo(3) & " " & Depth(3)
+End Sub
+
+Function Counter() As Integer
+	Static n As Integer
+	If n = 0 Then n = 1
+	n = n + 10
+	Counter = n
+End Function
+
+Function Fresh() As Integer
+	Dim n As Integer
+	n = n + 1
+	Fresh = n
+End Function
+
+Function Fact(n As Long) As Long
+	Dim r As Long
+	If n <= 1 Then
+		r = 1
+	Else
+		r = n * Fact(n - 1)
+	End If
+	Fact = r
+End Function
+
+Function SumTo(ByVal n As Integer) As Integer
+	Dim local As Integer
+	local = n
+	If n > 0 Then local = local + SumTo(n - 1)
+	SumTo = local
+End Function
+
+Function Depth(ByVal n As Integer) As Integer
+	Static maxDepth As Integer
+	If n > maxDepth Then maxDepth = n
+	If n > 0 Then Call Depth(n - 1)
+	Depth = maxDepth
+End Function
@@ -0,0 +1,23 @@
+Attribute VB_Name = "StringsModule"
+
+' VBA.Strings 模块中的函数，Chr 与 Chr$ 这样的同名函数各自可用；Mid 超出字符串长度时截断
+' 期望输出：
+' AB
+' ABCdef
+' Hello
+' He|llo
+' ell
+' [|lo]
+' 5
+' 65
+
+Sub Main()
+	Debug.Print Chr(65) & Chr$(66)
+	Debug.Print UCase("abc") & LCase$("DEF")
+	Debug.Print Left("Hello", 2) & Right$("Hello", 3)
+	Debug.Print Left$("Hello", 2) & "|" & Right("Hello", 3)
+	Debug.Print Mid("Hello", 2, 3)
+	Debug.Print "[" & Mid("Hello", 9) & "|" & Mid("Hello", 4, 10) & "]"
+	Debug.Print Len("Hello")
+	Debug.Print Asc("A")
+End Sub
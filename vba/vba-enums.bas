@@ -0,0 +1,13 @@
+Attribute VB_Name = "VbaEnums"
+
+' VBA 库的枚举常量（Java 中为 int 字段）
+' 期望输出：
+' 1
+' 3
+' 2
+
+Sub Main()
+	Debug.Print vbTextCompare
+	Debug.Print vbSunday + vbMonday
+	Debug.Print vbDatabaseCompare
+End Sub